@@ -0,0 +1,109 @@
+package roguelike;
+
+import java.lang.management.ManagementFactory;
+
+import roguelike.maps.FieldBatch;
+import roguelike.maps.FieldRequest;
+import roguelike.maps.MapArea;
+import squidpony.squidgrid.fov.FOVTranslator;
+import squidpony.squidgrid.fov.TranslucenceWrapperFOV;
+import squidpony.squidgrid.util.BasicRadiusStrategy;
+import squidpony.squidmath.RNG;
+
+/**
+ * Compares {@link FieldBatch}, which solves each {@link FieldRequest} straight into the request's own buffer, against
+ * solving the same square with SquidLib's TranslucenceWrapperFOV the way it used to be done, on generated dungeons.
+ * Every tile of every field must come out the same; the time and the bytes allocated per field are printed.
+ *
+ * Usage: FieldBenchmark [--maps n] [--fields n] [--radius n] [--seed n]
+ */
+public class FieldBenchmark {
+    private static final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String... args) {
+        System.setProperty("java.awt.headless", "true");
+
+        int maps = 3;
+        int fields = 2000;
+        int radius = 6;
+        long seed = 1;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+            case "--maps":
+                maps = Integer.parseInt(args[i + 1]);
+                break;
+            case "--fields":
+                fields = Integer.parseInt(args[i + 1]);
+                break;
+            case "--radius":
+                radius = Integer.parseInt(args[i + 1]);
+                break;
+            case "--seed":
+                seed = Long.parseLong(args[i + 1]);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        FOVTranslator squidLib = new FOVTranslator(new TranslucenceWrapperFOV());
+        long thread = Thread.currentThread().getId();
+        long[] nanos = new long[2];
+        long[] bytes = new long[2];
+        long solved = 0;
+
+        for (int m = 0; m < maps; m++) {
+            MapArea map = GameLoader.newGame(seed + m).getCurrentMapArea();
+            float[][] resistances = map.getLightValues();
+            RNG rng = new RNG(seed + m);
+
+            for (int f = 0; f < fields; f++) {
+                int x, y;
+                do {
+                    x = rng.nextInt(map.width());
+                    y = rng.nextInt(map.height());
+                } while (!map.getTileAt(x, y).canPass());
+                float intensity = 0.5f + rng.nextFloat() * 0.5f;
+
+                FieldRequest request = new FieldRequest(x, y, radius, intensity, BasicRadiusStrategy.CIRCLE);
+                long allocated = threads.getThreadAllocatedBytes(thread);
+                long start = System.nanoTime();
+                FieldBatch.compute(resistances, request);
+                nanos[0] += System.nanoTime() - start;
+                bytes[0] += threads.getThreadAllocatedBytes(thread) - allocated;
+
+                /* the way it used to be done: copy the square out, solve it, copy the result back */
+                int left = Math.max(0, x - radius);
+                int top = Math.max(0, y - radius);
+                int windowWidth = Math.min(map.width(), x + radius + 1) - left;
+                int windowHeight = Math.min(map.height(), y + radius + 1) - top;
+
+                allocated = threads.getThreadAllocatedBytes(thread);
+                start = System.nanoTime();
+                float[][] window = new float[windowWidth][windowHeight];
+                for (int wx = 0; wx < windowWidth; wx++)
+                    System.arraycopy(resistances[left + wx], top, window[wx], 0, windowHeight);
+                float[][] expected = squidLib.calculateFOV(window, x - left, y - top, intensity, intensity / radius,
+                        BasicRadiusStrategy.CIRCLE);
+                nanos[1] += System.nanoTime() - start;
+                bytes[1] += threads.getThreadAllocatedBytes(thread) - allocated;
+
+                for (int wx = 0; wx < windowWidth; wx++) {
+                    for (int wy = 0; wy < windowHeight; wy++) {
+                        float actual = request.valueAt(left + wx, top + wy);
+                        if (actual != expected[wx][wy])
+                            throw new IllegalStateException(String.format("map %d, field from %d,%d: %f at %d,%d, SquidLib gives %f", m, x, y,
+                                    actual, left + wx, top + wy, expected[wx][wy]));
+                    }
+                }
+                solved++;
+            }
+        }
+
+        System.out.printf("%d fields of radius %d on %d maps; every tile matches%n", solved, radius, maps);
+        System.out.printf("%-24s %7.1f us per field, %8.1f bytes allocated per field%n", "FieldBatch", nanos[0] / 1000.0 / solved,
+                bytes[0] / (double) solved);
+        System.out.printf("%-24s %7.1f us per field, %8.1f bytes allocated per field%n", "TranslucenceWrapperFOV", nanos[1] / 1000.0 / solved,
+                bytes[1] / (double) solved);
+    }
+}
@@ -4,7 +4,7 @@ import java.awt.Point;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.LinkedList;
+import java.util.ArrayDeque;
 import java.util.Queue;
 
 import org.apache.logging.log4j.LogManager;
@@ -13,12 +13,16 @@ import org.apache.logging.log4j.Logger;
 import roguelike.actions.Action;
 import roguelike.actions.ActionResult;
 import roguelike.actors.Actor;
+import roguelike.actors.AiBudget;
 import roguelike.actors.Energy;
+import roguelike.actors.ParallelDecisions;
 import roguelike.actors.Player;
+import roguelike.actors.SimulationLod;
 import roguelike.items.Inventory;
 import roguelike.maps.MapArea;
-import roguelike.ui.DisplayManager;
 import roguelike.util.Coordinate;
+import roguelike.util.Metrics;
+import roguelike.util.Metrics.Counter;
 import squidpony.squidcolor.SColor;
 import squidpony.squidmath.RNG;
 
@@ -49,6 +53,11 @@ public class Game implements Serializable {
     private MapArea currentMapArea;
     private Queue<Action> queuedActions;
     private TurnResult currentTurnResult;
+    private transient Runnable actionPerformedListener;
+    private transient Runnable playerTurnListener;
+    private transient ParallelDecisions parallelDecisions;
+    private transient SimulationLod simulationLod;
+    private transient AiBudget aiBudget;
 
     Cursor activeCursor;
     MessageLog messages;
@@ -59,8 +68,12 @@ public class Game implements Serializable {
      * @param gameLoader
      */
     Game() {
-        this.queuedActions = new LinkedList<Action>();
-        this.rng = GameLoader.getRandom();
+        this(GameLoader.getRandom());
+    }
+
+    Game(RNG rng) {
+        this.queuedActions = new ArrayDeque<Action>();
+        this.rng = rng;
 
         currentGame = this;
         LOG.debug("Created Game");
@@ -88,8 +101,14 @@ public class Game implements Serializable {
         return messages;
     }
 
+    /**
+     * Returns the game's random numbers, or while an NPC is deciding in parallel with others, that NPC's own.
+     * 
+     * @return
+     */
     public RNG random() {
-        return rng;
+        RNG actorRandom = ParallelDecisions.currentRandom();
+        return actorRandom != null ? actorRandom : rng;
     }
 
     public boolean isRunning() {
@@ -123,6 +142,100 @@ public class Game implements Serializable {
         currentMapArea = mapArea;
     }
 
+    /**
+     * Sets something to be told whenever an actor finishes an action, such as the display so it can redraw. Not
+     * saved with the game.
+     * 
+     * @param listener
+     */
+    public void setActionPerformedListener(Runnable listener) {
+        actionPerformedListener = listener;
+    }
+
+    /**
+     * Sets something to be told whenever the player finishes a turn, such as a recording. Not saved with the game.
+     * 
+     * @param listener
+     */
+    public void setPlayerTurnListener(Runnable listener) {
+        playerTurnListener = listener;
+    }
+
+    /**
+     * Sums up the state of the current map: where each actor is, its health and energy, and the size of the message
+     * log. Two runs of the same game should give the same checksum turn for turn.
+     * 
+     * @return
+     */
+    public long checksum() {
+        long checksum = messages.size();
+        checksum = checksum * 31 + currentMapArea.getWalkabilityVersion();
+        for (Actor actor : currentMapArea.getAllActors()) {
+            checksum = checksum * 31 + actor.getName().hashCode();
+            checksum = checksum * 31 + actor.getPosition().x;
+            checksum = checksum * 31 + actor.getPosition().y;
+            checksum = checksum * 31 + actor.health().getCurrent();
+            checksum = checksum * 31 + actor.energy().getCurrent();
+        }
+        return checksum;
+    }
+
+    /**
+     * Turns on deciding the NPCs' actions in parallel, see {@link ParallelDecisions}. Off by default; not saved with
+     * the game.
+     * 
+     * @param parallelism
+     *            How many threads to use, or 0 to decide one NPC at a time as usual
+     */
+    public void setParallelDecisions(int parallelism) {
+        if (parallelDecisions != null)
+            parallelDecisions.shutdown();
+
+        parallelDecisions = parallelism > 0 ? new ParallelDecisions(parallelism) : null;
+    }
+
+    /**
+     * Simulates NPCs far from the player more cheaply, see {@link SimulationLod}. Off by default; not saved with the
+     * game.
+     * 
+     * @param simulationLod
+     *            The tiers to use, or null to fully simulate every NPC
+     */
+    public void setSimulationLod(SimulationLod simulationLod) {
+        this.simulationLod = simulationLod;
+    }
+
+    public SimulationLod getSimulationLod() {
+        return simulationLod;
+    }
+
+    /**
+     * Lets NPCs within earshot of something loud, such as a fight, hear it. Only matters to NPCs that aren't being
+     * fully simulated, which it wakes.
+     * 
+     * @param position
+     * @param radius
+     */
+    public void makeNoise(Coordinate position, int radius) {
+        if (simulationLod != null)
+            simulationLod.noise(currentMapArea, position.x, position.y, radius);
+    }
+
+    /**
+     * Caps the time NPCs spend deciding each call to {@link #processTurn()}, see {@link AiBudget}. Off by default; not
+     * saved with the game.
+     * 
+     * @param aiBudget
+     *            The budget, or null to let NPCs take as long as they need
+     */
+    public void setAiBudget(AiBudget aiBudget) {
+        this.aiBudget = aiBudget;
+    }
+
+    public AiBudget getAiBudget() {
+        return aiBudget;
+    }
+
     public void initialize() {
         LOG.debug("Initializing Game");
 
@@ -151,11 +264,18 @@ public class Game implements Serializable {
      * @param message
      */
     public void displayMessage(String message) {
-        messages.add(message);
+        if (message == null)
+            return;
+
+        MessageDisplayProperties properties = new MessageDisplayProperties(message);
+        if (!ParallelDecisions.holdMessage(properties))
+            messages.add(properties);
     }
 
     public void displayMessage(String message, SColor color) {
-        messages.add(new MessageDisplayProperties(message, color));
+        MessageDisplayProperties properties = new MessageDisplayProperties(message, color);
+        if (!ParallelDecisions.holdMessage(properties))
+            messages.add(properties);
     }
 
     public void addEvent(TurnEvent event) {
@@ -183,6 +303,9 @@ public class Game implements Serializable {
 
         showItemsOnPlayerSquare();
 
+        if (aiBudget != null)
+            aiBudget.startFrame();
+
         while (true) {
 
             while (!queuedActions.isEmpty()) {
@@ -217,13 +340,33 @@ public class Game implements Serializable {
             actor = currentMapArea.getCurrentActor();
         }
 
-        int speed = actor.effectiveSpeed(currentMapArea);
+        // the scheduler only makes an actor current once it has earned enough energy to act
         Energy energy = actor.energy();
 
-        if (energy.canAct() || energy.increase(speed)) {
-            Action action = actor.getNextAction();
+        if (energy.canAct()) {
+            Action action = null;
+            if (simulationLod != null && !Player.isPlayer(actor))
+                action = simulationLod.getAction(currentMapArea, actor);
+
+            if (action == null && aiBudget != null && !Player.isPlayer(actor))
+                action = aiBudget.getFallbackAction(actor);
+
+            if (action == null) {
+                boolean timed = aiBudget != null && !Player.isPlayer(actor);
+                long start = timed ? aiBudget.start() : 0;
+
+                if (parallelDecisions != null && !Player.isPlayer(actor))
+                    action = parallelDecisions.getAction(currentMapArea, actor);
+                else
+                    action = actor.getNextAction();
+
+                if (timed)
+                    aiBudget.stop(start);
+            }
+
             if (action != null) {
                 queuedActions.add(action);
+                Metrics.count(Counter.ACTORS_PROCESSED);
             }
             else {
                 return turnResult;
@@ -236,12 +379,27 @@ public class Game implements Serializable {
                 // TODO: process things that happen every turn after player queues actions
                 Game.currentGame.currentMapArea.spawnMonsters();
                 LOG.debug("Game: Queue length: {}", queuedActions.size());
+
+                currentMapArea.lighting().endTurn();
+                currentMapArea.pathfinding().stats().endTurn();
+                LOG.debug("Pathfinding: {}", currentMapArea.pathfinding().stats());
+                Metrics.logIfDue();
             }
         }
 
         return null;
     }
 
+    /**
+     * Adds an action's message, if it has one, to the log. The message is only put together then.
+     * 
+     * @param result
+     */
+    private void displayResult(ActionResult result) {
+        if (result.hasMessage())
+            messages.add(result.getMessage());
+    }
+
     /**
      * Executes the current action in the queue
      * 
@@ -258,7 +416,7 @@ public class Game implements Serializable {
         }
 
         ActionResult result = currentAction.perform();
-        messages.add(result.getMessage());
+        displayResult(result);
 
         /*
          * if the result is completed we can proceed, else put it back on the queue
@@ -268,7 +426,7 @@ public class Game implements Serializable {
             while (result.getAlternateAction() != null) {
                 Action alternate = result.getAlternateAction();
                 result = alternate.perform();
-                messages.add(result.getMessage());
+                displayResult(result);
 
                 if (!result.isCompleted())
                     queuedActions.add(alternate);
@@ -278,8 +436,17 @@ public class Game implements Serializable {
             if (currentActor != null && !currentActor.energy().canAct()) {
 
                 if (result.isSuccess()) {
+                    // NPCs may change behavior as their turn finishes, which counts against the AI budget
+                    boolean timed = aiBudget != null && !Player.isPlayer(currentActor);
+                    long start = timed ? aiBudget.start() : 0;
                     currentActor.finishTurn();
-                    DisplayManager.instance().setDirty(); // make sure we show the result of the action
+                    if (timed)
+                        aiBudget.stop(start);
+
+                    if (actionPerformedListener != null)
+                        actionPerformedListener.run();
+                    if (playerTurnListener != null && Player.isPlayer(currentActor))
+                        playerTurnListener.run();
                 }
                 else {
                     currentMapArea.nextActor("executeQueuedActions, !currentActor.canAct && !success");
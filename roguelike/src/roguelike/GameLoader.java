@@ -1,7 +1,9 @@
 package roguelike;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInput;
 import java.io.ObjectInputStream;
@@ -23,17 +25,57 @@ import roguelike.items.WeaponFactory;
 import roguelike.items.WeaponType;
 import roguelike.maps.DungeonMapBuilder;
 import roguelike.maps.MapArea;
+import roguelike.ui.InputManager;
 import squidpony.squidmath.RNG;
 
 public class GameLoader {
     private static final Logger LOG = LogManager.getLogger(GameLoader.class);
 
+    private static File recordingFile;
+    private static Recording recording;
+
     private GameLoader() {
     }
 
+    /**
+     * Records every new game to the given file from now on, each replacing the last, so it can be played back with
+     * HeadlessRunner --replay.
+     * 
+     * @param file
+     */
+    public static void setRecordingFile(File file) {
+        recordingFile = file;
+    }
+
+    /**
+     * @return True if new games are being recorded
+     */
+    public static boolean isRecording() {
+        return recordingFile != null;
+    }
+
     public static Game newGame() {
+        if (recordingFile == null)
+            return newGame(new Game());
 
-        Game game = new Game();
+        // a recording has to know the seed to play the game back
+        long seed = System.currentTimeMillis();
+        Game game = newGame(seed);
+        startRecording(game, seed);
+        return game;
+    }
+
+    /**
+     * Starts a new game whose random numbers, and so its maps, come from the given seed.
+     * 
+     * @param seed
+     * @return
+     */
+    public static Game newGame(long seed) {
+        return newGame(new Game(getRandom(seed)));
+    }
+
+    private static Game newGame(Game game) {
         Player player = game.getPlayer();
         MapArea currentMapArea = MapArea.build(Game.MAP_WIDTH, Game.MAP_HEIGHT, new DungeonMapBuilder());
         currentMapArea.addActor(player);
@@ -42,6 +84,25 @@ public class GameLoader {
         return game;
     }
 
+    private static void startRecording(Game game, long seed) {
+        if (recording != null)
+            recording.close();
+
+        try {
+            recording = new Recording(recordingFile, seed);
+        }
+        catch (IOException e) {
+            LOG.warn("Couldn't record to {}: {}", recordingFile, e.toString());
+            recording = null;
+            InputManager.setInputRecorder(null);
+            return;
+        }
+
+        recording.attach(game);
+        InputManager.setInputRecorder(recording);
+        LOG.info("Recording game with seed {} to {}", seed, recordingFile);
+    }
+
     public static void save(Game game) {
         try {
             OutputStream file = new FileOutputStream("saves/game.ser");
@@ -99,4 +160,20 @@ public class GameLoader {
     public static RNG getRandom() {
         return new RNG();
     }
+
+    /**
+     * SquidLib's RNG(long) ignores the seed it's given, so the seed is spread over the byte array the generator
+     * actually seeds itself from.
+     * 
+     * @param seed
+     * @return A generator that gives the same numbers every time for the same seed
+     */
+    public static RNG getRandom(long seed) {
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (seed >>> (8 * i));
+            bytes[i + 8] = (byte) ~bytes[i];
+        }
+        return new RNG(bytes);
+    }
 }
@@ -0,0 +1,425 @@
+package roguelike;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import roguelike.actors.Actor;
+import roguelike.actors.AiBudget;
+import roguelike.actors.Player;
+import roguelike.actors.SimulationLod;
+import roguelike.actors.behaviors.BotBehavior;
+import roguelike.maps.FieldOfView;
+import roguelike.maps.LightingEngine;
+import roguelike.maps.MapArea;
+import roguelike.ui.InputCommand;
+import roguelike.ui.InputManager;
+import roguelike.ui.InputSource;
+import roguelike.ui.MainWindow;
+import roguelike.ui.ScriptedInputSource;
+import roguelike.util.Metrics;
+import roguelike.util.TimingHistogram;
+import squidpony.squidmath.RNG;
+
+/**
+ * Runs the game without a window, for stress testing and profiling the simulation on machines with no display. The
+ * player is either played by a {@link BotBehavior}, follows a script of commands, or plays back a {@link Recording},
+ * fed in through an {@link InputSource} instead of the keyboard.
+ *
+ * Usage: HeadlessRunner [--turns n] [--seed n] [--npcs n] [--script UP,LEFT,... [--record file]] [--replay file]
+ * [--metrics true] [--parallel threads] [--lod full,coarse,interval] [--ai-budget micros] [--lights n]
+ *
+ * Without a script or replay the bot plays. Whenever the player dies a new game is started, with the next seed, until
+ * the turn budget is spent; recording and replaying stop at the end of the first game instead. A replay runs the
+ * recorded game as fast as it will go and checks it turn by turn against the recording, so two builds can be timed on
+ * exactly the same game. The time each player turn took is collected in a histogram that is logged periodically along
+ * with memory use and the bytes allocated per turn, and printed at the end, along with the per-phase {@link Metrics}
+ * if they were turned on.
+ */
+public class HeadlessRunner {
+    private static final Logger LOG = LogManager.getLogger(HeadlessRunner.class);
+
+    /** Commands that open a cursor or dialog, which need a screen to answer them */
+    private static final EnumSet<InputCommand> NEEDS_SCREEN =
+            EnumSet.of(InputCommand.INVENTORY, InputCommand.LOOK, InputCommand.SHOW_MESSAGES, InputCommand.RANGED_ATTACK);
+
+    /** The area around the player that FOV is calculated for, the same as the main window's map view */
+    private static final int VIEW_WIDTH = MainWindow.WIDTH - MainWindow.STAT_WIDTH;
+    private static final int VIEW_HEIGHT = MainWindow.HEIGHT;
+
+    /** How many turns between progress lines in the log */
+    private static final int REPORT_INTERVAL = 1000;
+
+    /** The lights put on each map for --lights: braziers on the floor, and a torch for every NPC */
+    private static final int BRAZIER_RADIUS = 6;
+    private static final float BRAZIER_INTENSITY = 0.6f;
+    private static final int TORCH_RADIUS = 4;
+    private static final float TORCH_INTENSITY = 0.5f;
+
+    private final FieldOfView fieldOfView = new FieldOfView();
+    private final TimingHistogram turnTimes = new TimingHistogram();
+    private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final long seed;
+    private final InputSource input;
+    private final Replay replay;
+    private Recording recording;
+    private int maxNpcs;
+    private int parallelism;
+    private SimulationLod simulationLod;
+    private AiBudget aiBudget;
+    private int lights;
+
+    private Game game;
+    private int games;
+    private int turns;
+    private long elapsedNanos;
+    private long allocatedBytes;
+
+    /**
+     * @param seed
+     *            Seed for the first game; each game after it uses the next one
+     * @param input
+     *            Where the player's commands come from, or null to let the bot play
+     */
+    public HeadlessRunner(long seed, InputSource input) {
+        this.seed = seed;
+        this.input = input;
+        this.replay = input instanceof Replay ? (Replay) input : null;
+    }
+
+    public HeadlessRunner(Replay replay) {
+        this(replay.getSeed(), replay);
+    }
+
+    public static void main(String... args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+
+        int maxTurns = 1000;
+        long seed = System.currentTimeMillis();
+        int npcs = 0;
+        int parallelism = 0;
+        SimulationLod simulationLod = null;
+        long aiBudgetNanos = 0;
+        int lights = 0;
+        ScriptedInputSource script = null;
+        File recordTo = null;
+        Replay replay = null;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+            case "--turns":
+                maxTurns = Integer.parseInt(args[i + 1]);
+                break;
+            case "--seed":
+                seed = Long.parseLong(args[i + 1]);
+                break;
+            case "--npcs":
+                npcs = Integer.parseInt(args[i + 1]);
+                break;
+            case "--script":
+                script = ScriptedInputSource.parse(args[i + 1]);
+                for (InputCommand command : script.getCommands()) {
+                    if (NEEDS_SCREEN.contains(command))
+                        throw new IllegalArgumentException(command + " can't be used without a screen");
+                }
+                break;
+            case "--record":
+                recordTo = new File(args[i + 1]);
+                break;
+            case "--replay":
+                replay = Replay.load(new File(args[i + 1]));
+                break;
+            case "--parallel":
+                parallelism = Integer.parseInt(args[i + 1]);
+                break;
+            case "--lod":
+                String[] lod = args[i + 1].split(",");
+                int fullRadius = Integer.parseInt(lod[0]);
+                int coarseRadius = lod.length > 1 ? Integer.parseInt(lod[1]) : fullRadius * 2;
+                int coarseInterval = lod.length > 2 ? Integer.parseInt(lod[2]) : 5;
+                simulationLod = new SimulationLod(fullRadius, coarseRadius, coarseInterval);
+                break;
+            case "--ai-budget":
+                aiBudgetNanos = Long.parseLong(args[i + 1]) * 1000;
+                break;
+            case "--lights":
+                lights = Integer.parseInt(args[i + 1]);
+                break;
+            case "--metrics":
+                Metrics.setEnabled(Boolean.parseBoolean(args[i + 1]));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        if (recordTo != null && script == null)
+            throw new IllegalArgumentException("--record needs a --script, the bot doesn't play through input");
+
+        HeadlessRunner runner;
+        if (replay != null) {
+            // play the whole recording unless told otherwise
+            if (!Arrays.asList(args).contains("--turns"))
+                maxTurns = Integer.MAX_VALUE;
+
+            LOG.info("Replaying {} turns headless, seed {}", replay.getRecordedTurns(), replay.getSeed());
+            runner = new HeadlessRunner(replay);
+        }
+        else {
+            LOG.info("Running {} turns headless, seed {}", maxTurns, seed);
+            runner = new HeadlessRunner(seed, script);
+            if (recordTo != null)
+                runner.setRecording(new Recording(recordTo, seed));
+        }
+        runner.setMaxNpcs(npcs);
+        runner.setParallelism(parallelism);
+        runner.setSimulationLod(simulationLod);
+        runner.setAiBudget(aiBudgetNanos);
+        runner.setLights(lights);
+        runner.run(maxTurns);
+
+        System.out.println(runner.report());
+        System.out.print(runner.getTurnTimes().toHistogramString());
+        if (Metrics.isEnabled())
+            System.out.print(Metrics.report());
+
+        if (replay != null && replay.getProblem() != null)
+            System.exit(1);
+    }
+
+    /**
+     * Records the game as it is played. Only the first game is played.
+     *
+     * @param recording
+     */
+    public void setRecording(Recording recording) {
+        this.recording = recording;
+    }
+
+    /**
+     * Fills each map up to the given number of NPCs, on top of the normal spawning.
+     *
+     * @param maxNpcs
+     *            0 to leave spawning as it is
+     */
+    public void setMaxNpcs(int maxNpcs) {
+        this.maxNpcs = maxNpcs;
+    }
+
+    /**
+     * Has the NPCs decide in parallel, see {@link Game#setParallelDecisions(int)}.
+     *
+     * @param parallelism
+     *            How many threads to use, or 0 for none
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Simulates NPCs far from the player more cheaply, see {@link Game#setSimulationLod(SimulationLod)}.
+     *
+     * @param simulationLod
+     *            The tiers to use, or null to fully simulate every NPC
+     */
+    public void setSimulationLod(SimulationLod simulationLod) {
+        this.simulationLod = simulationLod;
+    }
+
+    /**
+     * Caps the time NPCs spend deciding each turn, see {@link Game#setAiBudget(AiBudget)}. One budget is kept across
+     * games, so its figures cover the whole run.
+     *
+     * @param aiBudgetNanos
+     *            The budget, or 0 for none
+     */
+    public void setAiBudget(long aiBudgetNanos) {
+        this.aiBudget = aiBudgetNanos > 0 ? new AiBudget(aiBudgetNanos) : null;
+    }
+
+    /**
+     * Lights up each map with the given number of braziers, and gives each NPC on it to begin with a torch, for timing
+     * the {@link LightingEngine}.
+     *
+     * @param lights
+     *            How many braziers, or 0 for no lights
+     */
+    public void setLights(int lights) {
+        this.lights = lights;
+    }
+
+    /**
+     * Plays until the player has acted the given number of times, starting a new game whenever the player dies.
+     *
+     * @param maxTurns
+     * @return The number of turns the player acted
+     */
+    public int run(int maxTurns) {
+        InputManager.setInputSource(input);
+        InputManager.setInputRecorder(recording);
+
+        MapArea map = null;
+        long turnNanos = 0;
+        while (turns < maxTurns) {
+            if (game == null) {
+                startGame();
+                map = null;
+            }
+            if (game.getCurrentMapArea() != map) {
+                map = game.getCurrentMapArea();
+                populate(map);
+                placeLights(map);
+                updateFieldOfView();
+            }
+
+            long start = System.nanoTime();
+            long thread = Thread.currentThread().getId();
+            long allocated = threads.getThreadAllocatedBytes(thread);
+            TurnResult result = game.processTurn();
+            allocatedBytes += threads.getThreadAllocatedBytes(thread) - allocated;
+            turnNanos += System.nanoTime() - start;
+
+            if (game.isPlayerDead()) {
+                LOG.info("Player died after {} turns", turns);
+                if (replay != null || recording != null)
+                    break;
+
+                game = null;
+                continue;
+            }
+            if (!result.isRunning())
+                break;
+
+            if (result.playerActedThisTurn()) {
+                turns++;
+                turnTimes.record(turnNanos);
+                elapsedNanos += turnNanos;
+                turnNanos = 0;
+
+                updateFieldOfView();
+
+                if (turns % REPORT_INTERVAL == 0)
+                    LOG.info(report());
+            }
+
+            if (replay != null && replay.isFinished())
+                break;
+        }
+
+        InputManager.setInputSource(null);
+        InputManager.setInputRecorder(null);
+        if (recording != null)
+            recording.close();
+
+        return turns;
+    }
+
+    public int getTurns() {
+        return turns;
+    }
+
+    public double getTurnsPerSecond() {
+        return elapsedNanos > 0 ? turns / (elapsedNanos / 1e9) : 0;
+    }
+
+    public TimingHistogram getTurnTimes() {
+        return turnTimes;
+    }
+
+    /**
+     * @return The bytes allocated on the game thread per player turn, which doesn't include the work done by worker
+     *         threads such as pathfinding
+     */
+    public long getAllocatedBytesPerTurn() {
+        return turns > 0 ? allocatedBytes / turns : 0;
+    }
+
+    public String report() {
+        Runtime runtime = Runtime.getRuntime();
+        long usedMemory = (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024);
+        int actors = game != null ? game.getCurrentMapArea().getAllActors().size() : 0;
+
+        String report = String.format("%d turns over %d games in %.1f ms (%.0f turns/sec), %d actors, %d MB used, %d bytes allocated per turn; turn times: %s",
+                turns, games, elapsedNanos / 1e6, getTurnsPerSecond(), actors, usedMemory, getAllocatedBytesPerTurn(), turnTimes);
+
+        if (simulationLod != null && game != null) {
+            int[] tiers = simulationLod.getTierCounts(game.getCurrentMapArea());
+            report += String.format("\nNPCs by simulation tier: %d full, %d coarse, %d dormant", tiers[SimulationLod.Tier.FULL.ordinal()],
+                    tiers[SimulationLod.Tier.COARSE.ordinal()], tiers[SimulationLod.Tier.DORMANT.ordinal()]);
+        }
+        if (aiBudget != null)
+            report += "\nAI " + aiBudget;
+        if (lights > 0 && game != null)
+            report += "\nLighting: " + game.getCurrentMapArea().lighting();
+        if (replay != null) {
+            if (replay.getProblem() != null)
+                report += "\nReplay failed after " + replay.getTurns() + " turns: " + replay.getProblem();
+            else
+                report += "\nReplay matched " + replay.getTurns() + " of " + replay.getRecordedTurns() + " recorded turns";
+        }
+        return report;
+    }
+
+    private void startGame() {
+        game = GameLoader.newGame(seed + games);
+        games++;
+        game.setParallelDecisions(parallelism);
+        game.setSimulationLod(simulationLod);
+        game.setAiBudget(aiBudget);
+
+        if (input == null)
+            game.getPlayer().setBehavior(new BotBehavior(game.getPlayer()));
+        if (replay != null)
+            replay.attach(game);
+        if (recording != null)
+            recording.attach(game);
+
+        game.initialize();
+    }
+
+    private void populate(MapArea map) {
+        if (maxNpcs <= 0)
+            return;
+
+        // the player counts towards the map's limit
+        map.setMaxActors(maxNpcs + 1);
+        for (int attempt = 0; attempt < maxNpcs * 20 && map.getAllActors().size() <= maxNpcs; attempt++)
+            map.spawnMonsters();
+
+        LOG.info("Map populated with {} actors", map.getAllActors().size());
+    }
+
+    private void placeLights(MapArea map) {
+        if (lights <= 0)
+            return;
+
+        // from random numbers of their own, so the game plays out the same with or without lights
+        RNG rng = GameLoader.getRandom(seed + games);
+        LightingEngine lighting = map.lighting();
+        for (int attempt = 0; attempt < lights * 20 && lighting.getStaticLightCount() < lights; attempt++) {
+            int x = rng.nextInt(map.width());
+            int y = rng.nextInt(map.height());
+            if (map.getTileAt(x, y).canPass())
+                lighting.addStaticLight(x, y, BRAZIER_RADIUS, BRAZIER_INTENSITY);
+        }
+
+        for (Actor actor : map.getAllActors()) {
+            if (!Player.isPlayer(actor))
+                lighting.carryLight(actor, TORCH_RADIUS, TORCH_INTENSITY);
+        }
+        LOG.info("Map lit with {}", lighting);
+    }
+
+    private void updateFieldOfView() {
+        MapArea map = game.getCurrentMapArea();
+        Rectangle area = map.getVisibleAreaInTiles(VIEW_WIDTH, VIEW_HEIGHT, game.getCenterScreenPosition());
+        fieldOfView.calculate(map, area, game.getCenterScreenPosition(), game.getPlayer().getVisionRadius());
+    }
+}
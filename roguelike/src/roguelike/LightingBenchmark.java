@@ -0,0 +1,116 @@
+package roguelike;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import roguelike.maps.LightSource;
+import roguelike.maps.LightingEngine;
+import roguelike.maps.MapArea;
+import squidpony.squidmath.RNG;
+
+/**
+ * Times {@link LightingEngine} on a generated dungeon: braziers are scattered over the floor, then every round each
+ * torch takes a random step and the light is brought up to date. The time each update takes and how many tiles it sums
+ * again are printed. At the end, the light on every tile is checked against a second copy of the map lit from scratch
+ * with the lights where they ended up, so moving them around mustn't have left any trace.
+ *
+ * Usage: LightingBenchmark [--lights n] [--torches n] [--rounds n] [--seed n]
+ */
+public class LightingBenchmark {
+    private static final int BRAZIER_RADIUS = 6;
+    private static final float BRAZIER_INTENSITY = 0.8f;
+    private static final int TORCH_RADIUS = 4;
+    private static final float TORCH_INTENSITY = 0.6f;
+
+    /** The furthest the light on a tile may be from the copy lit from scratch */
+    private static final float TOLERANCE = 1e-4f;
+
+    public static void main(String... args) {
+        System.setProperty("java.awt.headless", "true");
+
+        int lights = 150;
+        int torches = 40;
+        int rounds = 500;
+        long seed = 1;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+            case "--lights":
+                lights = Integer.parseInt(args[i + 1]);
+                break;
+            case "--torches":
+                torches = Integer.parseInt(args[i + 1]);
+                break;
+            case "--rounds":
+                rounds = Integer.parseInt(args[i + 1]);
+                break;
+            case "--seed":
+                seed = Long.parseLong(args[i + 1]);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        MapArea map = GameLoader.newGame(seed).getCurrentMapArea();
+        LightingEngine lighting = map.lighting();
+        RNG rng = new RNG(seed);
+
+        List<LightSource> braziers = new ArrayList<>();
+        while (braziers.size() < lights) {
+            int[] tile = randomFloor(map, rng);
+            braziers.add(lighting.addStaticLight(tile[0], tile[1], BRAZIER_RADIUS, BRAZIER_INTENSITY));
+        }
+        List<LightSource> carried = new ArrayList<>();
+        while (carried.size() < torches) {
+            int[] tile = randomFloor(map, rng);
+            carried.add(lighting.addDynamicLight(tile[0], tile[1], TORCH_RADIUS, TORCH_INTENSITY));
+        }
+
+        long start = System.nanoTime();
+        lighting.getVersion();
+        long firstNanos = System.nanoTime() - start;
+        long firstTiles = lighting.getTilesSummed();
+
+        for (int round = 0; round < rounds; round++) {
+            for (LightSource torch : carried) {
+                int x = torch.getX() + rng.between(-1, 2);
+                int y = torch.getY() + rng.between(-1, 2);
+                if (map.isWithinBounds(x, y) && map.getTileAt(x, y).canPass())
+                    lighting.moveLight(torch, x, y);
+            }
+            lighting.getVersion();
+        }
+
+        long updates = lighting.getFlushes() - 1;
+        System.out.printf("%d braziers, %d torches on a %dx%d map%n", lights, torches, map.width(), map.height());
+        System.out.printf("first lighting: %.1f us, %d tiles summed%n", firstNanos / 1000.0, firstTiles);
+        System.out.printf("%d updates:     %.1f us each, %.1f tiles summed each (the map has %d per layer)%n", updates,
+                (lighting.getFlushNanos() - firstNanos) / 1000.0 / updates, (lighting.getTilesSummed() - firstTiles) / (double) updates,
+                map.width() * map.height());
+
+        MapArea reference = GameLoader.newGame(seed).getCurrentMapArea();
+        for (LightSource brazier : braziers)
+            reference.lighting().addStaticLight(brazier.getX(), brazier.getY(), BRAZIER_RADIUS, BRAZIER_INTENSITY);
+        for (LightSource torch : carried)
+            reference.lighting().addDynamicLight(torch.getX(), torch.getY(), TORCH_RADIUS, TORCH_INTENSITY);
+
+        for (int x = 0; x < map.width(); x++) {
+            for (int y = 0; y < map.height(); y++) {
+                float expected = reference.lighting().getLight(x, y);
+                float actual = lighting.getLight(x, y);
+                if (Math.abs(expected - actual) > TOLERANCE)
+                    throw new IllegalStateException("light at " + x + "," + y + " is " + actual + ", lit from scratch " + expected);
+            }
+        }
+        System.out.println("light matches the map lit from scratch");
+    }
+
+    private static int[] randomFloor(MapArea map, RNG rng) {
+        while (true) {
+            int x = rng.nextInt(map.width());
+            int y = rng.nextInt(map.height());
+            if (map.getTileAt(x, y).canPass())
+                return new int[] { x, y };
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package roguelike;
 
+import java.io.File;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -8,7 +10,14 @@ import roguelike.ui.MainWindow;
 public class Main {
     private static final Logger LOG = LogManager.getLogger(Main.class);
 
+    /**
+     * @param args
+     *            --record file to record each new game for playing back with HeadlessRunner --replay
+     */
     public static void main(String... args) {
+        if (args.length >= 2 && "--record".equals(args[0]))
+            GameLoader.setRecordingFile(new File(args[1]));
+
         try {
             LOG.info("Starting game session.");
             for (javax.swing.UIManager.LookAndFeelInfo info : javax.swing.UIManager.getInstalledLookAndFeels()) {
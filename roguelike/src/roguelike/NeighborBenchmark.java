@@ -0,0 +1,143 @@
+package roguelike;
+
+import java.awt.Point;
+import java.lang.management.ManagementFactory;
+import java.util.function.IntConsumer;
+
+import roguelike.maps.MapArea;
+import roguelike.maps.MapHelpers;
+
+/**
+ * Compares the ways of visiting a tile's neighbors in {@link MapHelpers} on generated dungeons: the old
+ * {@link MapHelpers#getNeighbors(MapArea, int, int, int)}, which builds a list of Points, against
+ * {@link MapHelpers#getNeighborIndex(int, int, int, int, int)} and
+ * {@link MapHelpers#forEachNeighbor(int, int, int, boolean, IntConsumer)}. Each way counts the walkable neighbors of
+ * every tile, the counts are checked against each other, and the time and bytes allocated per tile are printed.
+ *
+ * Usage: NeighborBenchmark [--maps n] [--rounds n] [--seed n]
+ */
+public class NeighborBenchmark {
+    private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private MapArea map;
+    private boolean[] walkable;
+    private int count;
+
+    /** Kept, so visiting allocates nothing */
+    private final IntConsumer countWalkable = neighbor -> {
+        if (walkable[neighbor])
+            count++;
+    };
+
+    public static void main(String... args) {
+        System.setProperty("java.awt.headless", "true");
+
+        int maps = 5;
+        int rounds = 20;
+        long seed = 1;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+            case "--maps":
+                maps = Integer.parseInt(args[i + 1]);
+                break;
+            case "--rounds":
+                rounds = Integer.parseInt(args[i + 1]);
+                break;
+            case "--seed":
+                seed = Long.parseLong(args[i + 1]);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        NeighborBenchmark benchmark = new NeighborBenchmark();
+        long[] nanos = new long[3];
+        long[] bytes = new long[3];
+        long tiles = 0;
+        for (int m = 0; m < maps; m++) {
+            benchmark.setMap(GameLoader.newGame(seed + m).getCurrentMapArea());
+
+            long[] expected = benchmark.countAll(0);
+            for (int way = 1; way < 3; way++) {
+                if (expected[0] != benchmark.countAll(way)[0])
+                    throw new IllegalStateException("neighbor counts differ on map " + m + " for " + name(way));
+            }
+
+            // the first rounds only warm up
+            for (int round = 0; round < rounds * 2; round++) {
+                for (int way = 0; way < 3; way++) {
+                    long[] result = benchmark.countAll(way);
+                    if (round >= rounds) {
+                        nanos[way] += result[1];
+                        bytes[way] += result[2];
+                    }
+                }
+            }
+            tiles += (long) rounds * benchmark.map.width() * benchmark.map.height();
+        }
+
+        System.out.printf("%d maps, %d rounds each; neighbor counts match%n", maps, rounds);
+        for (int way = 0; way < 3; way++)
+            System.out.printf("%-16s %6.1f ns per tile, %6.1f bytes allocated per tile%n", name(way), nanos[way] / (double) tiles,
+                    bytes[way] / (double) tiles);
+    }
+
+    private static String name(int way) {
+        switch (way) {
+        case 0:
+            return "getNeighbors";
+        case 1:
+            return "getNeighborIndex";
+        default:
+            return "forEachNeighbor";
+        }
+    }
+
+    private void setMap(MapArea map) {
+        this.map = map;
+        walkable = new boolean[map.width() * map.height()];
+        for (int x = 0; x < map.width(); x++) {
+            for (int y = 0; y < map.height(); y++)
+                walkable[x + y * map.width()] = MapHelpers.isWalkable(map.getTileAt(x, y));
+        }
+    }
+
+    /**
+     * Counts the walkable neighbors of every tile one way.
+     *
+     * @return The count, the nanoseconds it took and the bytes allocated
+     */
+    private long[] countAll(int way) {
+        int width = map.width();
+        int height = map.height();
+        long thread = Thread.currentThread().getId();
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+
+        count = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (way == 0) {
+                    for (Point point : MapHelpers.getNeighbors(map, x, y, 1)) {
+                        if (walkable[point.x + point.y * width])
+                            count++;
+                    }
+                }
+                else if (way == 1) {
+                    for (int n = 0; n < MapHelpers.DIRECTIONS; n++) {
+                        int neighbor = MapHelpers.getNeighborIndex(width, height, x, y, n);
+                        if (neighbor >= 0 && walkable[neighbor])
+                            count++;
+                    }
+                }
+                else {
+                    MapHelpers.forEachNeighbor(width, height, x + y * width, true, countWalkable);
+                }
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        return new long[] { count, elapsed, threads.getThreadAllocatedBytes(thread) - allocated };
+    }
+}
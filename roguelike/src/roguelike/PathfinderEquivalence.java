@@ -0,0 +1,171 @@
+package roguelike;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import roguelike.actors.Actor;
+import roguelike.maps.AStarPathfinder;
+import roguelike.maps.JumpPointPathfinder;
+import roguelike.maps.MapArea;
+import roguelike.maps.MapHelpers;
+import roguelike.maps.Path;
+import squidpony.squidmath.RNG;
+
+/**
+ * Checks {@link JumpPointPathfinder} against {@link AStarPathfinder} on generated dungeons, with every actor taken off
+ * the map, since Jump Point Search treats them as walls where A* only makes them costly. For random pairs of passable
+ * tiles that a breadth-first search can join, both must find a path that is walkable step by step, the Jump Point one
+ * as short as the breadth-first search says it can be. Where there's no way through, Jump Point Search must find
+ * nothing; A* isn't asked, since it would cross a wall at a cost rather than give up, and PathfindingService turns such
+ * searches away before either runs. The time each search takes is printed.
+ *
+ * Usage: PathfinderEquivalence [--maps n] [--pairs n] [--seed n]
+ */
+public class PathfinderEquivalence {
+    /** Deep enough that neither search gives up early on any map */
+    private static final int MAX_SEARCH_DISTANCE = 10000;
+
+    public static void main(String... args) {
+        System.setProperty("java.awt.headless", "true");
+
+        int maps = 5;
+        int pairs = 500;
+        long seed = 1;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+            case "--maps":
+                maps = Integer.parseInt(args[i + 1]);
+                break;
+            case "--pairs":
+                pairs = Integer.parseInt(args[i + 1]);
+                break;
+            case "--seed":
+                seed = Long.parseLong(args[i + 1]);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        long aStarNanos = 0;
+        long jumpPointNanos = 0;
+        long aStarSteps = 0;
+        long jumpPointSteps = 0;
+        long aStarExpanded = 0;
+        long jumpPointExpanded = 0;
+        int found = 0;
+        int unreachable = 0;
+
+        for (int m = 0; m < maps; m++) {
+            MapArea map = GameLoader.newGame(seed + m).getCurrentMapArea();
+            for (Actor actor : new ArrayList<>(map.getAllActors()))
+                map.removeActor(actor);
+
+            AStarPathfinder aStar = new AStarPathfinder(map);
+            JumpPointPathfinder jumpPoint = new JumpPointPathfinder(map.width(), map.height());
+            int[] distances = new int[map.width() * map.height()];
+            int[] queue = new int[distances.length];
+            RNG rng = new RNG(seed + m);
+
+            for (int p = 0; p < pairs; p++) {
+                int sx, sy, tx, ty;
+                do {
+                    sx = rng.nextInt(map.width());
+                    sy = rng.nextInt(map.height());
+                    tx = rng.nextInt(map.width());
+                    ty = rng.nextInt(map.height());
+                } while (!map.getTileAt(sx, sy).canPass() || !map.getTileAt(tx, ty).canPass() || (sx == tx && sy == ty));
+
+                String pair = String.format("map %d, %d,%d to %d,%d", m, sx, sy, tx, ty);
+                int shortest = distance(map, sx, sy, tx, ty, distances, queue);
+                if (shortest < 0) {
+                    if (jumpPoint.findPath(map, sx, sy, tx, ty, MAX_SEARCH_DISTANCE) != null)
+                        throw new IllegalStateException("Jump Point Search found a path where there is none: " + pair);
+                    unreachable++;
+                    continue;
+                }
+
+                long start = System.nanoTime();
+                Path aStarPath = aStar.findPath(map, sx, sy, tx, ty, MAX_SEARCH_DISTANCE);
+                if (aStarPath != null)
+                    aStarPath.smooth(); // as PathfindingService does
+                aStarNanos += System.nanoTime() - start;
+                aStarExpanded += aStar.getNodesExpanded();
+
+                start = System.nanoTime();
+                Path jumpPointPath = jumpPoint.findPath(map, sx, sy, tx, ty, MAX_SEARCH_DISTANCE);
+                jumpPointNanos += System.nanoTime() - start;
+                jumpPointExpanded += jumpPoint.getNodesExpanded();
+
+                if (aStarPath == null || jumpPointPath == null)
+                    throw new IllegalStateException((aStarPath == null ? "A*" : "Jump Point Search") + " found no path: " + pair);
+
+                checkWalkable(map, jumpPointPath, sx, sy, tx, ty, pair);
+                checkWalkable(map, aStarPath, sx, sy, tx, ty, pair);
+                if (jumpPointPath.getLength() - 1 != shortest)
+                    throw new IllegalStateException("Jump Point path takes " + (jumpPointPath.getLength() - 1) + " steps, not "
+                            + shortest + ": " + pair);
+
+                found++;
+                aStarSteps += aStarPath.getLength() - 1;
+                jumpPointSteps += jumpPointPath.getLength() - 1;
+            }
+        }
+
+        System.out.printf("%d maps, %d pairs (%d unreachable); paths agree%n", maps, found + unreachable, unreachable);
+        System.out.printf("%-18s %8.1f us per search, %7.1f nodes expanded, %6.2f steps per path%n", "A*",
+                aStarNanos / 1000.0 / found, aStarExpanded / (double) found, aStarSteps / (double) found);
+        System.out.printf("%-18s %8.1f us per search, %7.1f nodes expanded, %6.2f steps per path%n", "Jump Point Search",
+                jumpPointNanos / 1000.0 / found, jumpPointExpanded / (double) found, jumpPointSteps / (double) found);
+    }
+
+    /**
+     * Checks that a path runs from start to target over passable tiles, one 8-way step at a time.
+     */
+    private static void checkWalkable(MapArea map, Path path, int sx, int sy, int tx, int ty, String pair) {
+        int last = path.getLength() - 1;
+        if (path.getX(0) != sx || path.getY(0) != sy || path.getX(last) != tx || path.getY(last) != ty)
+            throw new IllegalStateException("path doesn't join the ends: " + pair);
+
+        for (int i = 1; i <= last; i++) {
+            int x = path.getX(i);
+            int y = path.getY(i);
+            int dx = Math.abs(x - path.getX(i - 1));
+            int dy = Math.abs(y - path.getY(i - 1));
+            if (Math.max(dx, dy) != 1 || !map.getTileAt(x, y).canPass())
+                throw new IllegalStateException("step " + i + " to " + x + "," + y + " can't be walked: " + pair);
+        }
+    }
+
+    /**
+     * Breadth-first search over passable tiles.
+     *
+     * @return The fewest 8-way steps between the tiles, or -1 if there is no way through
+     */
+    private static int distance(MapArea map, int sx, int sy, int tx, int ty, int[] distances, int[] queue) {
+        int width = map.width();
+        Arrays.fill(distances, -1);
+
+        int head = 0;
+        int tail = 0;
+        distances[sx + sy * width] = 0;
+        queue[tail++] = sx + sy * width;
+        while (head < tail) {
+            int current = queue[head++];
+            if (current == tx + ty * width)
+                return distances[current];
+
+            int cx = current % width;
+            int cy = current / width;
+            for (int n = 0; n < MapHelpers.DIRECTIONS; n++) {
+                int neighbor = MapHelpers.getNeighborIndex(width, map.height(), cx, cy, n);
+                if (neighbor >= 0 && distances[neighbor] == -1
+                        && map.getTileAt(cx + MapHelpers.neighborX(n), cy + MapHelpers.neighborY(n)).canPass()) {
+                    distances[neighbor] = distances[current] + 1;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,117 @@
+package roguelike;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import roguelike.ui.InputCommand;
+import roguelike.ui.InputRecorder;
+
+/**
+ * Writes a game's seed and the player's input to a file as it is played, along with a checksum of the game's state at
+ * the end of each of the player's turns, so the game can be played back exactly by {@link Replay}.
+ * 
+ * The file has one entry per line:
+ * 
+ * <pre>
+ * seed 1234
+ * command UP
+ * key 65 97          (a key read for its own sake, as its key code and character)
+ * cursor 10 12 false (the position a cursor was closed at, and whether it was canceled)
+ * dialog CONFIRM     (the command a dialog gave, or cancel)
+ * turn -8102731      (the checksum after the player's turn)
+ * </pre>
+ * 
+ * Lines are flushed at the end of each turn, so a game that is closed without quitting keeps all but its last turn.
+ */
+public class Recording implements InputRecorder, Closeable {
+    private static final Logger LOG = LogManager.getLogger(Recording.class);
+
+    private final BufferedWriter writer;
+    private int turns;
+
+    /**
+     * Starts a new recording, replacing the file if it exists.
+     * 
+     * @param file
+     * @param seed
+     *            The seed the game was created with
+     * @throws IOException
+     */
+    public Recording(File file, long seed) throws IOException {
+        this.writer = new BufferedWriter(new FileWriter(file));
+        write("seed " + seed);
+    }
+
+    /**
+     * Starts recording the given game's input and turns.
+     * 
+     * @param game
+     */
+    public void attach(Game game) {
+        game.setPlayerTurnListener(() -> recordTurn(game.checksum()));
+    }
+
+    public int getTurns() {
+        return turns;
+    }
+
+    @Override
+    public void recordCommand(InputCommand command) {
+        if (command == InputCommand.FROM_KEYDATA)
+            write("key " + command.getKeyData() + " " + (int) command.getKeyChar());
+        else
+            write("command " + command.name());
+    }
+
+    @Override
+    public void recordCursorResult(CursorResult result) {
+        write("cursor " + result.position().x + " " + result.position().y + " " + result.isCanceled());
+    }
+
+    @Override
+    public void recordDialogResult(DialogResult<?> result) {
+        if (result.isCanceled())
+            write("dialog cancel");
+        else if (result.item() instanceof InputCommand)
+            write("dialog " + ((InputCommand) result.item()).name());
+        else
+            write("dialog unsupported " + result.item());
+    }
+
+    public void recordTurn(long checksum) {
+        turns++;
+        write("turn " + checksum);
+        try {
+            writer.flush();
+        }
+        catch (IOException e) {
+            LOG.warn("Couldn't write recording: {}", e.toString());
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        }
+        catch (IOException e) {
+            LOG.warn("Couldn't close recording: {}", e.toString());
+        }
+    }
+
+    private void write(String line) {
+        try {
+            writer.write(line);
+            writer.newLine();
+        }
+        catch (IOException e) {
+            LOG.warn("Couldn't write recording: {}", e.toString());
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package roguelike;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import roguelike.ui.InputCommand;
+import roguelike.ui.InputSource;
+import roguelike.util.Coordinate;
+
+/**
+ * Plays back a file written by {@link Recording}. The recorded input is fed to the game in order, cursors and dialogs
+ * are answered with the results they gave at the time, and the state of the game is checked against the recorded
+ * checksum at the end of each of the player's turns.
+ * 
+ * Playback stops being trustworthy at the first turn whose checksum doesn't match, or when the game asks for input of
+ * a different kind than was recorded next; either makes the replay {@link #isFinished() finished}.
+ */
+public class Replay implements InputSource {
+    private static final Logger LOG = LogManager.getLogger(Replay.class);
+
+    private final long seed;
+    private final List<String[]> input;
+    private final List<Long> checksums;
+
+    private int nextInput;
+    private int turns;
+    private String problem;
+
+    private Replay(long seed, List<String[]> input, List<Long> checksums) {
+        this.seed = seed;
+        this.input = input;
+        this.checksums = checksums;
+    }
+
+    /**
+     * @param file
+     * @return
+     * @throws IOException
+     *             If the file can't be read or isn't a recording
+     */
+    public static Replay load(File file) throws IOException {
+        Long seed = null;
+        List<String[]> input = new ArrayList<String[]>();
+        List<Long> checksums = new ArrayList<Long>();
+
+        for (String line : Files.readAllLines(file.toPath())) {
+            if (line.trim().isEmpty())
+                continue;
+
+            String[] entry = line.trim().split(" ");
+            switch (entry[0]) {
+            case "seed":
+                seed = Long.parseLong(entry[1]);
+                break;
+            case "turn":
+                checksums.add(Long.parseLong(entry[1]));
+                break;
+            case "command":
+                if (InputCommand.valueOf(entry[1]) == InputCommand.INVENTORY)
+                    throw new IOException("The inventory needs a screen, so games that open it can't be played back");
+                input.add(entry);
+                break;
+            case "key":
+            case "cursor":
+            case "dialog":
+                input.add(entry);
+                break;
+            default:
+                throw new IOException("Not a recording, unknown entry: " + line);
+            }
+        }
+
+        if (seed == null)
+            throw new IOException("Not a recording, no seed: " + file);
+
+        return new Replay(seed, input, checksums);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return How many turns the recording covers
+     */
+    public int getRecordedTurns() {
+        return checksums.size();
+    }
+
+    /**
+     * @return How many turns have been checked so far
+     */
+    public int getTurns() {
+        return turns;
+    }
+
+    /**
+     * @return What went wrong playing back, or null if nothing has
+     */
+    public String getProblem() {
+        return problem;
+    }
+
+    public boolean isFinished() {
+        return problem != null || nextInput >= input.size();
+    }
+
+    /**
+     * Starts checking the given game's state at the end of each of the player's turns.
+     * 
+     * @param game
+     */
+    public void attach(Game game) {
+        game.setPlayerTurnListener(() -> verifyTurn(game.checksum()));
+    }
+
+    @Override
+    public InputCommand nextCommand() {
+        String[] entry = next("command", "key");
+        if (entry == null)
+            return null;
+
+        if (entry[0].equals("key"))
+            return InputCommand.fromKey(Integer.parseInt(entry[1]), (char) Integer.parseInt(entry[2]));
+
+        return InputCommand.valueOf(entry[1]);
+    }
+
+    @Override
+    public CursorResult nextCursorResult() {
+        String[] entry = next("cursor");
+        if (entry == null)
+            return new CursorResult(Game.current().getPlayer().getPosition(), true);
+
+        Coordinate position = new Coordinate(Integer.parseInt(entry[1]), Integer.parseInt(entry[2]));
+        return new CursorResult(position, Boolean.parseBoolean(entry[3]));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> DialogResult<T> nextDialogResult() {
+        String[] entry = next("dialog");
+        if (entry == null || entry[1].equals("cancel"))
+            return DialogResult.cancel();
+
+        if (entry[1].equals("unsupported")) {
+            fail("Can't play back the result of dialog " + nextInput);
+            return DialogResult.cancel();
+        }
+
+        // only dialogs that give commands are recorded with their result
+        return (DialogResult<T>) DialogResult.ok(InputCommand.valueOf(entry[1]));
+    }
+
+    private void verifyTurn(long checksum) {
+        if (problem == null && turns < checksums.size() && checksums.get(turns) != checksum)
+            fail(String.format("Turn %d doesn't match the recording, checksum %d instead of %d", turns + 1, checksum, checksums.get(turns)));
+
+        turns++;
+    }
+
+    /**
+     * @return The next recorded input if it's one of the given kinds, else null
+     */
+    private String[] next(String... kinds) {
+        if (isFinished())
+            return null;
+
+        String[] entry = input.get(nextInput);
+        for (String kind : kinds) {
+            if (entry[0].equals(kind)) {
+                nextInput++;
+                return entry;
+            }
+        }
+
+        fail(String.format("Game asked for a %s after turn %d, but a %s was recorded", kinds[0], turns, entry[0]));
+        return null;
+    }
+
+    private void fail(String problem) {
+        LOG.error(problem);
+        this.problem = problem;
+    }
+}
@@ -1,6 +1,9 @@
 package roguelike.actions;
 
 import roguelike.actors.Actor;
+import roguelike.util.Metrics;
+import roguelike.util.Metrics.Counter;
+import roguelike.util.Metrics.Phase;
 
 public abstract class Action {
 
@@ -20,14 +23,27 @@ public abstract class Action {
 		if (checkForIncomplete())
 			return ActionResult.incomplete();
 
+		long start = Metrics.start();
 		ActionResult result = onPerform();
 
 		if (result.success && this.usesEnergy)
 			actor.energy().act();
 
+		Metrics.stop(Phase.ACTION, start);
+		Metrics.count(Counter.ACTIONS_PERFORMED);
 		return result;
 	}
 
+	/**
+	 * Checks that an action chosen ahead of time still holds now that it is about to be performed, for instance that
+	 * the tile being walked to hasn't been taken in the meantime. If not, the actor chooses again.
+	 * 
+	 * @return
+	 */
+	public boolean isValid() {
+		return true;
+	}
+
 	protected boolean checkForIncomplete() {
 		return false;
 	}
@@ -0,0 +1,53 @@
+package roguelike.actions;
+
+import roguelike.actors.Actor;
+import roguelike.maps.MapArea;
+import squidpony.squidgrid.util.DirectionIntercardinal;
+
+/**
+ * An actor's most common actions, reused from turn to turn so that deciding what to do doesn't allocate. An actor
+ * only has one action on the go at a time: a walk or attack got from here is readied afresh the next time the actor
+ * asks for one, so it mustn't be held on to past the actor's next decision. The wait action never changes and can be
+ * kept.
+ *
+ * Each actor has its own, so actors deciding on different threads (see roguelike.actors.ParallelDecisions) never
+ * share one.
+ */
+public class ActionPool {
+	private final Actor actor;
+	private final WaitAction waitAction;
+	private WalkAction walkAction;
+	private AttackAction attackAction;
+
+	public ActionPool(Actor actor) {
+		this.actor = actor;
+		this.waitAction = new WaitAction(actor);
+	}
+
+	public WaitAction waitAction() {
+		return waitAction;
+	}
+
+	/**
+	 * @param mapArea
+	 * @param direction
+	 * @return A walk, which opens doors in the way
+	 */
+	public WalkAction walk(MapArea mapArea, DirectionIntercardinal direction) {
+		if (walkAction == null)
+			walkAction = new WalkAction(actor, mapArea, direction);
+		else
+			walkAction.set(mapArea, direction, true);
+
+		return walkAction;
+	}
+
+	public AttackAction attack(Actor target) {
+		if (attackAction == null)
+			attackAction = new AttackAction(actor, target);
+		else
+			attackAction.set(target);
+
+		return attackAction;
+	}
+}
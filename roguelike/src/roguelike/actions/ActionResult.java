@@ -1,10 +1,25 @@
 package roguelike.actions;
 
+import roguelike.actors.Actor;
+
+/**
+ * The outcome of performing an action. The plain results are shared, so {@link #setMessage(String)} returns a copy
+ * carrying the message rather than changing the result it is called on; always use the result it returns.
+ */
 public class ActionResult {
+	private static final ActionResult SUCCESS = new ActionResult(true);
+	private static final ActionResult FAILURE = new ActionResult(false);
+	private static final ActionResult INCOMPLETE = new ActionResult(false, false, null);
+
 	final boolean success;
 	final boolean completed;
 	final Action alternateAction;
-	String message;
+	private String message;
+
+	/* for a message built only when it is asked for; see setMessage(Actor, String, Object...) */
+	private Actor messageActor;
+	private String messageAction;
+	private Object[] messageParams;
 
 	private ActionResult(boolean success) {
 		this(success, true, null);
@@ -17,11 +32,11 @@ public class ActionResult {
 	}
 
 	public static ActionResult success() {
-		return new ActionResult(true);
+		return SUCCESS;
 	}
 
 	public static ActionResult failure() {
-		return new ActionResult(false);
+		return FAILURE;
 	}
 
 	public static ActionResult alternate(Action action) {
@@ -29,7 +44,7 @@ public class ActionResult {
 	}
 
 	public static ActionResult incomplete() {
-		return new ActionResult(false, false, null);
+		return INCOMPLETE;
 	}
 
 	public boolean isSuccess() {
@@ -44,12 +59,50 @@ public class ActionResult {
 		return alternateAction;
 	}
 
+	/**
+	 * @return True if there is a message, without building it
+	 */
+	public boolean hasMessage() {
+		return message != null || messageAction != null;
+	}
+
 	public String getMessage() {
+		if (message == null && messageAction != null) {
+			message = messageActor.doAction(messageAction, messageParams);
+			messageActor = null;
+			messageAction = null;
+			messageParams = null;
+		}
 		return message;
 	}
 
 	public ActionResult setMessage(String message) {
-		this.message = message;
+		ActionResult result = withMessage();
+		result.message = message;
+		return result;
+	}
+
+	/**
+	 * Sets a message describing what an actor did, which is only put together (see {@link Actor#doAction}) if it is
+	 * displayed.
+	 *
+	 * @param actor
+	 * @param action
+	 * @param params
+	 * @return The result with the message
+	 */
+	public ActionResult setMessage(Actor actor, String action, Object... params) {
+		ActionResult result = withMessage();
+		result.messageActor = actor;
+		result.messageAction = action;
+		result.messageParams = params;
+		return result;
+	}
+
+	private ActionResult withMessage() {
+		if (this == SUCCESS || this == FAILURE || this == INCOMPLETE)
+			return new ActionResult(success, completed, alternateAction);
+
 		return this;
 	}
 
@@ -3,17 +3,39 @@ package roguelike.actions;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import roguelike.Game;
 import roguelike.actions.combat.Attack;
 import roguelike.actors.Actor;
 
 public class AttackAction extends Action {
     private static final Logger LOG = LogManager.getLogger(AttackAction.class);
 
+	/** How far away the sound of a fight carries */
+	private static final int MELEE_NOISE = 8;
+
 	private Actor target;
+	private int targetX;
+	private int targetY;
 
 	public AttackAction(Actor actor, Actor target) {
 		super(actor);
+		set(target);
+	}
+
+	/** Readies a pooled instance for another attack; see {@link ActionPool} */
+	void set(Actor target) {
 		this.target = target;
+
+		if (target != null) {
+			this.targetX = target.getPosition().x;
+			this.targetY = target.getPosition().y;
+		}
+	}
+
+	@Override
+	public boolean isValid() {
+		// the target has to be where it was when the attack was chosen
+		return target == null || (target.isAlive() && target.getPosition().x == targetX && target.getPosition().y == targetY);
 	}
 
 	@Override
@@ -32,12 +54,13 @@ public class AttackAction extends Action {
 			return ActionResult.failure().setMessage("Actor " + actor.getName() + " is dead!");
 		}
 		if (!target.isAlive()) {
-			return ActionResult.alternate(new WaitAction(actor)).setMessage(">>> onPerform() >>> Target " + target.getName() + " is dead!");
+			return ActionResult.alternate(actor.actions().waitAction()).setMessage(">>> onPerform() >>> Target " + target.getName() + " is dead!");
 		}
 
 		Attack attack = actor.combatHandler().getAttack(target);
 		if (attack != null) {
 			attack.perform(this, target);
+			Game.current().makeNoise(target.getPosition(), MELEE_NOISE);
 			return ActionResult.success();
 		}
 		else {
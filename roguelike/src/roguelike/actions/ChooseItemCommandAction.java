@@ -22,13 +22,13 @@ public class ChooseItemCommandAction extends DialogInputRequiredAction<InputComm
 
 	@Override
 	protected ActionResult onPerform() {
-		DialogResult<InputCommand> choice = dialog.result();
+		DialogResult<InputCommand> choice = result;
 		if (choice != null) {
 
-			ActionResult result;
+			ActionResult actionResult;
 			if (choice.isCanceled()) {
 
-				result = ActionResult.alternate(new InventoryAction(actor));
+				actionResult = ActionResult.alternate(new InventoryAction(actor));
 
 			} else {
 
@@ -38,23 +38,23 @@ public class ChooseItemCommandAction extends DialogInputRequiredAction<InputComm
 					case EQUIP:
 						if (selectedItem.type() == ItemType.RANGED_WEAPON) {
 							ItemSlot.RANGED.equipItem(actor, selectedItem);
-							result = ActionResult.success().setMessage(actor.doAction("equips the %s", selectedItem.name()));
+							actionResult = ActionResult.success().setMessage(actor, "equips the %s", selectedItem.name());
 						} else {
 							ItemSlot.RIGHT_HAND.equipItem(actor, selectedItem);
-							result = ActionResult.success().setMessage(actor.doAction("equips the %s", selectedItem.name()));
+							actionResult = ActionResult.success().setMessage(actor, "equips the %s", selectedItem.name());
 						}
 						break;
 
 					default:
-						result = ActionResult.failure().setMessage("No command selected");
+						actionResult = ActionResult.failure().setMessage("No command selected");
 					}
 
 				} else {
-					result = ActionResult.failure().setMessage("No command selected");
+					actionResult = ActionResult.failure().setMessage("No command selected");
 
 				}
 			}
-			return result;
+			return actionResult;
 		}
 		return ActionResult.incomplete();
 	}
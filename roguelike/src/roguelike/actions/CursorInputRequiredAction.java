@@ -5,6 +5,7 @@ import roguelike.CursorResult;
 import roguelike.actors.Actor;
 import roguelike.screens.CursorScreen;
 import roguelike.screens.Screen;
+import roguelike.ui.InputManager;
 
 public abstract class CursorInputRequiredAction<T> extends Action {
 
@@ -24,7 +25,29 @@ public abstract class CursorInputRequiredAction<T> extends Action {
 	}
 
 	protected void showCursor(Cursor cursor) {
+		if (useRecordedResult())
+			return;
+
 		Screen currentScreen = Screen.currentScreen();
-		currentScreen.setNextScreen(new CursorScreen(currentScreen.terminal(), cursor, r -> result = r));
+		currentScreen.setNextScreen(new CursorScreen(currentScreen.terminal(), cursor, this::setCursorResult));
+	}
+
+	/**
+	 * When playing back a recording the cursor isn't shown; the result it gave at the time is used instead.
+	 * 
+	 * @return True if there was a recorded result
+	 */
+	protected final boolean useRecordedResult() {
+		CursorResult recorded = InputManager.openCursor();
+		if (recorded == null)
+			return false;
+
+		result = recorded;
+		return true;
+	}
+
+	protected final void setCursorResult(CursorResult result) {
+		this.result = result;
+		InputManager.cursorClosed(result);
 	}
 }
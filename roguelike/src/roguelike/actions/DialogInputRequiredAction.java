@@ -5,6 +5,7 @@ import roguelike.DialogResult;
 import roguelike.actors.Actor;
 import roguelike.screens.DialogScreen;
 import roguelike.screens.Screen;
+import roguelike.ui.InputManager;
 
 public abstract class DialogInputRequiredAction<T> extends CursorInputRequiredAction<T> {
 
@@ -23,8 +24,23 @@ public abstract class DialogInputRequiredAction<T> extends CursorInputRequiredAc
 		return super.checkForIncomplete();
 	}
 
+	/**
+	 * Shows the dialog, unless a recording is being played back, in which case the result the dialog gave at the time
+	 * is used instead.
+	 * 
+	 * @param dialog
+	 */
 	protected final void showDialog(Dialog<T> dialog) {
+		DialogResult<T> recorded = InputManager.openDialog();
+		if (recorded != null) {
+			result = recorded;
+			return;
+		}
+
 		Screen currentScreen = Screen.currentScreen();
-		currentScreen.setNextScreen(new DialogScreen<T>(currentScreen.terminal(), dialog, r -> result = r));
+		currentScreen.setNextScreen(new DialogScreen<T>(currentScreen.terminal(), dialog, r -> {
+			result = r;
+			InputManager.dialogClosed(r);
+		}));
 	}
 }
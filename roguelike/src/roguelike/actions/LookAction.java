@@ -25,9 +25,12 @@ public class LookAction extends CursorInputRequiredAction<InputCommand> {
 
 	@Override
 	protected void showCursor(Cursor cursor) {
+		if (useRecordedResult())
+			return;
+
 		Screen currentScreen = Screen.currentScreen();
 		TerminalBase screenTerm = currentScreen.terminal().getWindow(0, 0, currentScreen.getDrawableArea().width, currentScreen.getDrawableArea().height);
-		currentScreen.setNextScreen(new LookScreen(screenTerm, (LookCursor) cursor, r -> result = r));
+		currentScreen.setNextScreen(new LookScreen(screenTerm, (LookCursor) cursor, this::setCursorResult));
 	}
 
 	@Override
@@ -3,7 +3,7 @@ package roguelike.actions;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import roguelike.CursorResult;
+import roguelike.Game;
 import roguelike.actions.combat.Attack;
 import roguelike.actors.Actor;
 import roguelike.items.RangedWeapon;
@@ -21,6 +21,11 @@ import squidpony.squidgrid.util.BasicRadiusStrategy;
 public class RangedAttackAction extends CursorInputRequiredAction<InputCommand> {
     private static final Logger LOG = LogManager.getLogger(RangedAttackAction.class);
 
+	/** How far away a shot can be heard */
+	private static final int GUNSHOT_NOISE = 30;
+	/** How far the flash of a shot lights up, for the rest of the turn */
+	private static final int MUZZLE_FLASH_RADIUS = 4;
+
 	private MapArea mapArea;
 	private Actor target;
 	private RangedWeapon weapon;
@@ -35,10 +40,26 @@ public class RangedAttackAction extends CursorInputRequiredAction<InputCommand>
 		showCursor(cursor);
 	}
 
+	/**
+	 * Attacks a target chosen beforehand, without showing a cursor.
+	 * 
+	 * @param actor
+	 * @param mapArea
+	 * @param weapon
+	 * @param target
+	 */
+	public RangedAttackAction(Actor actor, MapArea mapArea, RangedWeapon weapon, Actor target) {
+		super(actor);
+		this.mapArea = mapArea;
+		this.weapon = weapon;
+		this.target = target;
+	}
+
 	@Override
 	protected ActionResult onPerform() {
+		if (cursor == null)
+			return attackTarget();
 
-		CursorResult result = cursor.result();
 		if (result.isCanceled())
 			return ActionResult.failure().setMessage("Canceled");
 
@@ -60,12 +81,16 @@ public class RangedAttackAction extends CursorInputRequiredAction<InputCommand>
 			return ActionResult.failure().setMessage("Actor " + actor.getName() + " is dead!");
 		}
 		if (!target.isAlive()) {
-			return ActionResult.alternate(new WaitAction(actor)).setMessage(">>> onPerform() >>> Target " + target.getName() + " is dead!");
+			return ActionResult.alternate(actor.actions().waitAction()).setMessage(">>> onPerform() >>> Target " + target.getName() + " is dead!");
 		}
 
 		Attack attack = weapon.getAttack();
 		if (attack != null) {
 			attack.perform(this, target);
+			// black powder carries a long way; whoever is hit hears it too
+			Game.current().makeNoise(actor.getPosition(), GUNSHOT_NOISE);
+			Game.current().makeNoise(target.getPosition(), 1);
+			mapArea.lighting().addFlash(actor.getPosition().x, actor.getPosition().y, MUZZLE_FLASH_RADIUS, 1f, 1);
 			return ActionResult.success();
 		}
 		else {
@@ -0,0 +1,38 @@
+package roguelike.actions;
+
+import roguelike.actors.Actor;
+import roguelike.maps.MapArea;
+import roguelike.util.Coordinate;
+
+/**
+ * Moves an actor straight to a tile, however far away, standing in for several turns of walking somewhere the player
+ * can't see. Used for coarsely simulated NPCs, see {@link roguelike.actors.SimulationLod}.
+ */
+public class RelocateAction extends Action {
+
+	private MapArea mapArea;
+	private Coordinate destination;
+
+	public RelocateAction(Actor actor, MapArea mapArea, Coordinate destination) {
+		super(actor);
+		this.mapArea = mapArea;
+		this.destination = destination;
+	}
+
+	@Override
+	public boolean isValid() {
+		return mapArea.getActorAt(destination.x, destination.y) == null;
+	}
+
+	@Override
+	protected ActionResult onPerform() {
+		if (!isValid() || !mapArea.canMoveTo(actor, destination))
+			return ActionResult.success();
+
+		mapArea.moveActor(actor, destination);
+		if (actor.behavior() != null)
+			actor.behavior().onRelocated();
+
+		return ActionResult.success();
+	}
+}
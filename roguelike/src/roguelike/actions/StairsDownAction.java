@@ -28,7 +28,7 @@ public class StairsDownAction extends Action {
 		if (stairs.isDown()) {
 
 			stairs.use();
-			return ActionResult.success().setMessage(actor.doAction("walks down the stairs."));
+			return ActionResult.success().setMessage(actor, "walks down the stairs.");
 		} else {
 
 			return ActionResult.failure().setMessage("No stairs down.");
@@ -28,7 +28,7 @@ public class StairsUpAction extends Action {
 		if (!stairs.isDown()) {
 
 			stairs.use();
-			return ActionResult.success().setMessage(actor.doAction("walks up the stairs."));
+			return ActionResult.success().setMessage(actor, "walks up the stairs.");
 		} else {
 
 			return ActionResult.failure().setMessage("No stairs up.");
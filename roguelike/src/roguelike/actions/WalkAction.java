@@ -23,11 +23,24 @@ public class WalkAction extends Action {
 
 	public WalkAction(Actor actor, MapArea mapArea, DirectionIntercardinal direction, boolean canOpenDoors) {
 		super(actor);
+		set(mapArea, direction, canOpenDoors);
+	}
+
+	/** Readies a pooled instance for another step; see {@link ActionPool} */
+	void set(MapArea mapArea, DirectionIntercardinal direction, boolean canOpenDoors) {
 		this.mapArea = mapArea;
 		this.direction = direction;
 		this.canOpenDoors = canOpenDoors;
 	}
 
+	@Override
+	public boolean isValid() {
+		// walking into someone turns into an attack, which wasn't what was chosen unless they were the one being chased
+		Coordinate pos = actor.getPosition();
+		Actor other = mapArea.getActorAt(pos.x + direction.deltaX, pos.y + direction.deltaY);
+		return other == null || other == actor || (actor.behavior() != null && actor.behavior().isHostileTo(other));
+	}
+
 	@Override
 	public ActionResult onPerform() {
 		if (!actor.isAlive()) {
@@ -38,25 +51,27 @@ public class WalkAction extends Action {
 		if (direction.deltaX == 0 && direction.deltaY == 0) {
 			return ActionResult.alternate(new FailAction(actor));
 		}
-		Coordinate pos = actor.getPosition().createOffsetPosition(direction);
+		int x = actor.getPosition().x + direction.deltaX;
+		int y = actor.getPosition().y + direction.deltaY;
 
-		if (mapArea.getActorAt(pos.x, pos.y) != null) {
+		Actor other = mapArea.getActorAt(x, y);
+		if (other != null) {
 			// TODO: behavior.getAttackAction() - allow player to confirm, allow
 			// npc's to attack or not depending on behavior
 
-			return ActionResult.alternate(new AttackAction(actor, mapArea.getActorAt(pos.x, pos.y)));
+			return ActionResult.alternate(actor.actions().attack(other));
 		}
 
-		if (!mapArea.canMoveTo(actor, pos)) {
-			Tile tile = mapArea.getTileAt(pos);
+		if (!mapArea.canMoveTo(actor, x, y)) {
+			Tile tile = mapArea.getTileAt(x, y);
 			if (tile != null && tile instanceof Door && canOpenDoors)
 				return ActionResult.alternate(new OpenDoorAction(actor, tile));
 
-			return ActionResult.failure().setMessage(actor.doAction("can't move there"));
+			return ActionResult.failure().setMessage(actor, "can't move there");
 		}
 
 		// we can move here
-		mapArea.moveActor(actor, pos);
+		mapArea.moveActor(actor, x, y);
 
 		ActionResult result = ActionResult.success();
 		return result;
@@ -40,8 +40,6 @@ public abstract class Attack {
 	}
 
 	public final boolean perform(Action action, Actor target) {
-		Actor attacker = action.getActor();
-		attacker.doAction(description, target.getMessageName());
 		return onPerform(action, target);
 	}
 
@@ -15,17 +15,22 @@ import org.apache.logging.log4j.Logger;
 
 import roguelike.Game;
 import roguelike.actions.Action;
+import roguelike.actions.ActionPool;
 import roguelike.actions.combat.CombatHandler;
 import roguelike.actors.behaviors.Behavior;
 import roguelike.actors.conditions.Condition;
 import roguelike.items.Equipment;
 import roguelike.items.Inventory;
+import roguelike.maps.IncrementalPathfinder;
+import roguelike.maps.LightSource;
+import roguelike.maps.LightingEngine;
 import roguelike.maps.MapArea;
 import roguelike.maps.Tile;
 import roguelike.util.ActorUtils;
 import roguelike.util.Coordinate;
 import squidpony.squidcolor.SColor;
 import squidpony.squidcolor.SColorFactory;
+import squidpony.squidmath.RNG;
 
 public abstract class Actor implements Serializable {
     private static final Logger LOG = LogManager.getLogger(Actor.class);
@@ -53,6 +58,25 @@ public abstract class Actor implements Serializable {
 	protected Stack<AttackAttempt> attackedBy;
 	protected transient SColor color;
 
+	/** The actor's own random numbers for deciding in parallel with others, see {@link ParallelDecisions} */
+	transient RNG random;
+
+	/** How much the actor was simulated on its last turn, and its state for that, see {@link SimulationLod} */
+	transient SimulationLod.Tier simulationTier;
+	transient int awakeTurns;
+	transient int coarseTurns;
+
+	/** How many turns running the actor has followed its plan for lack of time to decide, see {@link AiBudget} */
+	transient int fallbackTurns;
+
+	private transient ActionPool actions;
+
+	/** A light carried around, such as a torch, see {@link LightingEngine#carryLight(Actor, int, float)} */
+	private transient LightSource light;
+
+	/** The actor's chase, kept across changes of behavior, see {@link roguelike.maps.PathfindingService#findNextStep} */
+	private transient IncrementalPathfinder pathfinder;
+
 	public final Coordinate position;
 
 	protected Actor(char symbol, SColor color) {
@@ -113,6 +137,10 @@ public abstract class Actor implements Serializable {
 	public void addCondition(Condition condition) {
 		conditions.add(condition);
 		condition.onConditionAdded(this);
+
+		MapArea map = game != null ? game.getCurrentMapArea() : null;
+		if (map != null)
+			map.actorSpeedChanged(this);
 	}
 
 	public Behavior behavior() {
@@ -159,6 +187,31 @@ public abstract class Actor implements Serializable {
 		return this.combat;
 	}
 
+	public LightSource getLight() {
+		return light;
+	}
+
+	public void setLight(LightSource light) {
+		this.light = light;
+	}
+
+	public IncrementalPathfinder getPathfinder() {
+		return pathfinder;
+	}
+
+	public void setPathfinder(IncrementalPathfinder pathfinder) {
+		this.pathfinder = pathfinder;
+	}
+
+	/**
+	 * @return The actor's reusable walk, wait and attack actions
+	 */
+	public ActionPool actions() {
+		if (actions == null)
+			actions = new ActionPool(this);
+		return actions;
+	}
+
 	public Coordinate getPosition() {
 		return position;
 	}
@@ -215,7 +268,8 @@ public abstract class Actor implements Serializable {
 
 	public String doAction(String action, Object... params) {
 		try {
-			return getMessageName() + " " + makeCorrectVerb(String.format(action, params));
+			String message = params.length > 0 ? String.format(action, params) : action;
+			return getMessageName() + " " + makeCorrectVerb(message);
 		} catch (Exception e) {
 			return "ERROR: " + action;
 		}
@@ -266,6 +320,7 @@ public abstract class Actor implements Serializable {
 	public final void onAttacked(Actor attacker) {
 		attackedBy.add(new AttackAttempt(attacker));
 		attackedThisRound = true;
+		awakeTurns = SimulationLod.WAKE_TURNS;
 
 		if (behavior != null)
 			behavior.onAttacked(attacker);
@@ -0,0 +1,270 @@
+package roguelike.actors;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Decides which actor acts next. Time passes in ticks, and every tick each actor gains energy equal to its speed; an
+ * actor can act once it has enough energy. Rather than visiting every actor every tick, each one is kept in a min-heap
+ * keyed on the tick it will next be able to act, so finding the next actor costs O(log n) however slow or fast the
+ * actors are. Actors ready on the same tick act in the order they were scheduled.
+ *
+ * Energy is only handed out when an actor comes up (or its speed changes), for all the ticks it waited at once.
+ */
+public class ActorScheduler implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private static class Entry implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		final Actor actor;
+		/** The speed the actor has been earning energy at since the credited tick */
+		int speed;
+		/** The last tick the actor was given energy for */
+		long credited;
+		/** The tick the actor will have enough energy to act */
+		long ready;
+		/** Breaks ties between actors ready on the same tick, first come first served */
+		long sequence;
+		int index;
+
+		Entry(Actor actor) {
+			this.actor = actor;
+		}
+	}
+
+	private final ArrayList<Actor> actors = new ArrayList<Actor>();
+	private final IdentityHashMap<Actor, Entry> entries = new IdentityHashMap<Actor, Entry>();
+
+	private Entry[] heap = new Entry[16];
+	private int size;
+
+	/** The actor acting now; it is out of the heap until it is done */
+	private Entry current;
+
+	private long tick;
+	private long nextSequence;
+
+	public int count() {
+		return actors.size();
+	}
+
+	public List<Actor> getAll() {
+		return Collections.unmodifiableList(actors);
+	}
+
+	/**
+	 * @return The tick the current actor is acting on
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * Adds an actor, to act once it has gained enough energy from the current tick on.
+	 *
+	 * @param actor
+	 * @param speed
+	 *            The actor's effective speed
+	 */
+	public void add(Actor actor, int speed) {
+		if (entries.containsKey(actor))
+			return;
+
+		Entry entry = new Entry(actor);
+		entry.speed = speed;
+		entry.credited = tick;
+		entries.put(actor, entry);
+		actors.add(actor);
+		schedule(entry, tick);
+	}
+
+	public void remove(Actor actor) {
+		Entry entry = entries.remove(actor);
+		if (entry == null)
+			return;
+
+		actors.remove(actor);
+		if (entry == current)
+			current = null;
+		else
+			removeAt(entry.index);
+	}
+
+	/**
+	 * Returns the actor whose turn it is, moving time forward to the tick it is ready on and giving it the energy it
+	 * earned while waiting.
+	 *
+	 * @return The current actor, or null if there are no actors
+	 */
+	public Actor getCurrent() {
+		if (current == null) {
+			if (size == 0)
+				return null;
+
+			current = heap[0];
+			removeAt(0);
+			tick = Math.max(tick, current.ready);
+			credit(current);
+		}
+		return current.actor;
+	}
+
+	/**
+	 * @return The actor that will act after the current one, or null if there is none
+	 */
+	public Actor peek() {
+		if (current == null)
+			getCurrent();
+
+		return size > 0 ? heap[0].actor : null;
+	}
+
+	/**
+	 * Lists the current actor and those that will act after it, in order, up to the given one. An actor appears once
+	 * however many times it may act in that span; speed changes can still reorder them before their turns come.
+	 *
+	 * @param until
+	 *            The actor to stop before, or null for all of them
+	 * @return
+	 */
+	public List<Actor> getUpcoming(Actor until) {
+		List<Actor> upcoming = new ArrayList<Actor>();
+		Actor first = getCurrent();
+		if (first == null || first == until)
+			return upcoming;
+
+		upcoming.add(first);
+
+		Entry[] waiting = Arrays.copyOf(heap, size);
+		Arrays.sort(waiting, (a, b) -> before(a, b) ? -1 : before(b, a) ? 1 : 0);
+		for (Entry entry : waiting) {
+			if (entry.actor == until)
+				break;
+
+			upcoming.add(entry.actor);
+		}
+		return upcoming;
+	}
+
+	/**
+	 * Ends the current actor's turn and schedules it again for when it will have enough energy. An actor that ends its
+	 * turn with energy to spare (say, because its action failed) waits until the next tick, so it can't keep the rest
+	 * of the actors from their turns.
+	 *
+	 * @param speed
+	 *            The current actor's effective speed from now on
+	 */
+	public void advance(int speed) {
+		if (current == null && getCurrent() == null)
+			return;
+
+		Entry entry = current;
+		current = null;
+		entry.speed = speed;
+		schedule(entry, tick + 1);
+	}
+
+	/**
+	 * Re-keys a waiting actor whose speed has changed, for instance by moving onto different terrain or gaining a
+	 * condition. The energy earned so far at the old speed is kept. Has no effect on the current actor, which is
+	 * rescheduled with its new speed when its turn ends.
+	 *
+	 * @param actor
+	 * @param speed
+	 *            The actor's new effective speed
+	 */
+	public void speedChanged(Actor actor, int speed) {
+		Entry entry = entries.get(actor);
+		if (entry == null || entry == current || entry.speed == speed)
+			return;
+
+		credit(entry);
+		entry.speed = speed;
+
+		long ready = tick + entry.actor.energy.ticksUntilReady(speed);
+		long previous = entry.ready;
+		entry.ready = ready;
+		if (ready < previous)
+			siftUp(entry.index);
+		else
+			siftDown(entry.index);
+	}
+
+	private void credit(Entry entry) {
+		// an actor that could already act (say, one whose action failed) doesn't bank any more
+		long elapsed = tick - entry.credited;
+		if (elapsed > 0 && !entry.actor.energy.canAct())
+			entry.actor.energy.increase((int) Math.min(Integer.MAX_VALUE, elapsed * entry.speed));
+		entry.credited = tick;
+	}
+
+	private void schedule(Entry entry, long earliest) {
+		entry.ready = Math.max(earliest, entry.credited + entry.actor.energy.ticksUntilReady(entry.speed));
+		entry.sequence = nextSequence++;
+
+		if (size == heap.length)
+			heap = Arrays.copyOf(heap, heap.length * 2);
+
+		heap[size] = entry;
+		entry.index = size;
+		size++;
+		siftUp(entry.index);
+	}
+
+	private void removeAt(int index) {
+		size--;
+		Entry last = heap[size];
+		heap[size] = null;
+		if (index == size)
+			return;
+
+		heap[index] = last;
+		last.index = index;
+		siftDown(index);
+		siftUp(last.index);
+	}
+
+	private void siftUp(int index) {
+		Entry entry = heap[index];
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (!before(entry, heap[parent]))
+				break;
+
+			heap[index] = heap[parent];
+			heap[index].index = index;
+			index = parent;
+		}
+		heap[index] = entry;
+		entry.index = index;
+	}
+
+	private void siftDown(int index) {
+		Entry entry = heap[index];
+		while (true) {
+			int child = index * 2 + 1;
+			if (child >= size)
+				break;
+
+			if (child + 1 < size && before(heap[child + 1], heap[child]))
+				child++;
+			if (!before(heap[child], entry))
+				break;
+
+			heap[index] = heap[child];
+			heap[index].index = index;
+			index = child;
+		}
+		heap[index] = entry;
+		entry.index = index;
+	}
+
+	private static boolean before(Entry a, Entry b) {
+		return a.ready < b.ready || (a.ready == b.ready && a.sequence < b.sequence);
+	}
+}
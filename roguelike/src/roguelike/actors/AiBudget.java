@@ -0,0 +1,136 @@
+package roguelike.actors;
+
+import roguelike.actions.Action;
+import roguelike.util.Metrics;
+import roguelike.util.Metrics.Counter;
+import roguelike.util.TimingHistogram;
+
+/**
+ * Caps the time NPCs spend thinking in a frame (one call to Game.processTurn), so a turn where many of them replan
+ * doesn't hold up drawing and input. Once a frame's budget is spent, NPCs whose turn comes up follow the plan they
+ * already have (see {@link roguelike.actors.behaviors.Behavior#getPlannedAction()}), or wait, and put off changing
+ * behavior until they next decide properly; that work is picked up on later frames. No NPC falls back more than a few
+ * turns running, however busy the frames.
+ *
+ * Which NPCs fall back depends on how long decisions take, so a game played with a budget won't play back the same.
+ */
+public class AiBudget {
+	/** How many turns running an NPC may fall back before it decides whatever the cost */
+	private static final int MAX_FALLBACK_TURNS = 3;
+
+	private final long budgetNanos;
+	private final TimingHistogram frameTimes = new TimingHistogram();
+
+	private long spentNanos;
+	private long framesOverBudget;
+	private long fallbacks;
+	private long deferredTransitions;
+
+	/**
+	 * @param budgetNanos
+	 *            How long NPCs may think each frame
+	 */
+	public AiBudget(long budgetNanos) {
+		if (budgetNanos <= 0)
+			throw new IllegalArgumentException("budgetNanos must be positive: " + budgetNanos);
+
+		this.budgetNanos = budgetNanos;
+	}
+
+	public long getBudgetNanos() {
+		return budgetNanos;
+	}
+
+	/**
+	 * Closes the last frame's books and starts spending the budget afresh.
+	 */
+	public void startFrame() {
+		// frames spent waiting on the player don't count
+		if (spentNanos > 0) {
+			frameTimes.record(spentNanos);
+			if (spentNanos > budgetNanos)
+				framesOverBudget++;
+		}
+		spentNanos = 0;
+	}
+
+	public boolean isExhausted() {
+		return spentNanos >= budgetNanos;
+	}
+
+	/**
+	 * @return The time to pass to {@link #stop(long)}
+	 */
+	public long start() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Charges the time since the given start to this frame.
+	 *
+	 * @param start
+	 */
+	public void stop(long start) {
+		spentNanos += System.nanoTime() - start;
+	}
+
+	/**
+	 * Gets a stand-in for an NPC's decision if the frame's budget is spent.
+	 *
+	 * @param actor
+	 *            The current actor
+	 * @return The NPC's planned action or a WaitAction, or null if it should decide as usual
+	 */
+	public Action getFallbackAction(Actor actor) {
+		if (!isExhausted() || actor.fallbackTurns >= MAX_FALLBACK_TURNS) {
+			actor.fallbackTurns = 0;
+			return null;
+		}
+
+		actor.fallbackTurns++;
+		fallbacks++;
+		Metrics.count(Counter.AI_FALLBACKS);
+
+		Action planned = actor.behavior() != null ? actor.behavior().getPlannedAction() : null;
+		return planned != null && planned.isValid() ? planned : actor.actions().waitAction();
+	}
+
+	/**
+	 * Asks whether an NPC should put off changing behavior until it next decides.
+	 *
+	 * @return True if the frame's budget is spent
+	 */
+	public boolean deferTransition() {
+		if (!isExhausted())
+			return false;
+
+		deferredTransitions++;
+		Metrics.count(Counter.AI_DEFERRED);
+		return true;
+	}
+
+	/**
+	 * @return The time NPCs spent thinking in each frame they thought in
+	 */
+	public TimingHistogram getFrameTimes() {
+		return frameTimes;
+	}
+
+	public long getFramesOverBudget() {
+		return framesOverBudget;
+	}
+
+	public long getFallbacks() {
+		return fallbacks;
+	}
+
+	public long getDeferredTransitions() {
+		return deferredTransitions;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("budget=%dus, %d frames over, %d fallbacks, %d transitions deferred; AI time per frame: %s", budgetNanos / 1000,
+				framesOverBudget, fallbacks, deferredTransitions, frameTimes);
+	}
+}
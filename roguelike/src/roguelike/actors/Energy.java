@@ -26,4 +26,26 @@ public class Energy implements Serializable {
 	public boolean canAct() {
 		return current >= ACTION_THRESHOLD;
 	}
+
+	/**
+	 * @param speed
+	 *            The energy gained each tick
+	 * @return The number of ticks it takes to gain the energy for one action
+	 */
+	public static int ticksPerAction(int speed) {
+		return (ACTION_THRESHOLD + speed - 1) / speed;
+	}
+
+	/**
+	 * @param speed
+	 *            The energy gained each tick
+	 * @return The number of ticks until there is enough energy to act, 0 if there already is
+	 */
+	public int ticksUntilReady(int speed) {
+		if (canAct())
+			return 0;
+
+		int needed = ACTION_THRESHOLD - current;
+		return (needed + speed - 1) / speed;
+	}
 }
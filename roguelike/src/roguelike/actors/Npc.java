@@ -7,6 +7,8 @@ import roguelike.actors.behaviors.Behavior;
 import roguelike.items.Inventory;
 import roguelike.items.Item;
 import roguelike.maps.MapArea;
+import roguelike.util.Metrics;
+import roguelike.util.Metrics.Phase;
 import squidpony.squidcolor.SColor;
 
 public class Npc extends Actor {
@@ -16,6 +18,9 @@ public class Npc extends Actor {
 	protected String description = "";
 	int difficulty = 1;
 
+	/** Set when a change of behavior was put off for lack of time, to be made before the next decision */
+	private transient boolean transitionPending;
+
 	Npc(char symbol, SColor color, String name) {
 		super(symbol, color);
 		this.name = name;
@@ -27,8 +32,15 @@ public class Npc extends Actor {
 
 	@Override
 	public Action getNextAction() {
+		if (behavior != null && transitionPending) {
+			transitionPending = false;
+			nextBehavior();
+		}
 		if (behavior != null) {
-			return behavior.getAction();
+			long start = Metrics.start();
+			Action action = behavior.getAction();
+			Metrics.stop(Phase.AI_DECISION, start);
+			return action;
 		}
 		return null;
 	}
@@ -46,16 +58,27 @@ public class Npc extends Actor {
 	@Override
 	public void onAttackedInternal(Actor attacker) {
 		if (behavior != null)
-			behavior = behavior.getNextBehavior();
+			nextBehavior();
 	}
 
 	@Override
 	public void onTurnFinished() {
-		if (behavior != null) {
-			behavior = behavior.getNextBehavior();
+		// behaviors only move on while they are the ones deciding
+		if (behavior != null && (simulationTier == null || simulationTier == SimulationLod.Tier.FULL)) {
+			AiBudget budget = game.getAiBudget();
+			if (budget != null && budget.deferTransition())
+				transitionPending = true;
+			else
+				nextBehavior();
 		}
 	}
 
+	private void nextBehavior() {
+		long start = Metrics.start();
+		behavior = behavior.getNextBehavior();
+		Metrics.stop(Phase.AI_TRANSITION, start);
+	}
+
 	@Override
 	public void onKilled() {
 		behavior = null;
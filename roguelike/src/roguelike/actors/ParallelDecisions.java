@@ -0,0 +1,187 @@
+package roguelike.actors;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import roguelike.Game;
+import roguelike.GameLoader;
+import roguelike.MessageDisplayProperties;
+import roguelike.actions.Action;
+import roguelike.maps.MapArea;
+import squidpony.squidmath.RNG;
+
+/**
+ * Lets the NPCs due to act before the player's next turn choose their actions at the same time, on a ForkJoinPool,
+ * then hands the actions out one at a time as each NPC's turn comes up, to be performed in the usual order.
+ *
+ * Nothing changes the map or the actors while they decide, so every NPC sees things as they were at the start of the
+ * round. To keep the outcome the same whichever thread gets to what first, each NPC draws from a random number stream
+ * of its own (seeded from the game's) and any messages it shows are held back until its action is handed out.
+ *
+ * An NPC decides again, when its turn comes, if its action no longer holds by then (see {@link Action#isValid()}), or
+ * if it needed something only one actor can do at a time, such as cooperative path planning (see
+ * {@link #requireSerial()}). An NPC that acts more than once before the player decides the later times on its turn.
+ */
+public class ParallelDecisions {
+	private static final ThreadLocal<Decision> current = new ThreadLocal<Decision>();
+
+	private final ForkJoinPool pool;
+	private final IdentityHashMap<Actor, Decision> decisions = new IdentityHashMap<Actor, Decision>();
+	private MapArea map;
+
+	/**
+	 * @param parallelism
+	 *            How many threads to decide on
+	 */
+	public ParallelDecisions(int parallelism) {
+		this.pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * Stops the threads decisions were made on, once this is no longer used.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * @return The random numbers of the actor deciding on this thread, or null if none is
+	 */
+	public static RNG currentRandom() {
+		Decision decision = current.get();
+		return decision != null ? decision.actor.random : null;
+	}
+
+	/**
+	 * Holds a message back if it was shown by an actor deciding in parallel.
+	 * 
+	 * @param message
+	 * @return True if the message was held back, false if it should be shown now
+	 */
+	public static boolean holdMessage(MessageDisplayProperties message) {
+		Decision decision = current.get();
+		if (decision == null || !decision.parallel)
+			return false;
+
+		decision.messages.add(message);
+		return true;
+	}
+
+	/**
+	 * Called by anything that depends on the order actors decide in. An actor deciding in parallel is stopped and
+	 * decides again on its turn instead.
+	 */
+	public static void requireSerial() {
+		Decision decision = current.get();
+		if (decision != null && decision.parallel)
+			throw new SerialOnlyException();
+	}
+
+	/**
+	 * Gets the action of an NPC whose turn it is, deciding for the whole round first if needed.
+	 * 
+	 * @param map
+	 * @param actor
+	 *            The current actor
+	 * @return The action, or null if the actor has none
+	 */
+	public Action getAction(MapArea map, Actor actor) {
+		if (map != this.map) {
+			decisions.clear();
+			this.map = map;
+		}
+
+		Decision decision = decisions.remove(actor);
+		if (decision == null) {
+			decideRound(map);
+			decision = decisions.remove(actor);
+		}
+
+		if (decision == null || decision.mustDecideAgain()) {
+			decision = new Decision(actor, false);
+			decision.decide();
+			if (decision.failure != null)
+				throw decision.failure;
+		}
+
+		for (MessageDisplayProperties message : decision.messages)
+			Game.current().messages().add(message);
+
+		return decision.action;
+	}
+
+	/**
+	 * Has every NPC due to act before the player decide at once. Decisions left over from the last round (say, by an
+	 * NPC that was slowed down) are dropped.
+	 */
+	private void decideRound(MapArea map) {
+		decisions.clear();
+
+		// NPCs that aren't fully simulated won't ask for a decision
+		SimulationLod lod = Game.current().getSimulationLod();
+
+		List<Decision> round = new ArrayList<Decision>();
+		for (Actor actor : map.getUpcomingActors(Game.current().getPlayer())) {
+			if (!actor.isAlive() || (lod != null && lod.getTier(map, actor) != SimulationLod.Tier.FULL))
+				continue;
+
+			// seeded here, one actor at a time, so the seeds don't depend on thread timing
+			if (actor.random == null)
+				actor.random = GameLoader.getRandom(Game.current().random().nextLong());
+
+			Decision decision = new Decision(actor, true);
+			round.add(decision);
+			decisions.put(actor, decision);
+		}
+
+		if (round.size() == 1)
+			round.get(0).decide();
+		else
+			pool.submit(() -> round.parallelStream().forEach(Decision::decide)).join();
+	}
+
+	private static class Decision {
+		final Actor actor;
+		final boolean parallel;
+		final List<MessageDisplayProperties> messages = new ArrayList<MessageDisplayProperties>();
+
+		Action action;
+		boolean serialOnly;
+		RuntimeException failure;
+
+		Decision(Actor actor, boolean parallel) {
+			this.actor = actor;
+			this.parallel = parallel;
+		}
+
+		void decide() {
+			current.set(this);
+			try {
+				action = actor.getNextAction();
+			}
+			catch (SerialOnlyException e) {
+				serialOnly = true;
+			}
+			catch (RuntimeException e) {
+				failure = e;
+			}
+			finally {
+				current.remove();
+			}
+		}
+
+		boolean mustDecideAgain() {
+			return serialOnly || failure != null || (action != null && !action.isValid());
+		}
+	}
+
+	private static class SerialOnlyException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		SerialOnlyException() {
+			super(null, null, false, false);
+		}
+	}
+}
@@ -4,6 +4,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import roguelike.actions.Action;
+import roguelike.actors.behaviors.Behavior;
 import roguelike.actors.behaviors.PlayerInputBehavior;
 import roguelike.util.ActorUtils;
 import squidpony.squidcolor.SColor;
@@ -27,6 +28,15 @@ public class Player extends Actor {
 		return actor instanceof Player;
 	}
 
+	/**
+	 * Replaces what decides the player's actions, for instance with a bot.
+	 * 
+	 * @param behavior
+	 */
+	public void setBehavior(Behavior behavior) {
+		this.behavior = behavior;
+	}
+
 	public String getCharacterName() {
 		return characterName;
 	}
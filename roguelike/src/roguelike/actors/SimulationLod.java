@@ -0,0 +1,182 @@
+package roguelike.actors;
+
+import java.awt.Point;
+
+import roguelike.Game;
+import roguelike.actions.Action;
+import roguelike.actions.RelocateAction;
+import roguelike.maps.MapArea;
+import roguelike.maps.Tile;
+import roguelike.util.Coordinate;
+import roguelike.util.Metrics;
+import roguelike.util.Metrics.Counter;
+
+/**
+ * Decides how much simulation an NPC gets on its turn, by how far it is from the player. Only NPCs near the player, or
+ * on tiles the player can see, run their behaviors; those further out are simulated coarsely, and those further still
+ * just wait:
+ *
+ * <ul>
+ * <li>{@link Tier#FULL} - within the full radius or in view: the NPC's behavior decides as usual</li>
+ * <li>{@link Tier#COARSE} - within the coarse radius: every few turns the NPC jumps to a random tile it could have
+ * walked to in that time, out of the player's sight; it waits the turns in between</li>
+ * <li>{@link Tier#DORMANT} - further away: the NPC waits</li>
+ * </ul>
+ *
+ * Outside the full tier NPCs don't change behavior either. A noise (see {@link #noise(MapArea, int, int, int)}), or
+ * being attacked, wakes an NPC into the full tier for a while wherever it is. The tier an NPC is in is worked out again
+ * on each of its turns, so NPCs wake as soon as the player comes into range.
+ */
+public class SimulationLod {
+	public enum Tier {
+		FULL, COARSE, DORMANT
+	}
+
+	/** How many of its own turns a woken NPC stays in the full tier */
+	static final int WAKE_TURNS = 20;
+
+	private final int fullRadius;
+	private final int coarseRadius;
+	private final int coarseInterval;
+
+	/**
+	 * @param fullRadius
+	 *            How far from the player NPCs are fully simulated
+	 * @param coarseRadius
+	 *            How far from the player NPCs are coarsely simulated
+	 * @param coarseInterval
+	 *            How many turns apart coarse NPCs move, and so how far they may jump
+	 */
+	public SimulationLod(int fullRadius, int coarseRadius, int coarseInterval) {
+		if (fullRadius < 0 || coarseRadius < fullRadius || coarseInterval < 1)
+			throw new IllegalArgumentException("Bad simulation radii or interval: " + fullRadius + ", " + coarseRadius + ", " + coarseInterval);
+
+		this.fullRadius = fullRadius;
+		this.coarseRadius = coarseRadius;
+		this.coarseInterval = coarseInterval;
+	}
+
+	public int getFullRadius() {
+		return fullRadius;
+	}
+
+	public int getCoarseRadius() {
+		return coarseRadius;
+	}
+
+	public int getCoarseInterval() {
+		return coarseInterval;
+	}
+
+	/**
+	 * Works out which tier an actor is in right now. The player is always in the full tier.
+	 *
+	 * @param map
+	 * @param actor
+	 * @return
+	 */
+	public Tier getTier(MapArea map, Actor actor) {
+		if (Player.isPlayer(actor) || actor.awakeTurns > 0)
+			return Tier.FULL;
+
+		Coordinate position = actor.getPosition();
+		Coordinate player = Game.current().getPlayer().getPosition();
+		int distance = Math.max(Math.abs(position.x - player.x), Math.abs(position.y - player.y));
+
+		if (distance <= fullRadius || map.getTileAt(position).isVisible())
+			return Tier.FULL;
+
+		return distance <= coarseRadius ? Tier.COARSE : Tier.DORMANT;
+	}
+
+	/**
+	 * Gets the action of an NPC whose turn it is, if it isn't fully simulated.
+	 *
+	 * @param map
+	 * @param actor
+	 *            The current actor
+	 * @return A cheap action standing in for the NPC's behavior, or null if the behavior should decide
+	 */
+	public Action getAction(MapArea map, Actor actor) {
+		Tier tier = getTier(map, actor);
+		actor.simulationTier = tier;
+
+		switch (tier) {
+		case FULL:
+			if (actor.awakeTurns > 0)
+				actor.awakeTurns--;
+			Metrics.count(Counter.FULL_TURNS);
+			return null;
+
+		case COARSE:
+			Metrics.count(Counter.COARSE_TURNS);
+			if (++actor.coarseTurns < coarseInterval)
+				return actor.actions().waitAction();
+
+			actor.coarseTurns = 0;
+			return coarseMove(map, actor);
+
+		default:
+			Metrics.count(Counter.DORMANT_TURNS);
+			return actor.actions().waitAction();
+		}
+	}
+
+	/**
+	 * Wakes every NPC within the given distance of a noise, such as a fight, into the full tier.
+	 *
+	 * @param map
+	 * @param x
+	 * @param y
+	 * @param radius
+	 */
+	public void noise(MapArea map, int x, int y, int radius) {
+		for (Actor actor : map.getAllActors()) {
+			Coordinate position = actor.getPosition();
+			if (Math.max(Math.abs(position.x - x), Math.abs(position.y - y)) <= radius)
+				wake(actor);
+		}
+	}
+
+	/**
+	 * Puts an NPC in the full tier for a while wherever it is.
+	 *
+	 * @param actor
+	 */
+	public void wake(Actor actor) {
+		actor.awakeTurns = WAKE_TURNS;
+	}
+
+	/**
+	 * @param map
+	 * @return How many of the map's NPCs were in each tier on their last turn, indexed by {@link Tier#ordinal()}
+	 */
+	public int[] getTierCounts(MapArea map) {
+		int[] counts = new int[Tier.values().length];
+		for (Actor actor : map.getAllActors()) {
+			if (!Player.isPlayer(actor))
+				counts[actor.simulationTier != null ? actor.simulationTier.ordinal() : Tier.FULL.ordinal()]++;
+		}
+		return counts;
+	}
+
+	/**
+	 * Jumps an NPC to a random tile it could have reached in the turns since its last move, as long as the player
+	 * can't see it go or arrive.
+	 */
+	private Action coarseMove(MapArea map, Actor actor) {
+		Coordinate position = actor.getPosition();
+		if (map.getTileAt(position).isVisible())
+			return actor.actions().waitAction();
+
+		Point target = map.reachability().getRandomReachableTile(position.x, position.y, coarseInterval, Game.current().random());
+		if (target == null)
+			return actor.actions().waitAction();
+
+		Tile tile = map.getTileAt(target);
+		if (tile.isVisible() || tile.getActor() != null || !map.canMoveTo(actor, target.x, target.y))
+			return actor.actions().waitAction();
+
+		return new RelocateAction(actor, map, new Coordinate(target.x, target.y));
+	}
+}
@@ -4,6 +4,7 @@ import java.io.Serializable;
 
 import roguelike.actions.Action;
 import roguelike.actors.Actor;
+import roguelike.actors.Player;
 
 public abstract class Behavior implements Serializable {
 	private static final long serialVersionUID = 1L;
@@ -19,14 +20,39 @@ public abstract class Behavior implements Serializable {
 
 	public abstract boolean isHostile();
 
+	/**
+	 * @param other
+	 * @return True if the actor means to attack the other actor, so walking into it is an attack on purpose
+	 */
+	public boolean isHostileTo(Actor other) {
+		return isHostile() && Player.isPlayer(other);
+	}
+
 	public void onNoAmmunition() {
 	}
 
 	public void onAttacked(Actor attacker) {
 	}
 
+	/**
+	 * Called when the actor has been moved somewhere without walking there, so any path it was following no longer
+	 * starts where it is.
+	 */
+	public void onRelocated() {
+	}
+
 	public abstract Action getAction();
 
+	/**
+	 * Returns the next step of whatever the behavior was already doing, without any of the work of deciding afresh,
+	 * for when there is no time to decide (see {@link roguelike.actors.AiBudget}).
+	 * 
+	 * @return The action, or null if there is no plan to follow
+	 */
+	public Action getPlannedAction() {
+		return null;
+	}
+
 	/**
 	 * Allows the actor to change behaviors based on some criteria
 	 * 
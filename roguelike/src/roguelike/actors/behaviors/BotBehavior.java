@@ -0,0 +1,175 @@
+package roguelike.actors.behaviors;
+
+import roguelike.Game;
+import roguelike.actions.Action;
+import roguelike.actions.EquipItemAction;
+import roguelike.actions.GetItemAction;
+import roguelike.actions.RangedAttackAction;
+import roguelike.actions.StairsDownAction;
+import roguelike.actors.Actor;
+import roguelike.items.Equipment.ItemSlot;
+import roguelike.items.Item;
+import roguelike.items.ItemType;
+import roguelike.items.RangedWeapon;
+import roguelike.maps.DijkstraMap;
+import roguelike.maps.MapArea;
+import roguelike.maps.Stairs;
+import roguelike.maps.Tile;
+import roguelike.util.Coordinate;
+import squidpony.squidgrid.util.DirectionIntercardinal;
+
+/**
+ * Plays the game by itself, for soak testing. In order of preference it: readies a ranged weapon if it has one, fights
+ * the nearest enemy it can see (shooting when it can, closing in otherwise), picks up items underfoot, walks to items
+ * it can see, explores towards the nearest unexplored tile, and finally heads down the nearest stairs.
+ *
+ * Walking is done by descending a distance map to whatever the current goals are, rebuilt every turn.
+ */
+public class BotBehavior extends Behavior {
+	private static final long serialVersionUID = 1L;
+
+	private transient DijkstraMap distances;
+
+	public BotBehavior(Actor actor) {
+		super(actor);
+	}
+
+	@Override
+	public boolean isHostile() {
+		return false;
+	}
+
+	@Override
+	public Action getAction() {
+		MapArea map = Game.current().getCurrentMapArea();
+		if (distances == null || distances.width() != map.width() || distances.height() != map.height())
+			distances = new DijkstraMap(map.width(), map.height());
+
+		Action action = readyRangedWeapon();
+		if (action != null)
+			return action;
+
+		Actor enemy = findNearestEnemy(map);
+		if (enemy != null)
+			return fight(map, enemy);
+
+		Coordinate position = actor.getPosition();
+		if (map.getItemsAt(position.x, position.y).any())
+			return new GetItemAction(actor, map);
+
+		/* anything lying around in view, then anywhere not seen yet, then the way down */
+		distances.clearGoals();
+		for (int x = 0; x < map.width(); x++) {
+			for (int y = 0; y < map.height(); y++) {
+				Tile tile = map.getTileAt(x, y);
+				if (tile.isVisible() && map.getItemsAt(x, y).any())
+					distances.addGoal(x, y);
+			}
+		}
+		action = walkToGoals(map);
+		if (action != null)
+			return action;
+
+		distances.clearGoals();
+		for (int x = 0; x < map.width(); x++) {
+			for (int y = 0; y < map.height(); y++) {
+				Tile tile = map.getTileAt(x, y);
+				if (!tile.isExplored() && tile.canPass())
+					distances.addGoal(x, y);
+			}
+		}
+		action = walkToGoals(map);
+		if (action != null)
+			return action;
+
+		Tile tile = map.getTileAt(position);
+		if (tile instanceof Stairs && ((Stairs) tile).isDown())
+			return new StairsDownAction(actor, map);
+
+		distances.clearGoals();
+		for (int x = 0; x < map.width(); x++) {
+			for (int y = 0; y < map.height(); y++) {
+				tile = map.getTileAt(x, y);
+				if (tile instanceof Stairs && ((Stairs) tile).isDown())
+					distances.addGoal(x, y);
+			}
+		}
+		action = walkToGoals(map);
+		if (action != null)
+			return action;
+
+		return actor.actions().waitAction();
+	}
+
+	@Override
+	public Behavior getNextBehavior() {
+		return this;
+	}
+
+	@Override
+	public String getDescription() {
+		return "Playing by itself";
+	}
+
+	private Action readyRangedWeapon() {
+		for (Item item : actor.inventory().allItems()) {
+			if (item.type() == ItemType.RANGED_WEAPON && actor.equipment().getRangedWeapon() == null)
+				return new EquipItemAction(actor, item, ItemSlot.RANGED);
+
+			if (item.type() == ItemType.PROJECTILE && ItemSlot.PROJECTILE.getItem(actor) == null)
+				return new EquipItemAction(actor, item, ItemSlot.PROJECTILE);
+		}
+		return null;
+	}
+
+	private Actor findNearestEnemy(MapArea map) {
+		Actor nearest = null;
+		int nearestDistance = Integer.MAX_VALUE;
+		for (Actor other : map.getAllActors()) {
+			if (other == actor || !other.isAlive())
+				continue;
+
+			int distance = distance(actor.getPosition(), other.getPosition());
+			if (distance < nearestDistance && distance <= actor.getVisionRadius() && actor.canSee(other, map)) {
+				nearest = other;
+				nearestDistance = distance;
+			}
+		}
+		return nearest;
+	}
+
+	private Action fight(MapArea map, Actor enemy) {
+		if (actor.isAdjacentTo(enemy))
+			return actor.actions().attack(enemy);
+
+		RangedWeapon weapon = actor.equipment().getRangedWeapon();
+		if (weapon != null && ItemSlot.PROJECTILE.getItem(actor) != null && weapon.canUse(actor, enemy))
+			return new RangedAttackAction(actor, map, weapon, enemy);
+
+		distances.clearGoals();
+		distances.addGoal(enemy.getPosition().x, enemy.getPosition().y);
+		Action action = walkToGoals(map);
+		return action != null ? action : actor.actions().waitAction();
+	}
+
+	/**
+	 * @return A step towards the nearest of the current goals, or null if there are none or none can be reached
+	 */
+	private Action walkToGoals(MapArea map) {
+		if (distances.getGoalCount() == 0)
+			return null;
+
+		distances.scan(map);
+
+		Coordinate position = actor.getPosition();
+		DirectionIntercardinal direction = distances.getDirection(map, position.x, position.y);
+		if (direction == null)
+			return null;
+
+		return actor.actions().walk(map, direction);
+	}
+
+	private static int distance(Coordinate a, Coordinate b) {
+		return Math.max(Math.abs(a.x - b.x), Math.abs(a.y - b.y));
+	}
+}
@@ -0,0 +1,72 @@
+package roguelike.actors.behaviors;
+
+import roguelike.Game;
+import roguelike.actions.Action;
+import roguelike.actors.Actor;
+import roguelike.actors.Health;
+import roguelike.maps.MapArea;
+import roguelike.util.Coordinate;
+import squidpony.squidgrid.util.DirectionIntercardinal;
+
+/**
+ * A badly wounded NPC running from the player, down the flee map every fleeing actor shares (see
+ * {@link MapArea#getFleeMap(int, int)}). Cornered, it fights back if the player is close enough and otherwise holds
+ * still; once the player is out of sight it goes back to wandering.
+ */
+public class FleeBehavior extends EnemyBehavior {
+	private static final long serialVersionUID = 1L;
+
+	/** The share of its health an actor has left when it starts running */
+	private static final float FLEE_HEALTH = 0.25f;
+
+	public FleeBehavior(Actor actor) {
+		super(actor);
+		this.nextBehavior = this;
+	}
+
+	/**
+	 * @param actor
+	 * @return True if the actor is hurt badly enough to run from the player
+	 */
+	static boolean shouldFlee(Actor actor) {
+		Health health = actor.health();
+		return health.getCurrent() <= health.getMaximum() * FLEE_HEALTH;
+	}
+
+	@Override
+	public Action getAction() {
+		MapArea map = Game.current().getCurrentMapArea();
+		Actor player = Game.current().getPlayer();
+		if (!actor.canSee(player, map)) {
+			nextBehavior = new MoveToRandomPointBehavior(actor);
+			return actor.actions().waitAction();
+		}
+
+		Coordinate from = player.getPosition();
+		Coordinate position = actor.getPosition();
+		DirectionIntercardinal direction = map.getFleeMap(from.x, from.y).getDirection(map, position.x, position.y);
+
+		nextBehavior = this;
+		if (direction != null)
+			return actor.actions().walk(map, direction);
+
+		// nowhere further to run
+		if (canAttackTarget(player))
+			return actor.actions().attack(player);
+
+		return actor.actions().waitAction();
+	}
+
+	@Override
+	public Behavior getNextBehavior() {
+		if (actor.isAlive()) {
+			return nextBehavior;
+		}
+		return null;
+	}
+
+	@Override
+	public String getDescription() {
+		return "Fleeing from you";
+	}
+}
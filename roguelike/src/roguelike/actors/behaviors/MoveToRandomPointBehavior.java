@@ -10,14 +10,11 @@ import org.apache.logging.log4j.Logger;
 
 import roguelike.Game;
 import roguelike.actions.Action;
-import roguelike.actions.WaitAction;
-import roguelike.actions.WalkAction;
 import roguelike.actors.Actor;
 import roguelike.actors.AttackAttempt;
-import roguelike.maps.AStarPathfinder;
 import roguelike.maps.MapArea;
 import roguelike.maps.Path;
-import roguelike.maps.Path.Step;
+import roguelike.maps.PathRequest;
 import squidpony.squidgrid.util.DirectionIntercardinal;
 
 public class MoveToRandomPointBehavior extends Behavior {
@@ -25,8 +22,12 @@ public class MoveToRandomPointBehavior extends Behavior {
     
 	private static final long serialVersionUID = 1L;
 
-	transient AStarPathfinder pathfinder;
+	/** How many turns to wait for someone in the way before picking somewhere else to go */
+	private static final int MAX_BLOCKED_TURNS = 3;
+
 	transient Path pathToTarget;
+	private transient int blockedTurns;
+	private transient PathRequest pathRequest;
 
 	private Point currentTargetLocation;
 	private MapArea map;
@@ -35,8 +36,6 @@ public class MoveToRandomPointBehavior extends Behavior {
 	public MoveToRandomPointBehavior(Actor actor) {
 		super(actor);
 		this.map = Game.current().getCurrentMapArea();
-
-		pathfinder = new AStarPathfinder(map, actor.getVisionRadius() * 2);
 	}
 
 	private void writeObject(ObjectOutputStream out) throws IOException {
@@ -46,8 +45,6 @@ public class MoveToRandomPointBehavior extends Behavior {
 	private void readObject(ObjectInputStream in) throws ClassNotFoundException, IOException {
 		in.defaultReadObject();
 
-		pathfinder = new AStarPathfinder(map, actor.getVisionRadius() * 2);
-
 		// Point position = actor.getPosition();
 		// int sx = position.x;
 		// int sy = position.y;
@@ -73,31 +70,42 @@ public class MoveToRandomPointBehavior extends Behavior {
 		}
 
 		if (currentTargetLocation == null) {
-			// pick a new target point
-
-			int rndX = Game.current().random().between(position.x - actor.getVisionRadius() * 2, position.x + actor.getVisionRadius() * 2);
-			int rndY = Game.current().random().between(position.y - actor.getVisionRadius() * 2, position.y + actor.getVisionRadius() * 2);
-
-			int count = 0;
-			while (!(map.isWithinBounds(rndX, rndY) && map.getTileAt(rndX, rndY).canPass()) && count++ < 10) {
-				rndX = Game.current().random().between(position.x - actor.getVisionRadius() * 2, position.x + actor.getVisionRadius() * 2);
-				rndY = Game.current().random().between(position.y - actor.getVisionRadius() * 2, position.y + actor.getVisionRadius() * 2);
-			}
-			if (count < 10) {
-				currentTargetLocation = new Point(rndX, rndY);
+			// pick a new target point, out of the tiles the actor can actually get to
+			Point target = map.reachability().getRandomReachableTile(position.x, position.y, actor.getVisionRadius() * 2,
+					Game.current().random());
+			if (target != null) {
+				currentTargetLocation = target;
 
 				int sx = position.x;
 				int sy = position.y;
 				int tx = currentTargetLocation.x;
 				int ty = currentTargetLocation.y;
-				pathToTarget = pathfinder.findPath(map, sx, sy, tx, ty);
-				if (pathToTarget != null)
-					pathToTarget.nextStep(); // since the first step is just the current position
 
-				LOG.debug("CurrentTargetLocation: {}, {}, {} pos = {}, {}", rndX, rndY, actor.getName(), position.x, position.y);
+				// nothing is waiting on a wander, so the path is found in the background and collected next turn
+				pathToTarget = null;
+				blockedTurns = 0;
+				pathRequest = map.pathfinding().requestPath(sx, sy, tx, ty, actor.getVisionRadius() * 2, PathRequest.PRIORITY_LOW);
+
+				LOG.debug("CurrentTargetLocation: {}, {}, {} pos = {}, {}", tx, ty, actor.getName(), position.x, position.y);
+				return actor.actions().waitAction();
 			}
 		}
 
+		if (pathRequest != null) {
+			pathToTarget = pathRequest.getPath();
+			pathRequest = null;
+
+			// no way there any more, or we were moved while it was being found
+			if (pathToTarget == null || pathToTarget.getX(0) != position.x || pathToTarget.getY(0) != position.y) {
+				currentTargetLocation = null;
+				pathToTarget = null;
+				return actor.actions().waitAction();
+			}
+		}
+		else if (pathToTarget == null) {
+			currentTargetLocation = null; // the path isn't saved with the game; pick a new point next turn
+		}
+
 		if (currentTargetLocation != null) {
 
 			if (position.equals(previousPosition)) {
@@ -105,16 +113,26 @@ public class MoveToRandomPointBehavior extends Behavior {
 			}
 			else {
 				if (pathToTarget != null) {
-
-					Step step = pathToTarget.getCurrentStep();
-					if (step != null) {
-						pathToTarget.nextStep();
-						int ssx = (step.getX()) - position.x;
-						int ssy = (step.getY()) - position.y;
+					skipReachedSteps(position);
+
+					if (pathToTarget.hasCurrentStep()) {
+						int stepX = pathToTarget.getCurrentX();
+						int stepY = pathToTarget.getCurrentY();
+
+						// paths are found without regard to other actors; walking into one would start a fight, so wait
+						// for it to move on, for a while
+						if (map.getActorAt(stepX, stepY) != null) {
+							if (++blockedTurns > MAX_BLOCKED_TURNS)
+								currentTargetLocation = null;
+							return actor.actions().waitAction();
+						}
+						blockedTurns = 0;
+						int ssx = stepX - position.x;
+						int ssy = stepY - position.y;
 
 						DirectionIntercardinal direction = DirectionIntercardinal.getDirection(ssx, ssy);
-						if (map.getTileAt(step.getX(), step.getY()).canPass())
-							return new WalkAction(actor, map, direction);
+						if (map.getTileAt(stepX, stepY).canPass())
+							return actor.actions().walk(map, direction);
 						else
 							LOG.warn("Invalid walk action!!!");
 					}
@@ -122,7 +140,45 @@ public class MoveToRandomPointBehavior extends Behavior {
 			}
 		}
 		LOG.debug("Resting, no path to target point...");
-		return new WaitAction(actor);
+		return actor.actions().waitAction();
+	}
+
+	@Override
+	public Action getPlannedAction() {
+		if (pathToTarget == null)
+			return null;
+
+		Point position = actor.getPosition();
+		skipReachedSteps(position);
+		if (!pathToTarget.hasCurrentStep())
+			return null;
+
+		int stepX = pathToTarget.getCurrentX();
+		int stepY = pathToTarget.getCurrentY();
+		if (Math.abs(stepX - position.x) > 1 || Math.abs(stepY - position.y) > 1 || !map.getTileAt(stepX, stepY).canPass()
+				|| map.getActorAt(stepX, stepY) != null)
+			return null;
+
+		return actor.actions().walk(map, DirectionIntercardinal.getDirection(stepX - position.x, stepY - position.y));
+	}
+
+	/**
+	 * Moves the path's cursor past the steps the actor has already taken. The cursor only moves on once the actor is
+	 * seen to have got there, so a walk chosen but never taken (say, because it was decided again) is tried again.
+	 */
+	private void skipReachedSteps(Point position) {
+		while (pathToTarget.hasCurrentStep() && pathToTarget.getCurrentX() == position.x && pathToTarget.getCurrentY() == position.y)
+			pathToTarget.nextStep();
+	}
+
+	@Override
+	public void onRelocated() {
+		if (pathRequest != null)
+			pathRequest.cancel();
+
+		currentTargetLocation = null;
+		pathToTarget = null;
+		pathRequest = null;
 	}
 
 	@Override
@@ -11,7 +11,6 @@ import roguelike.actions.RangedAttackAction;
 import roguelike.actions.ShowMessagesAction;
 import roguelike.actions.StairsDownAction;
 import roguelike.actions.StairsUpAction;
-import roguelike.actions.WaitAction;
 import roguelike.actions.WalkAction;
 import roguelike.actors.Actor;
 import roguelike.items.RangedWeapon;
@@ -68,7 +67,7 @@ public class PlayerInputBehavior extends Behavior {
 			return walk(DirectionIntercardinal.DOWN);
 
 		case REST:
-			return new WaitAction(actor);
+			return actor.actions().waitAction();
 
 		case INVENTORY:
 			return new InventoryAction(actor);
@@ -5,12 +5,9 @@ import org.apache.logging.log4j.Logger;
 
 import roguelike.Game;
 import roguelike.actions.Action;
-import roguelike.actions.WaitAction;
-import roguelike.actions.WalkAction;
 import roguelike.actors.Actor;
 import roguelike.actors.AttackAttempt;
 import roguelike.maps.MapArea;
-import roguelike.util.Coordinate;
 import squidpony.squidgrid.util.DirectionIntercardinal;
 
 public class RandomWalkBehavior extends Behavior {
@@ -45,11 +42,12 @@ public class RandomWalkBehavior extends Behavior {
             direction = DirectionIntercardinal.RIGHT;
         }
 
-        Coordinate pos = actor.getPosition().createOffsetPosition(direction);
-        if (map.canMoveTo(actor, pos) && map.getActorAt(pos.x, pos.y) == null)
-            return new WalkAction(actor, map, direction);
+        int x = actor.getPosition().x + direction.deltaX;
+        int y = actor.getPosition().y + direction.deltaY;
+        if (map.canMoveTo(actor, x, y) && map.getActorAt(x, y) == null)
+            return actor.actions().walk(map, direction);
 
-        return new WaitAction(actor);
+        return actor.actions().waitAction();
     }
 
     @Override
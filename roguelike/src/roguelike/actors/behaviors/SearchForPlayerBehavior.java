@@ -1,21 +1,14 @@
 package roguelike.actors.behaviors;
 
 import java.awt.Point;
-import java.io.IOException;
-import java.io.ObjectInputStream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import roguelike.Game;
 import roguelike.actions.Action;
-import roguelike.actions.WaitAction;
-import roguelike.actions.WalkAction;
 import roguelike.actors.Actor;
-import roguelike.maps.AStarPathfinder;
 import roguelike.maps.MapArea;
-import roguelike.maps.Path;
-import roguelike.maps.Path.Step;
 import squidpony.squidgrid.util.DirectionIntercardinal;
 
 public class SearchForPlayerBehavior extends EnemyBehavior {
@@ -24,21 +17,13 @@ public class SearchForPlayerBehavior extends EnemyBehavior {
 	private static final long serialVersionUID = 1L;
 
 	private Point lastPlayerLocation;
-	private transient AStarPathfinder pathfinder;
-	private transient Path pathToTarget;
 	private MapArea map;
 
 	public SearchForPlayerBehavior(Actor actor) {
 		super(actor);
 		this.map = Game.current().getCurrentMapArea();
-
-		pathfinder = new AStarPathfinder(map, actor.getVisionRadius() * 2);
-	}
-
-	private void readObject(ObjectInputStream in) throws ClassNotFoundException, IOException {
-		in.defaultReadObject();
-
-		pathfinder = new AStarPathfinder(map, actor.getVisionRadius() * 2);
+		// keep searching if a turn passes without deciding, see getPlannedAction
+		this.nextBehavior = this;
 	}
 
 	@Override
@@ -64,27 +49,32 @@ public class SearchForPlayerBehavior extends EnemyBehavior {
 		// go towards player location
 		if (lastPlayerLocation != null) {
 
-			int sx = actor.getPosition().x;
-			int sy = actor.getPosition().y;
 			int tx = lastPlayerLocation.x;
 			int ty = lastPlayerLocation.y;
-			pathToTarget = pathfinder.findPath(map, sx, sy, tx, ty);
-			if (pathToTarget != null) {
-				pathToTarget.nextStep();
-				Step step = pathToTarget.getCurrentStep();
-				if (step != null) {
-					nextBehavior = this;
 
-					pathToTarget.nextStep();
-					int ssx = (step.getX()) - sx;
-					int ssy = (step.getY()) - sy;
-					return new WalkAction(actor, map, DirectionIntercardinal.getDirection(ssx, ssy));
+			// hunters closing in on the player's current position plan together so they don't run into each other
+			if (lastPlayerLocation.equals(player.getPosition())) {
+				DirectionIntercardinal direction = map.pathfinding().planCooperativeStep(actor, tx, ty);
+				if (direction == DirectionIntercardinal.NONE) {
+					nextBehavior = this;
+					return actor.actions().waitAction();
+				}
+				else if (direction != null) {
+					nextBehavior = this;
+					return actor.actions().walk(map, direction);
 				}
 			}
+
+			// otherwise keep repairing our own search as the target and the map change
+			DirectionIntercardinal direction = map.pathfinding().findNextStep(actor, tx, ty, actor.getVisionRadius() * 2);
+			if (direction != null) {
+				nextBehavior = this;
+				return actor.actions().walk(map, direction);
+			}
 		}
 		LOG.debug("Resting, no path to player...");
 		nextBehavior = new MoveToRandomPointBehavior(actor);
-		return new WaitAction(actor);
+		return actor.actions().waitAction();
 	}
 
 	@Override
@@ -98,6 +88,9 @@ public class SearchForPlayerBehavior extends EnemyBehavior {
 
 		Actor player = Game.current().getPlayer();
 		if (actor.canSee(player, map)) {
+			if (FleeBehavior.shouldFlee(actor))
+				return new FleeBehavior(actor);
+
 			if (canAttackTarget(player))
 				nextBehavior = new TargetedAttackBehavior(actor, player);
 		}
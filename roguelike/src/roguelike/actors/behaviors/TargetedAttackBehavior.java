@@ -6,7 +6,6 @@ import java.io.ObjectOutputStream;
 
 import roguelike.Game;
 import roguelike.actions.Action;
-import roguelike.actions.AttackAction;
 import roguelike.actors.Actor;
 import roguelike.actors.Player;
 import roguelike.util.Coordinate;
@@ -42,6 +41,11 @@ public class TargetedAttackBehavior extends EnemyBehavior {
 		return Player.isPlayer(target);
 	}
 
+	@Override
+	public boolean isHostileTo(Actor other) {
+		return other == target;
+	}
+
 	@Override
 	public Action getAction() {
 
@@ -54,7 +58,7 @@ public class TargetedAttackBehavior extends EnemyBehavior {
 
 			if (actor.canSee(target, Game.current().getCurrentMapArea())) {
 				nextBehavior = this;
-				return new AttackAction(actor, target);
+				return actor.actions().attack(target);
 			}
 			else {
 				Game.current().displayMessage(target.getName() + " is no longer in sight range.");
@@ -71,9 +75,21 @@ public class TargetedAttackBehavior extends EnemyBehavior {
 		return nextBehavior.getAction();
 	}
 
+	@Override
+	public Action getPlannedAction() {
+		// keep swinging at a target that's still within reach
+		if (target.isAlive() && actor.isAdjacentTo(target))
+			return actor.actions().attack(target);
+
+		return null;
+	}
+
 	@Override
 	public Behavior getNextBehavior() {
 		if (actor.isAlive()) {
+			if (Player.isPlayer(target) && FleeBehavior.shouldFlee(actor))
+				return new FleeBehavior(actor);
+
 			return nextBehavior;
 		}
 		return null;
@@ -1,9 +1,6 @@
 package roguelike.maps;
 
-import java.awt.Point;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Objects;
+import java.util.Arrays;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -11,57 +8,111 @@ import org.apache.logging.log4j.Logger;
 public class AStarPathfinder {
     private static final Logger LOG = LogManager.getLogger(AStarPathfinder.class);
 
-    /** The set of nodes that have been searched through */
-    private ArrayList<Node> closed = new ArrayList<>();
-    /** The set of nodes that we do not yet consider fully searched */
-    private SortedList open = new SortedList();
+    /** Cost of entering a tile per point of speed it takes away; one step further from the target costs 1 */
+    private static final float SLOW_TILE_COST = 0.1f;
 
     /** The map being searched */
     private MapArea map;
     /** The maximum depth of search we're willing to accept before giving up */
     private int maxSearchDistance;
 
-    /** The complete set of nodes across the map */
-    private Node[][] nodes;
+    private final int width;
+    private final int height;
+
+    /**
+     * Per-node search state, indexed by x + y * width. An entry is only meaningful when visited[node] equals the
+     * current generation, so nothing has to be cleared between searches. A visited node that is no longer in the open
+     * heap is closed.
+     */
+    private final float[] cost;
+    private final int[] parent;
+    private final int[] depth;
+    private final int[] visited;
+    private int generation;
+
+    /** The number of nodes expanded by the last search */
+    private int nodesExpanded;
+
+    /** The set of nodes that we do not yet consider fully searched */
+    private final NodeHeap open;
+
+    /**
+     * Create a path finder with no search depth limit other than the size of the map
+     *
+     * @param map The map to be searched
+     */
+    public AStarPathfinder(MapArea map) {
+        this(map, map.width() * map.height());
+    }
 
     /**
      * Create a path finder
-     * 
-     * @param heuristic         The heuristic used to determine the search order of
-     *                          the map
+     *
      * @param map               The map to be searched
      * @param maxSearchDistance The maximum depth we'll search before giving up
-     * @param allowDiagMovement True if the search should try diaganol movement
      */
     public AStarPathfinder(MapArea map, int maxSearchDistance) {
         this.map = map;
         this.maxSearchDistance = maxSearchDistance;
-
-        nodes = new Node[map.width()][map.height()];
-        for (int x = 0; x < map.width(); x++) {
-            for (int y = 0; y < map.height(); y++) {
-                nodes[x][y] = new Node(x, y);
-            }
-        }
+        this.width = map.width();
+        this.height = map.height();
+
+        int size = width * height;
+        cost = new float[size];
+        parent = new int[size];
+        depth = new int[size];
+        visited = new int[size];
+        open = new NodeHeap(size);
     }
 
     /**
-     * @see PathFinder#findPath(Mover, int, int, int, int)
+     * Finds a path between two points on the map.
+     *
+     * @param map The map to search. Must have the same dimensions as the map this pathfinder was created for.
+     * @param sx  The x coordinate of the start location
+     * @param sy  The y coordinate of the start location
+     * @param tx  The x coordinate of the target location
+     * @param ty  The y coordinate of the target location
+     * @return The path found, including the start location as the first step, or null if no path could be found
      */
     public Path findPath(MapArea map, int sx, int sy, int tx, int ty) {
+        return findPath(map, sx, sy, tx, ty, maxSearchDistance);
+    }
+
+    /**
+     * Finds a path between two points on the map, overriding the maximum search depth this pathfinder was created
+     * with.
+     *
+     * @param map               The map to search. Must have the same dimensions as the map this pathfinder was
+     *                          created for.
+     * @param sx                The x coordinate of the start location
+     * @param sy                The y coordinate of the start location
+     * @param tx                The x coordinate of the target location
+     * @param ty                The y coordinate of the target location
+     * @param maxSearchDistance The maximum depth we'll search before giving up
+     * @return The path found, including the start location as the first step, or null if no path could be found
+     */
+    public Path findPath(MapArea map, int sx, int sy, int tx, int ty, int maxSearchDistance) {
 
         LOG.debug("Finding path from {}, {} to {}, {}", sx, sy, tx, ty);
 
+        this.map = map;
+        nextGeneration();
+        nodesExpanded = 0;
+
+        int start = sx + sy * width;
+        int target = tx + ty * width;
+
         // initial state for A*. The closed group is empty. Only the starting
         // tile is in the open list and it's cost is zero, i.e. we're already
         // there
-        nodes[sx][sy].cost = 0;
-        nodes[sx][sy].depth = 0;
-        closed.clear();
-        open.clear();
-        open.add(nodes[sx][sy]);
+        visited[start] = generation;
+        cost[start] = 0;
+        depth[start] = 0;
+        parent[start] = -1;
 
-        nodes[tx][ty].parent = null;
+        open.clear();
+        open.add(start, MapHelpers.distance(sx, sy, tx, ty));
 
         // while we haven't found the goal and haven't exceeded our max search
         // depth
@@ -69,51 +120,56 @@ public class AStarPathfinder {
         while ((maxDepth < maxSearchDistance) && (open.size() != 0)) {
             // pull out the first node in our open list, this is determined to
             // be the most likely to be the next step based on our heuristic
-            Node current = getFirstInOpen();
-            if (current == nodes[tx][ty]) {
+            int current = open.peek();
+            if (current == target) {
                 break;
             }
 
-            removeFromOpen(current);
-            addToClosed(current);
+            open.poll();
+            nodesExpanded++;
+
+            int cx = current % width;
+            int cy = current / width;
 
-            ArrayList<Point> neighbors = MapHelpers.getNeighbors(map, current.x, current.y, 1);
             // search through all the neighbours of the current node evaluating
             // them as next steps
-            for (Point n : neighbors) {
-                int xp = n.x;
-                int yp = n.y;
-                float nextStepCost = current.cost + getMovementCost(current.x, current.y, xp, yp);
-                Node neighbor = nodes[xp][yp];
-                if (nextStepCost < neighbor.cost) {
-                    if (inOpenList(neighbor))
-                        removeFromOpen(neighbor);
-                    if (inClosedList(neighbor))
-                        removeFromClosed(neighbor);
-                }
-                if (!inOpenList(neighbor) && !inClosedList(neighbor)) {
-                    neighbor.cost = nextStepCost;
-                    neighbor.heuristic = MapHelpers.distance(xp, yp, tx, ty);
-                    maxDepth = Math.max(maxDepth, neighbor.setParent(current));
-                    addToOpen(neighbor);
-                }
+            for (int n = 0; n < MapHelpers.DIRECTIONS; n++) {
+                int neighbor = MapHelpers.getNeighborIndex(width, height, cx, cy, n);
+                if (neighbor < 0)
+                    continue;
+
+                int xp = cx + MapHelpers.neighborX(n);
+                int yp = cy + MapHelpers.neighborY(n);
+                float nextStepCost = cost[current] + getMovementCost(cx, cy, xp, yp);
+
+                // already reached this node at least as cheaply
+                if (visited[neighbor] == generation && nextStepCost >= cost[neighbor])
+                    continue;
+
+                visited[neighbor] = generation;
+                cost[neighbor] = nextStepCost;
+                parent[neighbor] = current;
+                depth[neighbor] = depth[current] + 1;
+                maxDepth = Math.max(maxDepth, depth[neighbor]);
+
+                open.addOrUpdate(neighbor, nextStepCost + MapHelpers.distance(xp, yp, tx, ty));
             }
         }
 
         // since we've got an empty open list or we've run out of search
         // there was no path. Just return null
-        if (nodes[tx][ty].parent == null) {
+        if (target == start || visited[target] != generation) {
             return null;
         }
 
         // At this point we've definitely found a path so we can uses the parent
         // references of the nodes to find out way from the target location back
         // to the start recording the nodes on the way.
-        Path path = new Path();
-        Node target = nodes[tx][ty];
-        while (target != nodes[sx][sy]) {
-            path.prependStep(target.x, target.y);
-            target = target.parent;
+        Path path = new Path(depth[target] + 1);
+        int node = target;
+        while (node != start) {
+            path.prependStep(node % width, node / width);
+            node = parent[node];
         }
         path.prependStep(sx, sy);
 
@@ -122,79 +178,30 @@ public class AStarPathfinder {
     }
 
     /**
-     * Get the first element from the open list. This is the next one to be
-     * searched.
-     * 
-     * @return The first element in the open list
-     */
-    protected Node getFirstInOpen() {
-        return (Node) open.first();
-    }
-
-    /**
-     * Add a node to the open list
-     * 
-     * @param node The node to be added to the open list
-     */
-    protected void addToOpen(Node node) {
-        open.add(node);
-    }
-
-    /**
-     * Check if a node is in the open list
-     * 
-     * @param node The node to check for
-     * @return True if the node given is in the open list
+     * @return The number of nodes expanded by the most recent search
      */
-    protected boolean inOpenList(Node node) {
-        return open.contains(node);
+    public int getNodesExpanded() {
+        return nodesExpanded;
     }
 
     /**
-     * Remove a node from the open list
-     * 
-     * @param node The node to remove from the open list
+     * Starts a new search generation, invalidating all per-node state from the previous search.
      */
-    protected void removeFromOpen(Node node) {
-        open.remove(node);
-    }
-
-    /**
-     * Add a node to the closed list
-     * 
-     * @param node The node to add to the closed list
-     */
-    protected void addToClosed(Node node) {
-        closed.add(node);
-    }
-
-    /**
-     * Check if the node supplied is in the closed list
-     * 
-     * @param node The node to search for
-     * @return True if the node specified is in the closed list
-     */
-    protected boolean inClosedList(Node node) {
-        return closed.contains(node);
-    }
-
-    /**
-     * Remove a node from the closed list
-     * 
-     * @param node The node to remove from the closed list
-     */
-    protected void removeFromClosed(Node node) {
-        closed.remove(node);
+    private void nextGeneration() {
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            generation = 0;
+        }
+        generation++;
     }
 
     /**
      * Check if a given location is valid for the supplied mover
-     * 
-     * @param mover The mover that would hold a given location
-     * @param sx    The starting x coordinate
-     * @param sy    The starting y coordinate
-     * @param x     The x coordinate of the location to check
-     * @param y     The y coordinate of the location to check
+     *
+     * @param sx The starting x coordinate
+     * @param sy The starting y coordinate
+     * @param x  The x coordinate of the location to check
+     * @param y  The y coordinate of the location to check
      * @return True if the location is valid for the given mover
      */
     protected boolean isValidLocation(int sx, int sy, int x, int y) {
@@ -210,184 +217,33 @@ public class AStarPathfinder {
 
     /**
      * Get the cost to move through a given location
-     * 
-     * @param mover The entity that is being moved
-     * @param sx    The x coordinate of the tile whose cost is being determined
-     * @param sy    The y coordinate of the tile whose cost is being determined
-     * @param tx    The x coordinate of the target location
-     * @param ty    The y coordinate of the target location
+     *
+     * @param sx The x coordinate of the tile whose cost is being determined
+     * @param sy The y coordinate of the tile whose cost is being determined
+     * @param tx The x coordinate of the target location
+     * @param ty The y coordinate of the target location
      * @return The cost of movement through the given tile
      */
     public float getMovementCost(int sx, int sy, int tx, int ty) {
-        return ((map.getActorAt(tx, ty) != null) || !map.getTileAt(tx, ty).canPass()) ? 999 : 0;
+        Tile tile = map.getTileAt(tx, ty);
+        if ((map.getActorAt(tx, ty) != null) || !tile.canPass())
+            return 999;
+
+        // ground that slows actors down (a negative modifier) is worth a short detour
+        return Math.max(0, -tile.speedModifier) * SLOW_TILE_COST;
     }
 
     /**
      * Get the heuristic cost for the given location. This determines in which order
      * the locations are processed.
-     * 
-     * @param mover The entity that is being moved
-     * @param x     The x coordinate of the tile whose cost is being determined
-     * @param y     The y coordiante of the tile whose cost is being determined
-     * @param tx    The x coordinate of the target location
-     * @param ty    The y coordinate of the target location
+     *
+     * @param x  The x coordinate of the tile whose cost is being determined
+     * @param y  The y coordiante of the tile whose cost is being determined
+     * @param tx The x coordinate of the target location
+     * @param ty The y coordinate of the target location
      * @return The heuristic cost assigned to the tile
      */
     public float getHeuristicCost(int x, int y, int tx, int ty) {
         return (float) Math.floor(MapHelpers.distanceSq(x, y, tx, ty));
     }
-
-    /**
-     * A simple sorted list
-     * 
-     * @author kevin
-     */
-    private class SortedList {
-        /** The list of elements */
-        private ArrayList<Node> list = new ArrayList<>();
-
-        /**
-         * Retrieve the first element from the list
-         * 
-         * @return The first element from the list
-         */
-        public Object first() {
-            return list.get(0);
-        }
-
-        /**
-         * Empty the list
-         */
-        public void clear() {
-            list.clear();
-        }
-
-        /**
-         * Add an element to the list - causes sorting
-         * 
-         * @param o The element to add
-         */
-        public void add(Node o) {
-            list.add(o);
-            Collections.sort(list);
-        }
-
-        /**
-         * Remove an element from the list
-         * 
-         * @param o The element to remove
-         */
-        public void remove(Node o) {
-            list.remove(o);
-        }
-
-        /**
-         * Get the number of elements in the list
-         * 
-         * @return The number of element in the list
-         */
-        public int size() {
-            return list.size();
-        }
-
-        /**
-         * Check if an element is in the list
-         * 
-         * @param o The element to search for
-         * @return True if the element is in the list
-         */
-        public boolean contains(Node o) {
-            return list.contains(o);
-        }
-    }
-
-    /**
-     * A single node in the search graph
-     */
-    private class Node implements Comparable<Node> {
-        /** The x coordinate of the node */
-        private int x;
-        /** The y coordinate of the node */
-        private int y;
-        /** The path cost for this node */
-        private float cost;
-        /** The parent of this node, how we reached it in the search */
-        private Node parent;
-        /** The heuristic cost of this node */
-        private float heuristic;
-        /** The search depth of this node */
-        private int depth;
-
-        /**
-         * Create a new node
-         * 
-         * @param x The x coordinate of the node
-         * @param y The y coordinate of the node
-         */
-        public Node(int x, int y) {
-            this.x = x;
-            this.y = y;
-        }
-
-        /**
-         * Set the parent of this node
-         * 
-         * @param parent The parent node which lead us to this node
-         * @return The depth we have no reached in searching
-         */
-        public int setParent(Node parent) {
-            depth = parent.depth + 1;
-            this.parent = parent;
-
-            return depth;
-        }
-
-        /**
-         * @see Comparable#compareTo(Node)
-         */
-        public int compareTo(Node other) {
-            Node o = other;
-
-            float f = heuristic + cost;
-            float of = o.heuristic + o.cost;
-
-            if (f < of) {
-                return -1;
-            }
-            else if (f > of) {
-                return 1;
-            }
-            else {
-                return 0;
-            }
-        }
-
-        /**
-         * @see Object#equals(Object)
-         */
-        public boolean equals(Object other) {
-            if (other instanceof Node) {
-                Node o = (Node) other;
-
-                return (o.x == x) && (o.y == y);
-            }
-
-            return false;
-        }
-
-        @Override
-        public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + getEnclosingInstance().hashCode();
-            result = prime * result + Objects.hash(cost, depth, heuristic, parent, x, y);
-            return result;
-        }
-
-        private AStarPathfinder getEnclosingInstance() {
-            return AStarPathfinder.this;
-        }
-
-    }
-
 }
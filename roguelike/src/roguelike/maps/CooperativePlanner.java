@@ -0,0 +1,171 @@
+package roguelike.maps;
+
+import java.util.Arrays;
+
+import roguelike.actors.Actor;
+import squidpony.squidgrid.util.DirectionIntercardinal;
+
+/**
+ * Windowed cooperative A* (WHCA*). An actor's next few turns are searched in space and time, with waiting in place as
+ * a move, avoiding tiles other actors have reserved for the ticks the actor would be there, however fast each of them
+ * moves. The chosen plan is then reserved in turn, so actors planning later route around it instead of bumping into it.
+ *
+ * Beyond the window, the remaining distance comes from a distance map to the goal, so the window only has to deal with
+ * the crowd nearby.
+ *
+ * Instances hold scratch buffers and are not thread safe; PathfindingService hands them out one search at a time.
+ */
+class CooperativePlanner {
+	private static final int WINDOW = ReservationTable.WINDOW;
+
+	/** Moves to try from each state: the eight neighbors (cardinals first), then waiting */
+	private static final int[] MOVE_X = { 0, 1, 0, -1, -1, 1, 1, -1, 0 };
+	private static final int[] MOVE_Y = { -1, 0, 1, 0, -1, -1, 1, 1, 0 };
+
+	private final int width;
+	private final int height;
+	private final int tiles;
+
+	/* search state, indexed by depth * tiles + tile */
+	private final int[] cost;
+	private final int[] parent;
+	private final int[] visited;
+	private final NodeHeap open;
+	private int generation;
+
+	private final int[] plan = new int[WINDOW + 1];
+	private int nodesExpanded;
+
+	CooperativePlanner(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.tiles = width * height;
+
+		int states = tiles * (WINDOW + 1);
+		cost = new int[states];
+		parent = new int[states];
+		visited = new int[states];
+		open = new NodeHeap(states);
+	}
+
+	/**
+	 * Plans the actor's next few turns towards a goal and reserves them.
+	 *
+	 * @param map
+	 * @param reservations
+	 * @param distances
+	 *            Distance map to the goal
+	 * @param actor
+	 * @param tx
+	 *            The x coordinate of the goal
+	 * @param ty
+	 *            The y coordinate of the goal
+	 * @param tick
+	 *            The scheduler tick the actor is taking its turn on
+	 * @param ticksPerTurn
+	 *            How many ticks pass between the actor's turns
+	 * @return The direction to move this turn, NONE to wait, or null if the goal can't be reached
+	 */
+	DirectionIntercardinal planStep(MapArea map, ReservationTable reservations, DijkstraMap distances, Actor actor, int tx,
+			int ty, long tick, int ticksPerTurn) {
+		nodesExpanded = 0;
+
+		int sx = actor.getPosition().x;
+		int sy = actor.getPosition().y;
+		if (distances.getValue(sx, sy) == DijkstraMap.UNREACHABLE)
+			return null;
+
+		int start = sx + sy * width;
+		int goal = tx + ty * width;
+
+		nextGeneration();
+		open.clear();
+		visited[start] = generation;
+		cost[start] = 0;
+		parent[start] = -1;
+		open.add(start, distances.getValue(sx, sy));
+
+		int end = -1;
+		while (open.size() > 0) {
+			int state = open.poll();
+			nodesExpanded++;
+
+			int depth = state / tiles;
+			int tile = state % tiles;
+			if (tile == goal || depth == WINDOW) {
+				end = state;
+				break;
+			}
+
+			int x = tile % width;
+			int y = tile / width;
+			for (int m = 0; m < MOVE_X.length; m++) {
+				int xp = x + MOVE_X[m];
+				int yp = y + MOVE_Y[m];
+				float remaining = distances.getValue(xp, yp);
+				if (remaining == DijkstraMap.UNREACHABLE)
+					continue;
+
+				int next = xp + yp * width;
+				if (next != goal) {
+					// whoever stands there now won't have moved out of the way before our first step
+					if (depth == 0 && next != tile && map.getActorAt(xp, yp) != null)
+						continue;
+
+					long arrival = tick + (long) depth * ticksPerTurn;
+					if (reservations.isReserved(xp, yp, arrival, arrival + ticksPerTurn, actor))
+						continue;
+				}
+
+				int nextState = (depth + 1) * tiles + next;
+				int nextCost = cost[state] + 1;
+				if (visited[nextState] == generation && nextCost >= cost[nextState])
+					continue;
+
+				visited[nextState] = generation;
+				cost[nextState] = nextCost;
+				parent[nextState] = state;
+				open.addOrUpdate(nextState, nextCost + remaining);
+			}
+		}
+
+		if (end == -1 || end == start) {
+			reservations.release(actor);
+			return null;
+		}
+
+		/* the tile occupied at the end of each turn; attacking the goal leaves the actor where it was */
+		int length = end / tiles;
+		for (int state = end; state != -1; state = parent[state])
+			plan[state / tiles] = state % tiles;
+
+		for (int i = 1; i <= length; i++) {
+			if (plan[i] == goal)
+				plan[i] = plan[i - 1];
+		}
+
+		reservations.reserve(actor, plan, 1, length, tick, ticksPerTurn);
+
+		int first = end;
+		while (parent[first] != start)
+			first = parent[first];
+
+		int next = first % tiles;
+		return DirectionIntercardinal.getDirection(next % width - sx, next / width - sy);
+	}
+
+	/**
+	 * @return The number of states expanded by the most recent plan
+	 */
+	int getNodesExpanded() {
+		return nodesExpanded;
+	}
+
+	private void nextGeneration() {
+		if (generation == Integer.MAX_VALUE) {
+			Arrays.fill(visited, 0);
+			generation = 0;
+		}
+		generation++;
+	}
+}
@@ -0,0 +1,225 @@
+package roguelike.maps;
+
+import java.util.Arrays;
+
+import squidpony.squidgrid.util.DirectionIntercardinal;
+
+/**
+ * A distance field over a map ("Dijkstra map"). Every passable tile holds its distance to the nearest goal, so an actor
+ * can head towards the goals by stepping to whichever neighbor has the lowest value, without running a search of its
+ * own. One scan serves every actor sharing the same goals.
+ *
+ * Movement is 8-way with every step costing 1. Doors count as passable since walking into one opens it.
+ */
+public class DijkstraMap {
+	public static final float UNREACHABLE = Float.POSITIVE_INFINITY;
+
+	/** Default multiplier used when turning a chase map into a flee map */
+	public static final float DEFAULT_FLEE_COEFFICIENT = -1.2f;
+
+	private final int width;
+	private final int height;
+
+	private final float[] values;
+	private final boolean[] passable;
+
+	private final int[] goals;
+	private int goalCount;
+
+	private final int[] queue;
+	private NodeHeap heap;
+
+	public DijkstraMap(int width, int height) {
+		this.width = width;
+		this.height = height;
+
+		int size = width * height;
+		values = new float[size];
+		passable = new boolean[size];
+		goals = new int[size];
+		queue = new int[size];
+
+		Arrays.fill(values, UNREACHABLE);
+	}
+
+	public int width() {
+		return width;
+	}
+
+	public int height() {
+		return height;
+	}
+
+	/**
+	 * Removes all goals. The current values are kept until the next scan.
+	 */
+	public void clearGoals() {
+		goalCount = 0;
+	}
+
+	/**
+	 * Adds a goal tile. Goals are distance 0 on the next scan.
+	 *
+	 * @param x
+	 * @param y
+	 */
+	public void addGoal(int x, int y) {
+		if (!MapHelpers.isWithinBounds(width, height, x, y))
+			return;
+
+		goals[goalCount++] = x + y * width;
+	}
+
+	public int getGoalCount() {
+		return goalCount;
+	}
+
+	/**
+	 * Recomputes the distance from every tile to the nearest goal with a breadth-first search.
+	 *
+	 * @param map
+	 *            The map whose walkability is used; must be the same size as this DijkstraMap
+	 */
+	public void scan(MapArea map) {
+		updatePassable(map);
+		Arrays.fill(values, UNREACHABLE);
+
+		int head = 0;
+		int tail = 0;
+		for (int i = 0; i < goalCount; i++) {
+			int goal = goals[i];
+			if (values[goal] != 0) {
+				values[goal] = 0;
+				queue[tail++] = goal;
+			}
+		}
+
+		while (head < tail) {
+			int current = queue[head++];
+			int cx = current % width;
+			int cy = current / width;
+			float next = values[current] + 1;
+
+			for (int n = 0; n < MapHelpers.DIRECTIONS; n++) {
+				int neighbor = MapHelpers.getNeighborIndex(width, height, cx, cy, n);
+				if (neighbor < 0)
+					continue;
+				if (passable[neighbor] && values[neighbor] == UNREACHABLE) {
+					values[neighbor] = next;
+					queue[tail++] = neighbor;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Overwrites this map with a rescaled copy of the source map, then re-relaxes it. With a negative coefficient this
+	 * gives a flee map: descending it leads away from the source's goals, but around dead ends rather than into them.
+	 *
+	 * @param source
+	 *            A scanned map of the same size
+	 * @param map
+	 *            The map whose walkability is used
+	 * @param coefficient
+	 *            Multiplier applied to each of the source's values; {@link #DEFAULT_FLEE_COEFFICIENT} is a good default for
+	 *            fleeing
+	 */
+	public void updateFrom(DijkstraMap source, MapArea map, float coefficient) {
+		updatePassable(map);
+		goalCount = 0;
+
+		if (heap == null)
+			heap = new NodeHeap(values.length);
+		heap.clear();
+
+		for (int i = 0; i < values.length; i++) {
+			float value = source.values[i];
+			if (value == UNREACHABLE || !passable[i]) {
+				values[i] = UNREACHABLE;
+			} else {
+				values[i] = value * coefficient;
+				heap.add(i, values[i]);
+			}
+		}
+
+		while (heap.size() > 0) {
+			int current = heap.poll();
+			int cx = current % width;
+			int cy = current / width;
+			float next = values[current] + 1;
+
+			for (int n = 0; n < MapHelpers.DIRECTIONS; n++) {
+				int neighbor = MapHelpers.getNeighborIndex(width, height, cx, cy, n);
+				if (neighbor < 0)
+					continue;
+				if (next < values[neighbor] && heap.contains(neighbor)) {
+					values[neighbor] = next;
+					heap.update(neighbor, next);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 * @return The value at the given tile, or UNREACHABLE if it is out of bounds or cannot reach a goal
+	 */
+	public float getValue(int x, int y) {
+		if (!MapHelpers.isWithinBounds(width, height, x, y))
+			return UNREACHABLE;
+
+		return values[x + y * width];
+	}
+
+	/**
+	 * Picks the step that goes furthest downhill from the given tile. Tiles holding an actor are skipped unless they are
+	 * a goal, so a chasing actor will step into (attack) its target but route around everything else.
+	 *
+	 * @param map
+	 *            The map the actor is on
+	 * @param x
+	 * @param y
+	 * @return The direction to walk, or null if no neighbor is lower than the current tile
+	 */
+	public DirectionIntercardinal getDirection(MapArea map, int x, int y) {
+		float best = getValue(x, y);
+		int bestX = 0;
+		int bestY = 0;
+		boolean found = false;
+
+		for (int n = 0; n < MapHelpers.DIRECTIONS; n++) {
+			int neighbor = MapHelpers.getNeighborIndex(width, height, x, y, n);
+			if (neighbor < 0)
+				continue;
+
+			float value = values[neighbor];
+			if (value >= best)
+				continue;
+
+			boolean goal = goalCount > 0 && value == 0;
+			int dx = MapHelpers.neighborX(n);
+			int dy = MapHelpers.neighborY(n);
+			if (!goal && map.getActorAt(x + dx, y + dy) != null)
+				continue;
+
+			best = value;
+			bestX = dx;
+			bestY = dy;
+			found = true;
+		}
+
+		if (!found)
+			return null;
+
+		return DirectionIntercardinal.getDirection(bestX, bestY);
+	}
+
+	private void updatePassable(MapArea map) {
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				passable[x + y * width] = MapHelpers.isWalkable(map.getTileAt(x, y));
+			}
+		}
+	}
+}
@@ -4,6 +4,13 @@ public class Door extends Tile {
 	private static final long serialVersionUID = 1L;
 
 	private boolean isOpen;
+	/** Where the door is, set by the map it's on */
+	private transient int x, y;
+
+	void locate(int x, int y) {
+		this.x = x;
+		this.y = y;
+	}
 
 	public void open(MapArea map) {
 		if (!isOpen) {
@@ -12,7 +19,7 @@ public class Door extends Tile {
 			wall = false;
 			lighting = 0f;
 
-			map.updateValues(); // visibility changed, update
+			map.tileChanged(x, y); // visibility changed, update
 		}
 	}
 
@@ -23,7 +30,7 @@ public class Door extends Tile {
 			wall = true;
 			lighting = 1f;
 
-			map.updateValues(); // visibility changed, update
+			map.tileChanged(x, y); // visibility changed, update
 		}
 	}
 
@@ -15,7 +15,6 @@ import roguelike.util.CollectionUtils;
 import roguelike.util.Symbol;
 import squidpony.squidcolor.SColor;
 import squidpony.squidgrid.util.DirectionCardinal;
-import squidpony.squidutility.ProbabilityTable;
 
 public class DungeonMapBuilder extends MapBuilderBase {
     private static final Logger LOG = LogManager.getLogger(DungeonMapBuilder.class);
@@ -111,6 +110,11 @@ public class DungeonMapBuilder extends MapBuilderBase {
 		createRandomPools();
 	}
 
+	@Override
+	public RoomGraph buildRoomGraph(Tile[][] map) {
+		return RoomGraph.build(map, rooms);
+	}
+
 	private Room chooseRandomStartRoom() {
 		MapSection startInSection = randomMapSection();
 		Rectangle startingArea = getRandomRectangleInside(startInSection.area);
@@ -403,13 +407,22 @@ public class DungeonMapBuilder extends MapBuilderBase {
 	}
 
 	private MapSection randomMapSection() {
-		ProbabilityTable<MapSection> sections = new ProbabilityTable<>();
-
-		for (MapSection section : mapSections) {
-			sections.add(section, (int) (((section.floorSpaces / (float) section.totalSpaces) + 1) * 100));
+		// weighted towards sections with more floor; picked with the map's own random so a seed gives the same map
+		int[] weights = new int[mapSections.size()];
+		int total = 0;
+		for (int i = 0; i < weights.length; i++) {
+			MapSection section = mapSections.get(i);
+			weights[i] = (int) (((section.floorSpaces / (float) section.totalSpaces) + 1) * 100);
+			total += weights[i];
 		}
 
-		return sections.random();
+		int roll = random.nextInt(total);
+		for (int i = 0; i < weights.length; i++) {
+			roll -= weights[i];
+			if (roll < 0)
+				return mapSections.get(i);
+		}
+		return mapSections.get(weights.length - 1);
 	}
 
 	private void addStairsUp(Point point) {
@@ -0,0 +1,119 @@
+package roguelike.maps;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+
+/**
+ * Works out many {@link FieldRequest}s over the same light resistance grid at once, such as every light source that
+ * moved this turn. The requests don't depend on each other, so they are spread over a fork/join pool shared by all
+ * batches; each fills only its own buffer, so the results are the same however the work is divided up. The results
+ * can then be merged onto a grid with a {@link Combiner}.
+ *
+ * The grid must not change while a batch is being worked out.
+ */
+public class FieldBatch {
+	/** How field results that overlap are merged */
+	public enum Combiner {
+		/** The strongest field wins, as for whether anyone can see a tile */
+		MAX,
+		/** Fields add up, as for light */
+		SUM
+	}
+
+	/** Below this many requests, they are worked out on the calling thread */
+	private static final int MIN_PARALLEL_REQUESTS = 4;
+
+	private static final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+	/** The solver keeps scratch buffers, so each thread needs its own */
+	private static final ThreadLocal<TranslucentFOV> solver = ThreadLocal.withInitial(TranslucentFOV::new);
+
+	private FieldBatch() {
+	}
+
+	/**
+	 * Works out the given requests, in parallel if there are enough of them.
+	 *
+	 * @param resistances
+	 *            Light resistance by [x][y], such as {@link MapArea#getLightValues()}
+	 * @param requests
+	 */
+	public static void compute(float[][] resistances, List<? extends FieldRequest> requests) {
+		if (requests.isEmpty())
+			return;
+
+		if (requests.size() < MIN_PARALLEL_REQUESTS || pool.getParallelism() < 2) {
+			for (FieldRequest request : requests)
+				compute(resistances, request);
+		} else {
+			pool.submit(() -> requests.parallelStream().forEach(request -> compute(resistances, request))).join();
+		}
+	}
+
+	/**
+	 * Works out one request on the calling thread.
+	 *
+	 * @param resistances
+	 * @param request
+	 */
+	public static void compute(float[][] resistances, FieldRequest request) {
+		int width = resistances.length;
+		int height = resistances[0].length;
+
+		int left = Math.max(0, request.x - request.radius);
+		int top = Math.max(0, request.y - request.radius);
+		int windowWidth = Math.min(width, request.x + request.radius + 1) - left;
+		int windowHeight = Math.min(height, request.y + request.radius + 1) - top;
+
+		// only the square the field can reach is solved over, straight into the request's buffer
+		solver.get().calculate(resistances, left, top, windowWidth, windowHeight, request.x - left, request.y - top, request.intensity,
+				request.intensity / request.radius, request.radiusStrategy, request.buffer);
+
+		request.left = left;
+		request.top = top;
+		request.windowWidth = windowWidth;
+		request.windowHeight = windowHeight;
+	}
+
+	/**
+	 * Clears part of a grid and merges the results of the requests that reach into it, in the order given.
+	 *
+	 * @param requests
+	 * @param combiner
+	 * @param grid
+	 *            The grid, by x + y * gridWidth
+	 * @param gridWidth
+	 * @param left
+	 * @param top
+	 * @param right
+	 *            One past the last column to merge
+	 * @param bottom
+	 *            One past the last row to merge
+	 */
+	public static void combine(List<? extends FieldRequest> requests, Combiner combiner, float[] grid, int gridWidth, int left, int top,
+			int right, int bottom) {
+		for (int y = top; y < bottom; y++) {
+			for (int x = left; x < right; x++)
+				grid[x + y * gridWidth] = 0;
+		}
+
+		for (FieldRequest request : requests) {
+			int fromX = Math.max(left, request.left);
+			int fromY = Math.max(top, request.top);
+			int toX = Math.min(right, request.left + request.windowWidth);
+			int toY = Math.min(bottom, request.top + request.windowHeight);
+
+			for (int y = fromY; y < toY; y++) {
+				for (int x = fromX; x < toX; x++) {
+					float value = request.valueAt(x, y);
+					int index = x + y * gridWidth;
+					if (combiner == Combiner.SUM)
+						grid[index] += value;
+					else if (value > grid[index])
+						grid[index] = value;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package roguelike.maps;
+
+import java.awt.Rectangle;
+
+import roguelike.util.Coordinate;
+import roguelike.util.Metrics;
+import roguelike.util.Metrics.Counter;
+import roguelike.util.Metrics.Phase;
+import squidpony.squidcolor.SColor;
+import squidpony.squidcolor.SColorFactory;
+import squidpony.squidgrid.util.BasicRadiusStrategy;
+import squidpony.squidgrid.util.RadiusStrategy;
+
+/**
+ * Works out what can be seen from a point and marks the map's tiles visible and lit accordingly. Only the tiles in a
+ * given area (usually what fits on screen) are considered.
+ *
+ * The last calculation is kept, and asking again with the same viewer position, radius and area on a map whose light
+ * resistances and light sources haven't changed since (see {@link MapArea#getOpacityVersion()} and
+ * {@link LightingEngine}) does nothing. When something has
+ * changed, only the tiles that came into or went out of view, or whose light changed, are updated. This relies on
+ * tiles' visibility being set only from here; a new instance starts by updating every tile in the area.
+ */
+public class FieldOfView {
+	/** Name of the color pallet used to shade lit tiles */
+	public static final String LIGHT_PALLET = "light";
+
+	private final TranslucentFOV fov = new TranslucentFOV();
+	private final RadiusStrategy radiusStrategy = BasicRadiusStrategy.CIRCLE;
+
+	/* what the last calculation was for */
+	private MapArea lastMap;
+	private final Rectangle lastArea = new Rectangle();
+	private int lastX, lastY;
+	private float lastRadius;
+	private int lastOpacityVersion;
+	private int lastLightingVersion;
+
+	/* the light reaching each tile of the map (x + y * map width), solved into again each time */
+	private float[] incomingLight = new float[0];
+
+	/* the tiles lit by the last calculation (x + y * map width), and the ones lit by this one */
+	private int[] litTiles = new int[0];
+	private int litCount;
+	private int[] nextLitTiles = new int[0];
+
+	/* per-tile generation the tile was last lit in, to find the tiles that went out of view */
+	private int[] litGeneration;
+	private int generation;
+
+	public FieldOfView() {
+		SColorFactory.addPallet(LIGHT_PALLET, SColorFactory.asGradient(SColor.WHITE, SColor.DARK_SLATE_GRAY));
+	}
+
+	/**
+	 * Calculates the field of view and marks the tiles within the area seen appropriately.
+	 *
+	 * @param map
+	 * @param area
+	 *            The part of the map to calculate for
+	 * @param center
+	 *            Where the viewer stands
+	 * @param radius
+	 *            How far the viewer can see
+	 * @return False if nothing had changed since the last calculation, so the tiles were left as they were
+	 */
+	public boolean calculate(MapArea map, Rectangle area, Coordinate center, float radius) {
+		if (map == lastMap && area.equals(lastArea) && center.x == lastX && center.y == lastY && radius == lastRadius
+				&& map.getOpacityVersion() == lastOpacityVersion && map.lighting().getVersion() == lastLightingVersion) {
+			Metrics.count(Counter.FOV_REUSED);
+			return false;
+		}
+
+		long start = Metrics.start();
+		// the solver works on the whole map's light values as they are; only the area is read back
+		if (incomingLight.length < map.width() * map.height())
+			incomingLight = new float[map.width() * map.height()];
+		fov.calculate(map.getLightValues(), 0, 0, map.width(), map.height(), center.x, center.y, 1f, 1 / radius, radiusStrategy,
+				incomingLight);
+
+		if (map != lastMap) {
+			clearArea(map, area);
+			litGeneration = new int[map.width() * map.height()];
+			litCount = 0;
+		}
+		generation++;
+
+		int nextCount = 0;
+		if (nextLitTiles.length < area.width * area.height)
+			nextLitTiles = new int[area.width * area.height];
+
+		for (int x = area.x; x < area.getMaxX(); x++) {
+			for (int y = area.y; y < area.getMaxY(); y++) {
+				float light = incomingLight[x + y * map.width()];
+				if (light <= 0)
+					continue;
+
+				Tile tile = map.getTileAt(x, y);
+				tile.setVisible(true);
+				// light sources on the map brighten what can be seen
+				light = Math.min(1f, light + map.lighting().getLight(x, y));
+				tile.setLightedColorValue(SColorFactory.fromPallet(LIGHT_PALLET, 1 - light));
+
+				int index = x + y * map.width();
+				litGeneration[index] = generation;
+				nextLitTiles[nextCount++] = index;
+			}
+		}
+
+		// whatever was lit last time and isn't now has gone out of view
+		for (int i = 0; i < litCount; i++) {
+			int index = litTiles[i];
+			if (litGeneration[index] != generation) {
+				Tile tile = map.getTileAt(index % map.width(), index / map.width());
+				tile.setVisible(false);
+				tile.setLightedColorValue(SColor.BLACK);
+			}
+		}
+
+		int[] swap = litTiles;
+		litTiles = nextLitTiles;
+		nextLitTiles = swap;
+		litCount = nextCount;
+
+		lastMap = map;
+		lastArea.setBounds(area);
+		lastX = center.x;
+		lastY = center.y;
+		lastRadius = radius;
+		lastOpacityVersion = map.getOpacityVersion();
+		lastLightingVersion = map.lighting().getVersion();
+
+		Metrics.stop(Phase.FOV, start);
+		return true;
+	}
+
+	/**
+	 * Forgets the last calculation, so the next one updates every tile in its area. Needed if anything else has
+	 * changed the tiles' visibility.
+	 */
+	public void reset() {
+		lastMap = null;
+	}
+
+	private void clearArea(MapArea map, Rectangle area) {
+		for (int x = area.x; x < area.getMaxX(); x++) {
+			for (int y = area.y; y < area.getMaxY(); y++) {
+				Tile tile = map.getTileAt(x, y);
+				tile.setVisible(false);
+				if (!tile.getLightedColorValue().equals(SColor.BLACK))
+					tile.setLightedColorValue(SColor.BLACK);
+			}
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package roguelike.maps;
+
+import squidpony.squidgrid.util.BasicRadiusStrategy;
+import squidpony.squidgrid.util.RadiusStrategy;
+
+/**
+ * One field of view, or of light, to be worked out by a {@link FieldBatch}: an origin, how far it reaches and how
+ * strongly. The result is kept in a buffer of the request's own covering just the square the field can reach, which
+ * is reused each time the request is worked out again.
+ */
+public class FieldRequest {
+	int x, y;
+	final int radius;
+	final float intensity;
+	final RadiusStrategy radiusStrategy;
+
+	/* the result, for the window of the grid starting at left, top; empty until first worked out */
+	int left, top, windowWidth, windowHeight;
+	final float[] buffer;
+
+	/**
+	 * @param x
+	 * @param y
+	 * @param radius
+	 *            How far the field reaches
+	 * @param intensity
+	 *            The field's strength at the origin, fading to nothing at the radius
+	 * @param radiusStrategy
+	 *            How distance is measured
+	 */
+	public FieldRequest(int x, int y, int radius, float intensity, RadiusStrategy radiusStrategy) {
+		if (radius < 1)
+			throw new IllegalArgumentException("radius must be at least 1: " + radius);
+
+		this.x = x;
+		this.y = y;
+		this.radius = radius;
+		this.intensity = intensity;
+		this.radiusStrategy = radiusStrategy != null ? radiusStrategy : BasicRadiusStrategy.CIRCLE;
+
+		int size = radius * 2 + 1;
+		this.buffer = new float[size * size];
+	}
+
+	public int getX() {
+		return x;
+	}
+
+	public int getY() {
+		return y;
+	}
+
+	/**
+	 * Moves the origin. The result still holds the field from where it was until the request is worked out again.
+	 * Whoever owns the request moves it, as {@link LightingEngine#moveLight} does for light sources.
+	 *
+	 * @param x
+	 * @param y
+	 */
+	void moveTo(int x, int y) {
+		this.x = x;
+		this.y = y;
+	}
+
+	public int getRadius() {
+		return radius;
+	}
+
+	public float getIntensity() {
+		return intensity;
+	}
+
+	/**
+	 * @return True if the given tile is within the square covered by the last result
+	 */
+	public boolean covers(int tx, int ty) {
+		return tx >= left && ty >= top && tx < left + windowWidth && ty < top + windowHeight;
+	}
+
+	/**
+	 * @param tx
+	 * @param ty
+	 * @return The last result at a tile the request covers
+	 */
+	public float valueAt(int tx, int ty) {
+		return buffer[(tx - left) + (ty - top) * windowWidth];
+	}
+}
@@ -0,0 +1,147 @@
+package roguelike.maps;
+
+import java.util.Arrays;
+
+/**
+ * A breadth-first search outwards from one goal over a {@link WalkabilitySnapshot}, for answering several path
+ * requests to the same goal at once: once every start has been reached, the path from each is found by stepping to
+ * any neighbor one step nearer the goal. Every step costs the same, diagonals included, and actors are ignored, since
+ * they will have moved by the time the path is walked.
+ *
+ * Instances hold scratch buffers and are not thread safe.
+ */
+class GoalSearch {
+
+	private final int width;
+	private final int height;
+
+	/* per-tile state, only meaningful where visited (or isStart) matches the current generation */
+	private final int[] distance;
+	private final int[] visited;
+	private final int[] isStart;
+	private final int[] queue;
+	private int generation;
+
+	private int nodesExpanded;
+
+	GoalSearch(int width, int height) {
+		this.width = width;
+		this.height = height;
+
+		int size = width * height;
+		distance = new int[size];
+		visited = new int[size];
+		isStart = new int[size];
+		queue = new int[size];
+	}
+
+	/**
+	 * Searches out from the goal until every start has been reached or the search has gone as far as it may.
+	 *
+	 * @param grid
+	 * @param goal
+	 *            The goal's index, x + y * width
+	 * @param starts
+	 *            The start indexes
+	 * @param startCount
+	 *            How many of starts to use
+	 * @param maxDistance
+	 *            How many steps from the goal to search
+	 */
+	void search(WalkabilitySnapshot grid, int goal, int[] starts, int startCount, int maxDistance) {
+		nextGeneration();
+		nodesExpanded = 0;
+
+		if (!grid.isPassable(goal))
+			return;
+
+		int remaining = 0;
+		for (int i = 0; i < startCount; i++) {
+			if (isStart[starts[i]] != generation) {
+				isStart[starts[i]] = generation;
+				remaining++;
+			}
+		}
+
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = goal;
+		visited[goal] = generation;
+		distance[goal] = 0;
+		if (isStart[goal] == generation)
+			remaining--;
+
+		while (head < tail && remaining > 0) {
+			int current = queue[head++];
+			nodesExpanded++;
+			if (distance[current] >= maxDistance)
+				continue;
+
+			int cx = current % width;
+			int cy = current / width;
+			for (int n = 0; n < MapHelpers.DIRECTIONS; n++) {
+				int neighbor = MapHelpers.getNeighborIndex(width, height, cx, cy, n);
+				if (neighbor < 0)
+					continue;
+				if (visited[neighbor] == generation || !grid.isPassable(neighbor))
+					continue;
+
+				visited[neighbor] = generation;
+				distance[neighbor] = distance[current] + 1;
+				queue[tail++] = neighbor;
+				if (isStart[neighbor] == generation)
+					remaining--;
+			}
+		}
+	}
+
+	/**
+	 * Follows the last search back to its goal.
+	 *
+	 * @param sx
+	 * @param sy
+	 * @param maxDistance
+	 *            The longest path, in steps, worth returning
+	 * @return The path, including the start as the first step, or null if the search didn't reach the start within the
+	 *         given distance
+	 */
+	Path pathFrom(int sx, int sy, int maxDistance) {
+		int node = sx + sy * width;
+		if (visited[node] != generation || distance[node] > maxDistance || distance[node] == 0)
+			return null;
+
+		Path path = new Path(distance[node] + 1);
+		path.appendStep(sx, sy);
+		while (distance[node] > 0) {
+			int x = node % width;
+			int y = node / width;
+			for (int n = 0; n < MapHelpers.DIRECTIONS; n++) {
+				int neighbor = MapHelpers.getNeighborIndex(width, height, x, y, n);
+				if (neighbor < 0)
+					continue;
+				if (visited[neighbor] == generation && distance[neighbor] == distance[node] - 1) {
+					node = neighbor;
+					break;
+				}
+			}
+			path.appendStep(node % width, node / width);
+		}
+		return path;
+	}
+
+	/**
+	 * @return The number of tiles expanded by the most recent search
+	 */
+	int getNodesExpanded() {
+		return nodesExpanded;
+	}
+
+	private void nextGeneration() {
+		if (generation == Integer.MAX_VALUE) {
+			Arrays.fill(visited, 0);
+			Arrays.fill(isStart, 0);
+			generation = 0;
+		}
+		generation++;
+	}
+}
@@ -0,0 +1,298 @@
+package roguelike.maps;
+
+import java.util.Arrays;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * HPA*-style pathfinding over a {@link RoomGraph}. A route is first planned through the graph's portals, then each leg
+ * is refined into tiles with a breadth-first search that never leaves the region the leg crosses. Since both searches
+ * are small, paths across the whole map cost little more than short ones and have no search depth cutoff.
+ *
+ * Instances hold scratch buffers and are not thread safe; PathfindingService hands them out one search at a time.
+ */
+public class HierarchicalPathfinder {
+	private static final Logger LOG = LogManager.getLogger(HierarchicalPathfinder.class);
+
+	private final RoomGraph graph;
+	private final int width;
+	private final int height;
+
+	/* abstract search state; the last two nodes are the start and goal */
+	private final int startNode;
+	private final int goalNode;
+	private final float[] nodeCost;
+	private final int[] nodeParent;
+	private final int[] nodeVisited;
+	private final NodeHeap open;
+	private final int[] startCosts;
+	private final int[] goalCosts;
+
+	/* tile search state for entering/leaving the graph and refining legs */
+	private final int[] tileDistance;
+	private final int[] tileParent;
+	private final int[] tileVisited;
+	private final int[] queue;
+	private final int[] waypoints;
+	private final int[] segment;
+
+	private int generation;
+	private int nodesExpanded;
+
+	public HierarchicalPathfinder(RoomGraph graph) {
+		this.graph = graph;
+		this.width = graph.width();
+		this.height = graph.height();
+
+		int nodes = graph.getNodeCount() + 2;
+		startNode = nodes - 2;
+		goalNode = nodes - 1;
+		nodeCost = new float[nodes];
+		nodeParent = new int[nodes];
+		nodeVisited = new int[nodes];
+		open = new NodeHeap(nodes);
+		startCosts = new int[nodes];
+		goalCosts = new int[nodes];
+		waypoints = new int[nodes];
+
+		int tiles = width * height;
+		tileDistance = new int[tiles];
+		tileParent = new int[tiles];
+		tileVisited = new int[tiles];
+		queue = new int[tiles];
+		segment = new int[tiles];
+	}
+
+	/**
+	 * Finds a path between two points on the map.
+	 *
+	 * @param map
+	 *            The map the graph was built for
+	 * @param sx
+	 * @param sy
+	 * @param tx
+	 * @param ty
+	 * @return The path found, including the start location as the first step, or null if the points are not connected
+	 */
+	public Path findPath(MapArea map, int sx, int sy, int tx, int ty) {
+		LOG.debug("Finding hierarchical path from {}, {} to {}, {}", sx, sy, tx, ty);
+
+		nodesExpanded = 0;
+
+		int startRegion = graph.getRegion(sx, sy);
+		int goalRegion = graph.getRegion(tx, ty);
+		if (startRegion == -1 || goalRegion == -1)
+			return null;
+
+		int start = sx + sy * width;
+		int goal = tx + ty * width;
+		if (start == goal)
+			return null;
+
+		int waypointCount = 0;
+		if (startRegion == goalRegion && searchRegion(start, goal, startRegion, null) >= 0) {
+			waypoints[waypointCount++] = start;
+			waypoints[waypointCount++] = goal;
+		} else {
+			waypointCount = planRoute(start, startRegion, goal, goalRegion);
+			if (waypointCount == 0)
+				return null;
+		}
+
+		return refine(map, waypointCount);
+	}
+
+	/**
+	 * @return The number of tiles and graph nodes expanded by the most recent search
+	 */
+	public int getNodesExpanded() {
+		return nodesExpanded;
+	}
+
+	/**
+	 * Searches the abstract graph, with the start and goal temporarily linked to the portals of their regions.
+	 *
+	 * @return The number of tile waypoints written to waypoints, or 0 if there is no route
+	 */
+	private int planRoute(int start, int startRegion, int goal, int goalRegion) {
+		/* distance from the start and goal to each portal in their regions, so they can be linked into the graph */
+		searchRegion(start, -1, startRegion, null);
+		collectPortalCosts(startRegion, startCosts);
+		searchRegion(goal, -1, goalRegion, null);
+		collectPortalCosts(goalRegion, goalCosts);
+
+		nextGeneration();
+		open.clear();
+
+		int gx = goal % width;
+		int gy = goal / width;
+
+		nodeVisited[startNode] = generation;
+		nodeCost[startNode] = 0;
+		nodeParent[startNode] = -1;
+
+		for (int node : graph.getRegionNodes(startRegion)) {
+			if (startCosts[node] >= 0)
+				relax(node, startNode, startCosts[node], gx, gy);
+		}
+
+		while (open.size() > 0) {
+			int current = open.poll();
+			nodesExpanded++;
+
+			if (current == goalNode)
+				break;
+
+			if (graph.getNodeRegion(current) == goalRegion && goalCosts[current] >= 0)
+				relax(goalNode, current, nodeCost[current] + goalCosts[current], gx, gy);
+
+			int[] edges = graph.getEdges(current);
+			int[] costs = graph.getEdgeCosts(current);
+			for (int i = 0; i < edges.length; i++)
+				relax(edges[i], current, nodeCost[current] + costs[i], gx, gy);
+		}
+
+		if (nodeVisited[goalNode] != generation)
+			return 0;
+
+		/* walk back from the goal, then reverse into waypoints */
+		int count = 0;
+		for (int node = goalNode; node != -1; node = nodeParent[node])
+			count++;
+
+		int index = count;
+		for (int node = goalNode; node != -1; node = nodeParent[node]) {
+			index--;
+			if (node == startNode)
+				waypoints[index] = start;
+			else if (node == goalNode)
+				waypoints[index] = goal;
+			else
+				waypoints[index] = graph.getNodeTile(node);
+		}
+		return count;
+	}
+
+	/**
+	 * Copies the distances from the last region search to each of the region's portals (-1 where unreachable).
+	 */
+	private void collectPortalCosts(int region, int[] costs) {
+		for (int node : graph.getRegionNodes(region)) {
+			int tile = graph.getNodeTile(node);
+			costs[node] = tileVisited[tile] == generation ? tileDistance[tile] : -1;
+		}
+	}
+
+	private void relax(int node, int parent, float cost, int gx, int gy) {
+		if (nodeVisited[node] == generation && cost >= nodeCost[node])
+			return;
+
+		if (nodeVisited[node] == generation && !open.contains(node))
+			return; // already closed
+
+		nodeVisited[node] = generation;
+		nodeCost[node] = cost;
+		nodeParent[node] = parent;
+
+		int tile = node == goalNode ? gx + gy * width : graph.getNodeTile(node);
+		float heuristic = Math.max(Math.abs(tile % width - gx), Math.abs(tile / width - gy));
+		open.addOrUpdate(node, cost + heuristic);
+	}
+
+	/**
+	 * Turns the waypoint list into a tile path. Legs inside a region are searched within that region, preferring to
+	 * route around actors but accepting a blocked route if there is no other.
+	 */
+	private Path refine(MapArea map, int waypointCount) {
+		Path path = new Path();
+		int first = waypoints[0];
+		path.appendStep(first % width, first / width);
+
+		for (int i = 1; i < waypointCount; i++) {
+			int from = waypoints[i - 1];
+			int to = waypoints[i];
+			if (from == to)
+				continue;
+
+			int region = graph.getRegion(from);
+			if (graph.getRegion(to) != region) {
+				// a portal crossing, always a single step
+				path.appendStep(to % width, to / width);
+				continue;
+			}
+
+			if (searchRegion(from, to, region, map) < 0 && searchRegion(from, to, region, null) < 0)
+				return null;
+
+			int length = 0;
+			for (int tile = to; tile != from; tile = tileParent[tile])
+				segment[length++] = tile;
+
+			for (int s = length - 1; s >= 0; s--)
+				path.appendStep(segment[s] % width, segment[s] / width);
+		}
+		return path;
+	}
+
+	/**
+	 * Breadth-first search from start, restricted to a region. Results are left in tileDistance/tileParent for tiles
+	 * whose tileVisited entry matches the current generation.
+	 *
+	 * @param start
+	 * @param target
+	 *            Tile to stop at, or -1 to search the whole region
+	 * @param region
+	 * @param map
+	 *            If not null, tiles holding an actor (other than the target) are avoided
+	 * @return The distance to target, or -1 if it was not reached
+	 */
+	private int searchRegion(int start, int target, int region, MapArea map) {
+		nextGeneration();
+
+		int head = 0;
+		int tail = 0;
+		tileVisited[start] = generation;
+		tileDistance[start] = 0;
+		tileParent[start] = -1;
+		queue[tail++] = start;
+
+		while (head < tail) {
+			int current = queue[head++];
+			nodesExpanded++;
+			if (current == target)
+				return tileDistance[current];
+
+			int cx = current % width;
+			int cy = current / width;
+			for (int n = 0; n < MapHelpers.DIRECTIONS; n++) {
+				int neighbor = MapHelpers.getNeighborIndex(width, height, cx, cy, n);
+				if (neighbor < 0)
+					continue;
+
+				int xp = cx + MapHelpers.neighborX(n);
+				int yp = cy + MapHelpers.neighborY(n);
+				if (tileVisited[neighbor] == generation || graph.getRegion(neighbor) != region)
+					continue;
+
+				if (map != null && neighbor != target && map.getActorAt(xp, yp) != null)
+					continue;
+
+				tileVisited[neighbor] = generation;
+				tileDistance[neighbor] = tileDistance[current] + 1;
+				tileParent[neighbor] = current;
+				queue[tail++] = neighbor;
+			}
+		}
+		return -1;
+	}
+
+	private void nextGeneration() {
+		if (generation == Integer.MAX_VALUE) {
+			Arrays.fill(nodeVisited, 0);
+			Arrays.fill(tileVisited, 0);
+			generation = 0;
+		}
+		generation++;
+	}
+}
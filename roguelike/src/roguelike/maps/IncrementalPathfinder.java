@@ -0,0 +1,314 @@
+package roguelike.maps;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import squidpony.squidgrid.util.DirectionIntercardinal;
+
+/**
+ * A D* Lite pathfinder for an actor that keeps chasing the same target over many turns. The search runs backwards from
+ * the target, so its results stay valid as the actor walks; when the target moves a short way, or tiles change (doors
+ * opening and closing), only the affected part of the previous search is repaired rather than starting over.
+ *
+ * Each chasing actor keeps its own instance between turns and behaviors, see
+ * {@link PathfindingService#findNextStep(roguelike.actors.Actor, int, int, int)}. Instances are not thread safe and
+ * are not serializable; after loading a game a new one is created.
+ */
+public class IncrementalPathfinder {
+	private static final Logger LOG = LogManager.getLogger(IncrementalPathfinder.class);
+
+	private static final int INFINITY = Integer.MAX_VALUE / 4;
+
+	/** Walking into a closed door opens it instead of moving, so it costs an extra turn */
+	private static final int DOOR_COST = 2;
+
+	/** If the target jumps further than this, repairing would touch most of the search anyway, so start over */
+	private static final int REPLAN_DISTANCE = 10;
+
+	/** Multiplier used to pack both parts of a D* Lite key into one heap key; g values never come close to it */
+	private static final double KEY_SCALE = 1 << 20;
+
+	private final MapArea map;
+	private final int width;
+	private final int height;
+
+	private final int[] g;
+	private final int[] rhs;
+	private final NodeHeap open;
+
+	private int start = -1;
+	private int goal = -1;
+	private int lastStart;
+	private int km;
+	private int version;
+
+	private int nodesExpanded;
+	private int pathCost;
+
+	/** Kept so repairing neighbors doesn't create a new lambda each time */
+	private final IntConsumer updateVertex = this::updateVertex;
+
+	IncrementalPathfinder(MapArea map) {
+		this.map = map;
+		this.width = map.width();
+		this.height = map.height();
+
+		int size = width * height;
+		g = new int[size];
+		rhs = new int[size];
+		open = new NodeHeap(size);
+	}
+
+	/**
+	 * Works out the next step towards the target, repairing the previous search as needed.
+	 *
+	 * @param sx
+	 *            The x coordinate of the actor
+	 * @param sy
+	 *            The y coordinate of the actor
+	 * @param tx
+	 *            The x coordinate of the target
+	 * @param ty
+	 *            The y coordinate of the target
+	 * @return The direction to walk, or null if the target can't be reached or every way towards it is occupied
+	 */
+	public DirectionIntercardinal getNextStep(int sx, int sy, int tx, int ty) {
+		if (!map.isWithinBounds(sx, sy) || !map.isWithinBounds(tx, ty))
+			return null;
+
+		nodesExpanded = 0;
+		pathCost = INFINITY;
+
+		int newStart = sx + sy * width;
+		int newGoal = tx + ty * width;
+		if (newStart == newGoal)
+			return null;
+
+		if (goal == -1 || distance(goal, newGoal) > REPLAN_DISTANCE || !applyMapChanges()) {
+			initialize(newStart, newGoal);
+		} else {
+			start = newStart;
+			km += distance(lastStart, start);
+			lastStart = start;
+
+			if (newGoal != goal)
+				moveGoal(newGoal);
+		}
+
+		computeShortestPath();
+		return chooseStep(sx, sy);
+	}
+
+	/**
+	 * @return The cost of the route found by the most recent call to getNextStep, counting one per step and extra for
+	 *         doors, or Integer.MAX_VALUE if there was none
+	 */
+	public int getPathCost() {
+		return pathCost < INFINITY ? pathCost : Integer.MAX_VALUE;
+	}
+
+	MapArea getMap() {
+		return map;
+	}
+
+	/**
+	 * @return The number of nodes expanded by the most recent call to getNextStep
+	 */
+	public int getNodesExpanded() {
+		return nodesExpanded;
+	}
+
+	private void initialize(int newStart, int newGoal) {
+		LOG.debug("Starting new incremental search towards {}, {}", newGoal % width, newGoal / width);
+
+		Arrays.fill(g, INFINITY);
+		Arrays.fill(rhs, INFINITY);
+		open.clear();
+
+		start = newStart;
+		lastStart = newStart;
+		goal = newGoal;
+		km = 0;
+		version = map.getWalkabilityVersion();
+
+		rhs[goal] = 0;
+		open.add(goal, packKey(goal));
+	}
+
+	/**
+	 * Feeds tiles that changed since the last call into the search.
+	 *
+	 * @return False if the map can no longer say what changed
+	 */
+	private boolean applyMapChanges() {
+		int current = map.getWalkabilityVersion();
+		if (current == version)
+			return true;
+
+		if (!map.getChangedTilesSince(version, this::tileChanged))
+			return false;
+
+		version = current;
+		return true;
+	}
+
+	/**
+	 * The cost of entering a tile changed, which changes every edge leading into it.
+	 */
+	private void tileChanged(int tile) {
+		updateVertex(tile);
+		MapHelpers.forEachNeighbor(width, height, tile, true, updateVertex);
+	}
+
+	/**
+	 * Moves the root of the search. The old goal loses its fixed zero cost and the new one gains it, which the search
+	 * treats like any other edge cost change.
+	 */
+	private void moveGoal(int newGoal) {
+		int oldGoal = goal;
+		goal = newGoal;
+
+		updateVertex(oldGoal);
+
+		rhs[goal] = 0;
+		open.remove(goal);
+		if (g[goal] != rhs[goal])
+			open.add(goal, packKey(goal));
+	}
+
+	private void updateVertex(int node) {
+		if (node != goal) {
+			int best = INFINITY;
+			int x = node % width;
+			int y = node / width;
+			for (int n = 0; n < MapHelpers.DIRECTIONS; n++) {
+				int neighbor = MapHelpers.getNeighborIndex(width, height, x, y, n);
+				if (neighbor < 0)
+					continue;
+
+				int xp = x + MapHelpers.neighborX(n);
+				int yp = y + MapHelpers.neighborY(n);
+				int cost = getEnterCost(xp, yp);
+				if (cost < INFINITY && g[neighbor] < INFINITY)
+					best = Math.min(best, g[neighbor] + cost);
+			}
+			rhs[node] = best;
+		}
+
+		open.remove(node);
+		if (g[node] != rhs[node])
+			open.add(node, packKey(node));
+	}
+
+	private void computeShortestPath() {
+		while (open.size() > 0) {
+			int top = open.peek();
+			boolean startConsistent = g[start] == rhs[start];
+			if (startConsistent && !keyLess(top, start))
+				break;
+
+			nodesExpanded++;
+
+			double key = packKey(top);
+			if (open.key(top) < key) {
+				// the key is stale because the start has moved since it was queued
+				open.update(top, key);
+			} else if (g[top] > rhs[top]) {
+				g[top] = rhs[top];
+				open.poll();
+				MapHelpers.forEachNeighbor(width, height, top, true, updateVertex);
+			} else {
+				g[top] = INFINITY;
+				updateVertex(top);
+				MapHelpers.forEachNeighbor(width, height, top, true, updateVertex);
+			}
+		}
+	}
+
+	/**
+	 * Picks the neighbor with the cheapest remaining route. Tiles holding an actor are skipped unless they are the
+	 * goal, so the chaser attacks its target but routes around everything else.
+	 */
+	private DirectionIntercardinal chooseStep(int sx, int sy) {
+		if (g[start] >= INFINITY && rhs[start] >= INFINITY)
+			return null;
+
+		int best = INFINITY;
+		int bestX = 0;
+		int bestY = 0;
+		for (int n = 0; n < MapHelpers.DIRECTIONS; n++) {
+			int neighbor = MapHelpers.getNeighborIndex(width, height, sx, sy, n);
+			if (neighbor < 0)
+				continue;
+
+			int xp = sx + MapHelpers.neighborX(n);
+			int yp = sy + MapHelpers.neighborY(n);
+			int cost = getEnterCost(xp, yp);
+			if (cost >= INFINITY || g[neighbor] >= INFINITY)
+				continue;
+
+			if (neighbor != goal && map.getActorAt(xp, yp) != null)
+				continue;
+
+			if (g[neighbor] + cost < best) {
+				best = g[neighbor] + cost;
+				bestX = MapHelpers.neighborX(n);
+				bestY = MapHelpers.neighborY(n);
+			}
+		}
+
+		if (best >= INFINITY)
+			return null;
+
+		pathCost = best;
+		return DirectionIntercardinal.getDirection(bestX, bestY);
+	}
+
+	private int getEnterCost(int x, int y) {
+		Tile tile = map.getTileAt(x, y);
+		if (tile.canPass())
+			return 1;
+
+		return tile instanceof Door ? DOOR_COST : INFINITY;
+	}
+
+	private int primaryKey(int node) {
+		int value = secondaryKey(node);
+		if (value >= INFINITY)
+			return INFINITY;
+
+		return value + distance(start, node) + km;
+	}
+
+	private int secondaryKey(int node) {
+		return Math.min(g[node], rhs[node]);
+	}
+
+	private double packKey(int node) {
+		return packKey(primaryKey(node), secondaryKey(node));
+	}
+
+	private static double packKey(int k1, int k2) {
+		return k1 * KEY_SCALE + k2;
+	}
+
+	/**
+	 * Compares the queued key of a node against the current key of another, part by part.
+	 */
+	private boolean keyLess(int queued, int node) {
+		double packed = open.key(queued);
+		long k1 = (long) Math.floor(packed / KEY_SCALE);
+		long k2 = (long) (packed - k1 * KEY_SCALE);
+
+		int n1 = primaryKey(node);
+		int n2 = secondaryKey(node);
+		return k1 < n1 || (k1 == n1 && k2 < n2);
+	}
+
+	private int distance(int a, int b) {
+		return Math.max(Math.abs(a % width - b % width), Math.abs(a / width - b / width));
+	}
+}
@@ -0,0 +1,237 @@
+package roguelike.maps;
+
+import java.util.Arrays;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Jump Point Search over an 8-way grid where every step costs the same. Instead of adding every neighbor to the open
+ * list, the search jumps along straight and diagonal lines until it finds a tile where the route could usefully bend
+ * (a "forced" neighbor beside an obstacle) and only queues those, so open rooms are crossed with a handful of
+ * expansions rather than one per tile.
+ *
+ * Diagonal moves may cut corners, as they can in the game. Impassable tiles and tiles holding an actor (other than the
+ * target) are obstacles; there are no other costs, so maps whose tiles change movement speed should use A* instead.
+ *
+ * Instances hold scratch buffers and are not thread safe; PathfindingService hands them out one search at a time.
+ */
+public class JumpPointPathfinder {
+	private static final Logger LOG = LogManager.getLogger(JumpPointPathfinder.class);
+
+	private final int width;
+	private final int height;
+
+	/* per-tile search state, only meaningful where visited matches the current generation */
+	private final int[] cost;
+	private final int[] parent;
+	private final int[] visited;
+	private final NodeHeap open;
+	private int generation;
+
+	private MapArea map;
+	private int goalX;
+	private int goalY;
+
+	private int nodesExpanded;
+
+	public JumpPointPathfinder(int width, int height) {
+		this.width = width;
+		this.height = height;
+
+		int size = width * height;
+		cost = new int[size];
+		parent = new int[size];
+		visited = new int[size];
+		open = new NodeHeap(size);
+	}
+
+	/**
+	 * Finds a path between two points on the map.
+	 *
+	 * @param map
+	 *            The map to search
+	 * @param sx
+	 * @param sy
+	 * @param tx
+	 * @param ty
+	 * @param maxSearchDistance
+	 *            The longest path, in steps, worth returning
+	 * @return The path found, including the start location as the first step, or null if no path could be found
+	 */
+	public Path findPath(MapArea map, int sx, int sy, int tx, int ty, int maxSearchDistance) {
+		LOG.debug("Finding jump point path from {}, {} to {}, {}", sx, sy, tx, ty);
+
+		this.map = map;
+		this.goalX = tx;
+		this.goalY = ty;
+		nodesExpanded = 0;
+
+		int start = sx + sy * width;
+		int goal = tx + ty * width;
+		if (start == goal || !isWalkable(tx, ty))
+			return null;
+
+		nextGeneration();
+		open.clear();
+		visited[start] = generation;
+		cost[start] = 0;
+		parent[start] = -1;
+		open.add(start, distance(sx, sy, tx, ty));
+
+		while (open.size() > 0) {
+			int current = open.poll();
+			nodesExpanded++;
+			if (current == goal)
+				break;
+
+			int x = current % width;
+			int y = current / width;
+			if (parent[current] == -1) {
+				for (int n = 0; n < MapHelpers.DIRECTIONS; n++)
+					addJump(current, x, y, MapHelpers.neighborX(n), MapHelpers.neighborY(n), maxSearchDistance);
+			} else {
+				int px = parent[current] % width;
+				int py = parent[current] / width;
+				expandPruned(current, x, y, Integer.signum(x - px), Integer.signum(y - py), maxSearchDistance);
+			}
+		}
+
+		this.map = null;
+
+		if (visited[goal] != generation || open.contains(goal))
+			return null;
+
+		/* jump points are joined by straight or diagonal lines; fill in the tiles between them */
+		Path path = new Path(cost[goal] + 1);
+		int node = goal;
+		while (parent[node] != -1) {
+			int from = parent[node];
+			int x = node % width;
+			int y = node / width;
+			int dx = Integer.signum(from % width - x);
+			int dy = Integer.signum(from / width - y);
+			while (x + y * width != from) {
+				path.prependStep(x, y);
+				x += dx;
+				y += dy;
+			}
+			node = from;
+		}
+		path.prependStep(sx, sy);
+
+		return path;
+	}
+
+	/**
+	 * @return The number of jump points expanded by the most recent search
+	 */
+	public int getNodesExpanded() {
+		return nodesExpanded;
+	}
+
+	/**
+	 * Queues the jump points reachable from a node in the directions that aren't pruned, given the direction it was
+	 * reached from.
+	 */
+	private void expandPruned(int node, int x, int y, int dx, int dy, int maxSearchDistance) {
+		if (dx != 0 && dy != 0) {
+			addJump(node, x, y, dx, dy, maxSearchDistance);
+			addJump(node, x, y, dx, 0, maxSearchDistance);
+			addJump(node, x, y, 0, dy, maxSearchDistance);
+
+			if (!isWalkable(x - dx, y) && isWalkable(x - dx, y + dy))
+				addJump(node, x, y, -dx, dy, maxSearchDistance);
+			if (!isWalkable(x, y - dy) && isWalkable(x + dx, y - dy))
+				addJump(node, x, y, dx, -dy, maxSearchDistance);
+		} else if (dx != 0) {
+			addJump(node, x, y, dx, 0, maxSearchDistance);
+
+			if (!isWalkable(x, y + 1) && isWalkable(x + dx, y + 1))
+				addJump(node, x, y, dx, 1, maxSearchDistance);
+			if (!isWalkable(x, y - 1) && isWalkable(x + dx, y - 1))
+				addJump(node, x, y, dx, -1, maxSearchDistance);
+		} else {
+			addJump(node, x, y, 0, dy, maxSearchDistance);
+
+			if (!isWalkable(x + 1, y) && isWalkable(x + 1, y + dy))
+				addJump(node, x, y, 1, dy, maxSearchDistance);
+			if (!isWalkable(x - 1, y) && isWalkable(x - 1, y + dy))
+				addJump(node, x, y, -1, dy, maxSearchDistance);
+		}
+	}
+
+	private void addJump(int node, int x, int y, int dx, int dy, int maxSearchDistance) {
+		int jumpPoint = jump(x, y, dx, dy);
+		if (jumpPoint == -1)
+			return;
+
+		int jx = jumpPoint % width;
+		int jy = jumpPoint / width;
+		int nextCost = cost[node] + distance(x, y, jx, jy);
+		if (nextCost > maxSearchDistance)
+			return;
+
+		if (visited[jumpPoint] == generation && nextCost >= cost[jumpPoint])
+			return;
+
+		visited[jumpPoint] = generation;
+		cost[jumpPoint] = nextCost;
+		parent[jumpPoint] = node;
+		open.addOrUpdate(jumpPoint, nextCost + distance(jx, jy, goalX, goalY));
+	}
+
+	/**
+	 * Walks from a tile in one direction until reaching the goal, a tile with a forced neighbor, or an obstacle.
+	 *
+	 * @return The jump point found, or -1 if the walk ran into an obstacle first
+	 */
+	private int jump(int x, int y, int dx, int dy) {
+		while (true) {
+			x += dx;
+			y += dy;
+			if (!isWalkable(x, y))
+				return -1;
+
+			if (x == goalX && y == goalY)
+				return x + y * width;
+
+			if (dx != 0 && dy != 0) {
+				if ((!isWalkable(x - dx, y) && isWalkable(x - dx, y + dy)) || (!isWalkable(x, y - dy) && isWalkable(x + dx, y - dy)))
+					return x + y * width;
+
+				// a diagonal step is a jump point if either of its straight branches finds one
+				if (jump(x, y, dx, 0) != -1 || jump(x, y, 0, dy) != -1)
+					return x + y * width;
+			} else if (dx != 0) {
+				if ((!isWalkable(x, y + 1) && isWalkable(x + dx, y + 1)) || (!isWalkable(x, y - 1) && isWalkable(x + dx, y - 1)))
+					return x + y * width;
+			} else {
+				if ((!isWalkable(x + 1, y) && isWalkable(x + 1, y + dy)) || (!isWalkable(x - 1, y) && isWalkable(x - 1, y + dy)))
+					return x + y * width;
+			}
+		}
+	}
+
+	private boolean isWalkable(int x, int y) {
+		if (x < 0 || y < 0 || x >= width || y >= height)
+			return false;
+
+		if (!map.getTileAt(x, y).canPass())
+			return false;
+
+		return (x == goalX && y == goalY) || map.getActorAt(x, y) == null;
+	}
+
+	private static int distance(int x1, int y1, int x2, int y2) {
+		return Math.max(Math.abs(x1 - x2), Math.abs(y1 - y2));
+	}
+
+	private void nextGeneration() {
+		if (generation == Integer.MAX_VALUE) {
+			Arrays.fill(visited, 0);
+			generation = 0;
+		}
+		generation++;
+	}
+}
@@ -0,0 +1,32 @@
+package roguelike.maps;
+
+import squidpony.squidgrid.util.BasicRadiusStrategy;
+
+/**
+ * Something that gives off light on a map, added through its {@link LightingEngine}. Static sources (braziers, lava)
+ * stay put for the life of the map; dynamic ones (torches carried by actors, muzzle flashes) can move, or go out on
+ * their own after a number of turns.
+ *
+ * The light the source casts is kept in a buffer covering just the square it can reach, so moving or re-lighting
+ * one source only touches that square.
+ */
+public class LightSource extends FieldRequest {
+	final boolean isStatic;
+
+	/** Turns left before the source goes out, or -1 for never */
+	int turnsLeft;
+
+	/** Whether the light cast has to be worked out again before it is next looked at */
+	boolean dirty;
+
+	LightSource(boolean isStatic, int x, int y, int radius, float intensity, int turnsLeft) {
+		super(x, y, radius, intensity, BasicRadiusStrategy.CIRCLE);
+
+		this.isStatic = isStatic;
+		this.turnsLeft = turnsLeft;
+	}
+
+	public boolean isStatic() {
+		return isStatic;
+	}
+}
@@ -0,0 +1,386 @@
+package roguelike.maps;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import roguelike.actors.Actor;
+import roguelike.maps.FieldBatch.Combiner;
+import roguelike.util.Metrics;
+import roguelike.util.Metrics.Counter;
+import roguelike.util.Metrics.Phase;
+
+/**
+ * Keeps the light each of a map's tiles gets from the {@link LightSource}s on it, apart from the player's own sight
+ * (see {@link FieldOfView}), which it adds to.
+ *
+ * Static and dynamic sources are summed into separate layers, so the static layer is worked out once and only
+ * touched again when a door near a static source opens or closes. Whenever a source is added, moved or removed, or
+ * a tile's light resistance changes, only the sources that reach that far are marked to be re-lit. The next time the
+ * light is looked at, those sources are re-lit together in one {@link FieldBatch}, so a torch that moves several
+ * times in a turn is only re-lit once. Each layer keeps track of which chunks of the map the changed sources covered
+ * before and cover now, and only those chunks are summed again, each from just the sources reaching into it and
+ * straight from their own buffers, so the totals never drift however often sources move. Two torches at opposite ends
+ * of the map don't make everything between them be summed again.
+ *
+ * Lights aren't saved with the map. Not thread safe; used from the game thread.
+ */
+public class LightingEngine {
+	/** The side of the squares the map is split into to keep track of what to sum again */
+	private static final int CHUNK_SIZE = 8;
+
+	private final MapArea map;
+	private final int width;
+	private final int height;
+
+	private final List<LightSource> staticSources = new ArrayList<LightSource>();
+	private final List<LightSource> dynamicSources = new ArrayList<LightSource>();
+	private final float[] staticLight;
+	private final float[] dynamicLight;
+
+	/* sources to re-light, and the squares of each layer to sum again, before the light is next looked at */
+	private final List<LightSource> dirtySources = new ArrayList<LightSource>();
+	private final DirtyChunks staticDirty;
+	private final DirtyChunks dynamicDirty;
+
+	private int version;
+	private long sourcesLit;
+
+	/* how long the light has taken to bring up to date, for benchmarking */
+	private long flushes;
+	private long flushNanos;
+	private long slowestFlushNanos;
+	private long tilesSummed;
+
+	LightingEngine(MapArea map) {
+		this.map = map;
+		this.width = map.width();
+		this.height = map.height();
+		this.staticLight = new float[width * height];
+		this.dynamicLight = new float[width * height];
+		this.staticDirty = new DirtyChunks(width, height);
+		this.dynamicDirty = new DirtyChunks(width, height);
+	}
+
+	/**
+	 * Adds a light that stays where it is, such as a brazier.
+	 *
+	 * @param x
+	 * @param y
+	 * @param radius
+	 *            How far the light reaches
+	 * @param intensity
+	 *            How bright the light is at the source, from 0 to 1
+	 * @return The source, for removing it later
+	 */
+	public LightSource addStaticLight(int x, int y, int radius, float intensity) {
+		return add(new LightSource(true, x, y, radius, intensity, -1));
+	}
+
+	/**
+	 * Adds a light that can move, such as a torch.
+	 *
+	 * @param x
+	 * @param y
+	 * @param radius
+	 * @param intensity
+	 * @return The source, for moving or removing it later
+	 */
+	public LightSource addDynamicLight(int x, int y, int radius, float intensity) {
+		return add(new LightSource(false, x, y, radius, intensity, -1));
+	}
+
+	/**
+	 * Adds a light that goes out by itself, such as a muzzle flash.
+	 *
+	 * @param x
+	 * @param y
+	 * @param radius
+	 * @param intensity
+	 * @param turns
+	 *            How many player turns the light lasts, see {@link #endTurn()}
+	 * @return The source
+	 */
+	public LightSource addFlash(int x, int y, int radius, float intensity, int turns) {
+		return add(new LightSource(false, x, y, radius, intensity, turns));
+	}
+
+	/**
+	 * Gives an actor a light that moves with it until it leaves the map.
+	 *
+	 * @param actor
+	 * @param radius
+	 * @param intensity
+	 * @return The source
+	 */
+	public LightSource carryLight(Actor actor, int radius, float intensity) {
+		if (actor.getLight() != null)
+			removeLight(actor.getLight());
+
+		LightSource light = addDynamicLight(actor.getPosition().x, actor.getPosition().y, radius, intensity);
+		actor.setLight(light);
+		return light;
+	}
+
+	public void removeLight(LightSource light) {
+		List<LightSource> sources = light.isStatic ? staticSources : dynamicSources;
+		if (!sources.remove(light))
+			return;
+
+		if (light.dirty) {
+			dirtySources.remove(light);
+			light.dirty = false;
+		}
+		regionOf(light).add(light);
+	}
+
+	/**
+	 * Moves a dynamic light. Only the squares around where it was and where it ends up are re-lit, once, when the light
+	 * is next looked at.
+	 *
+	 * @param light
+	 * @param x
+	 * @param y
+	 */
+	public void moveLight(LightSource light, int x, int y) {
+		if (light.isStatic)
+			throw new IllegalArgumentException("static lights can't be moved");
+		if (light.x == x && light.y == y)
+			return;
+
+		light.moveTo(x, y);
+		markDirty(light);
+	}
+
+	/**
+	 * Marks the sources whose light could reach a tile whose light resistance just changed, such as an opening door,
+	 * to be re-lit. Called by the map.
+	 *
+	 * @param x
+	 * @param y
+	 */
+	void tileChanged(int x, int y) {
+		markCovering(staticSources, x, y);
+		markCovering(dynamicSources, x, y);
+	}
+
+	/**
+	 * Puts out the flashes whose time is up. Called once a player turn.
+	 */
+	public void endTurn() {
+		for (Iterator<LightSource> it = dynamicSources.iterator(); it.hasNext();) {
+			LightSource light = it.next();
+			if (light.turnsLeft < 0 || --light.turnsLeft > 0)
+				continue;
+
+			it.remove();
+			if (light.dirty) {
+				dirtySources.remove(light);
+				light.dirty = false;
+			}
+			dynamicDirty.add(light);
+		}
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 * @return The light reaching the tile from every source, from 0 to 1
+	 */
+	public float getLight(int x, int y) {
+		if (!map.isWithinBounds(x, y))
+			return 0;
+
+		flush();
+		int index = x + y * width;
+		return Math.min(1f, staticLight[index] + dynamicLight[index]);
+	}
+
+	/**
+	 * @return A counter that changes whenever the light on any tile may have changed
+	 */
+	public int getVersion() {
+		flush();
+		return version;
+	}
+
+	public int getStaticLightCount() {
+		return staticSources.size();
+	}
+
+	public int getDynamicLightCount() {
+		return dynamicSources.size();
+	}
+
+	/**
+	 * @return How many times a source's light has been worked out
+	 */
+	public long getSourcesLit() {
+		return sourcesLit;
+	}
+
+	/**
+	 * @return How many times the light has been brought up to date after something changed
+	 */
+	public long getFlushes() {
+		return flushes;
+	}
+
+	/**
+	 * @return The time spent bringing the light up to date, re-lighting and summing, in nanoseconds
+	 */
+	public long getFlushNanos() {
+		return flushNanos;
+	}
+
+	/**
+	 * @return The longest it has taken to bring the light up to date, in nanoseconds
+	 */
+	public long getSlowestFlushNanos() {
+		return slowestFlushNanos;
+	}
+
+	/**
+	 * @return How many tiles have been summed again, counting each layer separately
+	 */
+	public long getTilesSummed() {
+		return tilesSummed;
+	}
+
+	@Override
+	public String toString() {
+		flush();
+		return String.format("%d static and %d dynamic lights, lit %d times in %d updates, %.1f us per update (%.1f us at most), "
+				+ "%.1f tiles summed per update", staticSources.size(), dynamicSources.size(), sourcesLit, flushes,
+				flushes > 0 ? flushNanos / 1000.0 / flushes : 0, slowestFlushNanos / 1000.0, flushes > 0 ? tilesSummed / (double) flushes : 0);
+	}
+
+	private LightSource add(LightSource light) {
+		(light.isStatic ? staticSources : dynamicSources).add(light);
+		markDirty(light);
+		return light;
+	}
+
+	private void markCovering(List<LightSource> sources, int x, int y) {
+		for (LightSource light : sources) {
+			if (light.covers(x, y))
+				markDirty(light);
+		}
+	}
+
+	/**
+	 * Marks a source to be re-lit, along with the chunks its light covered so far.
+	 */
+	private void markDirty(LightSource light) {
+		if (light.dirty)
+			return;
+
+		light.dirty = true;
+		dirtySources.add(light);
+		regionOf(light).add(light);
+	}
+
+	/**
+	 * Re-lights the sources marked since the light was last looked at, all in one batch, then sums the chunks they
+	 * covered before and cover now.
+	 */
+	private void flush() {
+		if (dirtySources.isEmpty() && staticDirty.isEmpty() && dynamicDirty.isEmpty())
+			return;
+
+		long start = System.nanoTime();
+		FieldBatch.compute(map.getLightValues(), dirtySources);
+		for (LightSource light : dirtySources) {
+			light.dirty = false;
+			regionOf(light).add(light);
+			sourcesLit++;
+			Metrics.count(Counter.LIGHTS_LIT);
+		}
+		dirtySources.clear();
+
+		sum(staticSources, staticLight, staticDirty);
+		sum(dynamicSources, dynamicLight, dynamicDirty);
+		version++;
+
+		long elapsed = System.nanoTime() - start;
+		flushes++;
+		flushNanos += elapsed;
+		slowestFlushNanos = Math.max(slowestFlushNanos, elapsed);
+		Metrics.record(Phase.LIGHTING, elapsed);
+	}
+
+	/**
+	 * Adds up the light from one layer's sources over the chunks that changed. Each run of dirty chunks along a row of
+	 * chunks is summed as one rectangle.
+	 */
+	private void sum(List<LightSource> sources, float[] layer, DirtyChunks chunks) {
+		if (chunks.isEmpty())
+			return;
+
+		for (int row = 0; row < chunks.rows; row++) {
+			int column = 0;
+			while (column < chunks.columns) {
+				if (!chunks.dirty[column + row * chunks.columns]) {
+					column++;
+					continue;
+				}
+
+				int first = column;
+				while (column < chunks.columns && chunks.dirty[column + row * chunks.columns]) {
+					chunks.dirty[column + row * chunks.columns] = false;
+					column++;
+				}
+
+				int left = first * CHUNK_SIZE;
+				int top = row * CHUNK_SIZE;
+				int right = Math.min(width, column * CHUNK_SIZE);
+				int bottom = Math.min(height, top + CHUNK_SIZE);
+				FieldBatch.combine(sources, Combiner.SUM, layer, width, left, top, right, bottom);
+				tilesSummed += (right - left) * (bottom - top);
+			}
+		}
+		chunks.count = 0;
+	}
+
+	private DirtyChunks regionOf(LightSource light) {
+		return light.isStatic ? staticDirty : dynamicDirty;
+	}
+
+	/** The chunks of a layer that have to be summed again, by column + row * columns */
+	private static class DirtyChunks {
+		final int columns;
+		final int rows;
+		final boolean[] dirty;
+		int count;
+
+		DirtyChunks(int width, int height) {
+			columns = (width + CHUNK_SIZE - 1) / CHUNK_SIZE;
+			rows = (height + CHUNK_SIZE - 1) / CHUNK_SIZE;
+			dirty = new boolean[columns * rows];
+		}
+
+		/**
+		 * Marks the chunks the square covered by a request's last result overlaps.
+		 */
+		void add(FieldRequest request) {
+			if (request.windowWidth == 0)
+				return;
+
+			int lastColumn = (request.left + request.windowWidth - 1) / CHUNK_SIZE;
+			int lastRow = (request.top + request.windowHeight - 1) / CHUNK_SIZE;
+			for (int row = request.top / CHUNK_SIZE; row <= lastRow; row++) {
+				for (int column = request.left / CHUNK_SIZE; column <= lastColumn; column++) {
+					int chunk = column + row * columns;
+					if (!dirty[chunk]) {
+						dirty[chunk] = true;
+						count++;
+					}
+				}
+			}
+		}
+
+		boolean isEmpty() {
+			return count == 0;
+		}
+	}
+}
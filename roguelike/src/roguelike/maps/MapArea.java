@@ -6,18 +6,19 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.List;
+import java.util.function.IntConsumer;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import roguelike.Game;
 import roguelike.actors.Actor;
+import roguelike.actors.ActorScheduler;
 import roguelike.actors.EnemyFactory;
 import roguelike.items.Inventory;
 import roguelike.items.Item;
 import roguelike.ui.windows.TerminalBase;
 import roguelike.util.Coordinate;
-import roguelike.util.CurrentItemTracker;
 import squidpony.squidcolor.SColor;
 import squidpony.squidmath.RNG;
 
@@ -27,27 +28,61 @@ public class MapArea implements Serializable {
 	private static final long serialVersionUID = 1L;
 
 	private Tile[][] map;
+	/** Light resistance by [x][y], the layout the FOV and LOS solvers take; updated in place as tiles change */
 	private float[][] lightResistances;
-	private boolean[][] walls;
+	/** Which tiles are walls, one bit per tile at x + y * width */
+	private transient long[] walls;
 
-	protected CurrentItemTracker<Actor> actors;
+	protected ActorScheduler actors;
 	protected int width, height;
 	protected int difficulty; // controls how difficult random enemies are here
+	protected int maxActors = 10; // spawning stops once this many actors are on the map
 
 	protected String name;
 
+	private RoomGraph roomGraph;
+	private boolean jumpPointSearch;
+	private transient PathfindingService pathfinding;
+	private transient VisibilityOracle visibility;
+	private transient LightingEngine lighting;
+	private transient ReachabilityIndex reachability;
+	private transient ReachabilityIndex reachabilityThroughDoors;
+
+	/** Incremented whenever walkability or light resistance changes */
+	private transient int walkabilityVersion;
+	private transient WalkabilitySnapshot walkabilitySnapshot;
+
+	/** Incremented whenever light resistance changes, which is all field of view depends on */
+	private transient int opacityVersion;
+
+	/** The most recently changed tiles (x + y * width) and the version each change produced, as a ring buffer */
+	private static final int CHANGE_LOG_SIZE = 256;
+	private transient int[] changedTiles;
+	private transient int[] changedVersions;
+	private transient int changeCount;
+
+	private transient DijkstraMap chaseMap;
+	private transient DijkstraMap fleeMap;
+	private transient int chaseX = -1, chaseY = -1;
+	private transient int chaseVersion = -1, fleeVersion = -1;
+
 	// private PointGraph pointGraph;
 
 	// private MapArea() {
 	// }
 
 	protected MapArea(int width, int height, MapBuilderBase mapBuilder) {
-		actors = new CurrentItemTracker<Actor>();
+		actors = new ActorScheduler();
 		this.width = width;
 		this.height = height;
 		this.difficulty = 1;
 
 		buildMapArea(mapBuilder);
+		reachability = new ReachabilityIndex(map, false);
+		reachabilityThroughDoors = new ReachabilityIndex(map, true);
+		pathfinding = new PathfindingService(this);
+		visibility = new VisibilityOracle(this);
+		lighting = new LightingEngine(this);
 	}
 
 	public static MapArea build(int width, int height, MapBuilderBase mapBuilder) {
@@ -56,6 +91,13 @@ public class MapArea implements Serializable {
 
 	private void readObject(ObjectInputStream in) throws ClassNotFoundException, IOException {
 		in.defaultReadObject();
+		locateDoors();
+		updateValues();
+		reachability = new ReachabilityIndex(map, false);
+		reachabilityThroughDoors = new ReachabilityIndex(map, true);
+		pathfinding = new PathfindingService(this);
+		visibility = new VisibilityOracle(this);
+		lighting = new LightingEngine(this);
 		LOG.debug("Read map");
 	}
 
@@ -71,10 +113,91 @@ public class MapArea implements Serializable {
 		return this.name;
 	}
 
+	/**
+	 * Returns the room/door layout recorded by the map builder, if it produced one.
+	 * 
+	 * @return The graph, or null for maps without distinct rooms
+	 */
+	public RoomGraph getRoomGraph() {
+		return roomGraph;
+	}
+
+	/**
+	 * Returns the pathfinding service shared by everything searching this map.
+	 * 
+	 * @return
+	 */
+	public PathfindingService pathfinding() {
+		return pathfinding;
+	}
+
+	/**
+	 * Returns what answers whether actors on this map can see each other.
+	 * 
+	 * @return
+	 */
+	public VisibilityOracle visibility() {
+		return visibility;
+	}
+
+	/**
+	 * Returns the light sources on this map and the light they cast.
+	 * 
+	 * @return
+	 */
+	public LightingEngine lighting() {
+		return lighting;
+	}
+
+	/**
+	 * Returns whether paths on this map may be found with Jump Point Search. Off unless turned on, and only takes effect
+	 * when every tile costs the same to cross; see {@link PathfindingService}. It treats other actors as walls, where
+	 * A* only makes them costly to walk through, so the two can pick different routes around a crowd.
+	 * 
+	 * @return
+	 */
+	public boolean isJumpPointSearch() {
+		return jumpPointSearch;
+	}
+
+	public void setJumpPointSearch(boolean jumpPointSearch) {
+		this.jumpPointSearch = jumpPointSearch;
+	}
+
+	/**
+	 * Returns which passable tiles are connected to each other, kept up to date as doors open and close.
+	 * 
+	 * @return
+	 */
+	public ReachabilityIndex reachability() {
+		return reachability;
+	}
+
+	/**
+	 * Returns which tiles are connected to each other if closed doors are opened on the way, for searches that go
+	 * through them (see {@link MapHelpers#isWalkable(Tile)}).
+	 * 
+	 * @return
+	 */
+	public ReachabilityIndex reachabilityThroughDoors() {
+		return reachabilityThroughDoors;
+	}
+
+	public int getMaxActors() {
+		return maxActors;
+	}
+
+	/**
+	 * Sets how many actors, the player included, spawning will fill this map up to.
+	 * 
+	 * @param maxActors
+	 */
+	public void setMaxActors(int maxActors) {
+		this.maxActors = maxActors;
+	}
+
 	public void spawnMonsters() {
 	    LOG.debug("spawnMonsters");
-		// int maxActors = 70;
-		int maxActors = 10;
 		if (actors.count() < maxActors && Game.current().random().nextInt(10) > 6) {
 			/* create a new one somewhere close to the player */
 
@@ -114,21 +237,204 @@ public class MapArea implements Serializable {
 		return lightResistances;
 	}
 
-	public boolean[][] getWalls() {
-		return walls;
+	public boolean isWall(int x, int y) {
+		if (!isWithinBounds(x, y))
+			return false;
+
+		int index = x + y * width;
+		return (walls[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Returns a counter that changes whenever tiles on this map change their walkability or light resistance (e.g.
+	 * doors opening and closing). Anything cached from the map's tiles can compare this against the value it was built
+	 * with.
+	 * 
+	 * @return
+	 */
+	public int getWalkabilityVersion() {
+		return walkabilityVersion;
+	}
+
+	/**
+	 * Returns a counter that changes whenever a tile's light resistance changes (e.g. a door opening or closing), for
+	 * checking whether a field of view calculated earlier still holds.
+	 * 
+	 * @return
+	 */
+	public int getOpacityVersion() {
+		return opacityVersion;
+	}
+
+	/**
+	 * Returns which tiles can be walked over as of the current walkability version, for searching on other threads.
+	 * The same snapshot is returned until the version changes.
+	 * 
+	 * @return
+	 */
+	public synchronized WalkabilitySnapshot getWalkabilitySnapshot() {
+		if (walkabilitySnapshot == null || walkabilitySnapshot.getVersion() != walkabilityVersion)
+			walkabilitySnapshot = new WalkabilitySnapshot(map, walkabilityVersion);
+
+		return walkabilitySnapshot;
+	}
+
+	/**
+	 * Reports each tile whose walkability or light resistance changed after the given version.
+	 * 
+	 * @param version
+	 *            A value previously returned by getWalkabilityVersion()
+	 * @param consumer
+	 *            Receives the index (x + y * width) of each changed tile; a tile may be reported more than once
+	 * @return False if the changes are too old to still be recorded, in which case nothing is reported and the caller
+	 *         should rebuild whatever it derived from the map
+	 */
+	public synchronized boolean getChangedTilesSince(int version, IntConsumer consumer) {
+		if (version == walkabilityVersion)
+			return true;
+
+		int oldest = Math.max(0, changeCount - CHANGE_LOG_SIZE);
+		if (changedTiles == null || (oldest > 0 && changedVersions[oldest % CHANGE_LOG_SIZE] > version + 1))
+			return false;
+
+		for (int i = oldest; i < changeCount; i++) {
+			if (changedVersions[i % CHANGE_LOG_SIZE] > version)
+				consumer.accept(changedTiles[i % CHANGE_LOG_SIZE]);
+		}
+		return true;
+	}
+
+	private void recordChangedTile(int x, int y) {
+		if (changedTiles == null) {
+			changedTiles = new int[CHANGE_LOG_SIZE];
+			changedVersions = new int[CHANGE_LOG_SIZE];
+		}
+		changedTiles[changeCount % CHANGE_LOG_SIZE] = x + y * width;
+		changedVersions[changeCount % CHANGE_LOG_SIZE] = walkabilityVersion;
+		changeCount++;
+	}
+
+	/**
+	 * Returns a distance map towards the given point (generally the player's position), shared by every actor chasing
+	 * it. The map is only rescanned when the point moves or the map's walkability changes.
+	 * 
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public synchronized DijkstraMap getChaseMap(int x, int y) {
+		if (chaseMap == null)
+			chaseMap = new DijkstraMap(width, height);
+
+		if (x != chaseX || y != chaseY || chaseVersion != walkabilityVersion) {
+			chaseMap.clearGoals();
+			chaseMap.addGoal(x, y);
+			chaseMap.scan(this);
+
+			chaseX = x;
+			chaseY = y;
+			chaseVersion = walkabilityVersion;
+			fleeVersion = -1;
+		}
+		return chaseMap;
+	}
+
+	/**
+	 * Returns a map for fleeing from the given point, derived from the chase map for the same point.
+	 * 
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public synchronized DijkstraMap getFleeMap(int x, int y) {
+		DijkstraMap chase = getChaseMap(x, y);
+
+		if (fleeMap == null)
+			fleeMap = new DijkstraMap(width, height);
+
+		if (fleeVersion != chaseVersion) {
+			fleeMap.updateFrom(chase, this, DijkstraMap.DEFAULT_FLEE_COEFFICIENT);
+			fleeVersion = chaseVersion;
+		}
+		return fleeMap;
+	}
+
+	/**
+	 * Updates internal arrays tracking light values and walls for FOV calculations from every tile. Only needed once
+	 * the map is built or loaded; after that, see {@link #tileChanged(int, int)}.
+	 */
+	public synchronized void updateValues() {
+		boolean initial = lightResistances == null || walls == null;
+		if (lightResistances == null)
+			lightResistances = new float[width][height];
+		if (walls == null)
+			walls = new long[(width * height + 63) >>> 6];
+
+		walkabilityVersion++;
+
+		boolean opacityChanged = initial;
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++)
+				opacityChanged |= refreshTile(x, y, initial);
+		}
+
+		if (opacityChanged)
+			opacityVersion++;
+	}
+
+	/**
+	 * Updates the light value and wall arrays, and everything derived from the map's walkability, for a tile whose
+	 * passability, light resistance or wall-ness just changed, such as a door opening or closing.
+	 * 
+	 * @param x
+	 * @param y
+	 */
+	public synchronized void tileChanged(int x, int y) {
+		walkabilityVersion++;
+
+		if (refreshTile(x, y, false)) {
+			opacityVersion++;
+			if (lighting != null)
+				lighting.tileChanged(x, y);
+		}
 	}
 
 	/**
-	 * Updates internal arrays tracking light values and walls for FOV calculations. This should not change very often.
+	 * @return True if the tile's light resistance changed
 	 */
-	public void updateValues() {
-		lightResistances = new float[width][height];
-		walls = new boolean[width][height];
+	private boolean refreshTile(int x, int y, boolean initial) {
+		Tile tile = map[x][y];
+		int index = x + y * width;
+		long bit = 1L << index;
+
+		float light = tile.getLighting();
+		boolean wall = tile.isWall();
+		boolean lightChanged = lightResistances[x][y] != light;
+		boolean wallChanged = ((walls[index >>> 6] & bit) != 0) != wall;
+
+		lightResistances[x][y] = light;
+		if (wall)
+			walls[index >>> 6] |= bit;
+		else
+			walls[index >>> 6] &= ~bit;
+
+		if (!initial && (lightChanged || wallChanged))
+			recordChangedTile(x, y);
+
+		if (reachability != null) {
+			reachability.tileChanged(map, x, y);
+			reachabilityThroughDoors.tileChanged(map, x, y);
+		}
 
+		return lightChanged;
+	}
+
+	/** Tells each door where it is, so it can report opening and closing */
+	private void locateDoors() {
 		for (int x = 0; x < width; x++) {
 			for (int y = 0; y < height; y++) {
-				lightResistances[x][y] = map[x][y].getLighting();
-				walls[x][y] = map[x][y].isWall();
+				if (map[x][y] instanceof Door)
+					((Door) map[x][y]).locate(x, y);
 			}
 		}
 	}
@@ -242,19 +548,53 @@ public class MapArea implements Serializable {
 		return actors.getCurrent();
 	}
 
-	public Actor peekNextActor() {
-		return actors.peek();
+	/**
+	 * Returns the scheduler tick the current actor is acting on.
+	 * 
+	 * @return
+	 */
+	public long getTick() {
+		return actors.getTick();
 	}
 
 	/**
-	 * Advances the current actor to the next in the queue.
+	 * Ends the current actor's turn; the next actor is whichever will be ready soonest.
 	 */
 	public void nextActor(String reason) {
-		actors.advance();
+		Actor actor = actors.getCurrent();
+		if (actor != null)
+			actors.advance(actor.effectiveSpeed(this));
 
 		// Log.debug("Current actor: " + getCurrentActor().getName() + " => " + reason);
 	}
 
+	/**
+	 * Re-keys an actor's next turn after something changed its effective speed while it was waiting.
+	 * 
+	 * @param actor
+	 */
+	public void actorSpeedChanged(Actor actor) {
+		actors.speedChanged(actor, actor.effectiveSpeed(this));
+	}
+
+	/**
+	 * @param until
+	 *            The actor to stop before, usually the player
+	 * @return The current actor and those due to act after it, in order
+	 */
+	public List<Actor> getUpcomingActors(Actor until) {
+		return actors.getUpcoming(until);
+	}
+
+	/**
+	 * Returns the actor that will act after the current one.
+	 * 
+	 * @return
+	 */
+	public Actor peekNextActor() {
+		return actors.peek();
+	}
+
 	/**
 	 * Returns the actor at the given position.
 	 * 
@@ -282,7 +622,7 @@ public class MapArea implements Serializable {
 		if (tile.getActor() != null)
 			return false;
 
-		actors.add(actor);
+		actors.add(actor, actor.effectiveSpeed(this));
 		tile.setActor(actor);
 		return true;
 	}
@@ -295,11 +635,26 @@ public class MapArea implements Serializable {
 	 * @return True if the move was successful, false otherwise.
 	 */
 	public boolean moveActor(Actor actor, Coordinate newPosition) {
+		return moveActor(actor, newPosition.x, newPosition.y);
+	}
+
+	/**
+	 * Moves an actor from one tile to another.
+	 * 
+	 * @param actor
+	 * @param x
+	 * @param y
+	 * @return True if the move was successful, false otherwise.
+	 */
+	public boolean moveActor(Actor actor, int x, int y) {
 		Coordinate pos = actor.getPosition();
 		Tile tile = getTileAt(pos.x, pos.y);
 		if (tile.getActor() != null) {
-			if (tile.moveActorTo(getTileAt(newPosition))) {
-				actor.setPosition(newPosition.x, newPosition.y);
+			if (tile.moveActorTo(getTileAt(x, y))) {
+				actor.setPosition(x, y);
+				if (actor.getLight() != null)
+					lighting.moveLight(actor.getLight(), x, y);
+				actorSpeedChanged(actor);
 				return true;
 			}
 		}
@@ -327,6 +682,11 @@ public class MapArea implements Serializable {
 		actors.remove(actor);
 		LOG.debug("     > actors count: {}", actors.getAll().size());
 		tile.setActor(null);
+		pathfinding.reservations().release(actor);
+		if (actor.getLight() != null) {
+			lighting.removeLight(actor.getLight());
+			actor.setLight(null);
+		}
 		return true;
 	}
 
@@ -421,6 +781,8 @@ public class MapArea implements Serializable {
 		map = new Tile[width][height];
 
 		this.name = mapBuilder.buildMap(map);
+		this.roomGraph = mapBuilder.buildRoomGraph(map);
+		locateDoors();
 		updateValues();
 
 		// TODO: pathfinding precalculations?
@@ -177,5 +177,16 @@ public abstract class MapBuilderBase implements Serializable {
 			map[point.x][point.y] = tb.buildTile(character);
 	}
 
+	/**
+	 * Called after buildMap to record the map's rooms and the connections between them for hierarchical pathfinding.
+	 * Builders that don't lay out rooms return null.
+	 * 
+	 * @param map
+	 * @return
+	 */
+	public RoomGraph buildRoomGraph(Tile[][] map) {
+		return null;
+	}
+
 	protected abstract void onBuildMap(Tile[][] map);
 }
@@ -4,11 +4,94 @@ import java.awt.Point;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.function.IntConsumer;
 
 import roguelike.util.Symbol;
 import squidpony.squidmath.RNG;
 
 public class MapHelpers {
+	/** How many neighbors a tile has: its orthogonal ones come first, so straight moves win ties */
+	public static final int CARDINAL_DIRECTIONS = 4;
+	public static final int DIRECTIONS = 8;
+
+	private static final int[] NEIGHBOR_X = { 0, 1, 0, -1, -1, 1, 1, -1 };
+	private static final int[] NEIGHBOR_Y = { -1, 0, 1, 0, -1, -1, 1, 1 };
+
+	/**
+	 * Whether actors can make their way through a tile. Closed doors count, since walking into one opens it; every
+	 * search that plans routes over more than one turn should agree on this.
+	 * 
+	 * @param tile
+	 * @return
+	 */
+	public static boolean isWalkable(Tile tile) {
+		return tile.canPass() || tile instanceof Door;
+	}
+
+	/**
+	 * @param direction
+	 *            From 0 to DIRECTIONS - 1; the first CARDINAL_DIRECTIONS are the orthogonal ones
+	 * @return How far a tile's neighbor in that direction is along the x axis
+	 */
+	public static int neighborX(int direction) {
+		return NEIGHBOR_X[direction];
+	}
+
+	/**
+	 * @param direction
+	 * @return How far a tile's neighbor in that direction is along the y axis
+	 */
+	public static int neighborY(int direction) {
+		return NEIGHBOR_Y[direction];
+	}
+
+	/**
+	 * Returns the index (x + y * width) of a tile's neighbor, for searches that keep their state in flat arrays.
+	 * 
+	 * @param width
+	 * @param height
+	 * @param x
+	 * @param y
+	 * @param direction
+	 *            From 0 to DIRECTIONS - 1; the first CARDINAL_DIRECTIONS are the orthogonal ones
+	 * @return The neighbor's index, or -1 if it is off the map
+	 */
+	public static int getNeighborIndex(int width, int height, int x, int y, int direction) {
+		int xp = x + NEIGHBOR_X[direction];
+		int yp = y + NEIGHBOR_Y[direction];
+		if (xp < 0 || yp < 0 || xp >= width || yp >= height)
+			return -1;
+
+		return xp + yp * width;
+	}
+
+	/**
+	 * Calls the consumer with the index of each neighbor of a tile that lies within the map. Nothing is allocated as
+	 * long as the consumer is kept rather than created for each call.
+	 * 
+	 * @param width
+	 * @param height
+	 * @param index
+	 *            The tile's index
+	 * @param diagonals
+	 *            True for all eight neighbors, false for the four orthogonal ones
+	 * @param consumer
+	 */
+	public static void forEachNeighbor(int width, int height, int index, boolean diagonals, IntConsumer consumer) {
+		int x = index % width;
+		int y = index / width;
+		int count = diagonals ? DIRECTIONS : CARDINAL_DIRECTIONS;
+		for (int n = 0; n < count; n++) {
+			int neighbor = getNeighborIndex(width, height, x, y, n);
+			if (neighbor >= 0)
+				consumer.accept(neighbor);
+		}
+	}
+
+	/**
+	 * Returns every tile within range of a position. This allocates a list and a Point per tile; use the offset tables
+	 * for anything called often.
+	 */
 	public static ArrayList<Point> getNeighbors(MapArea map, int xPos, int yPos, int range) {
 		return getNeighbors(map.width(), map.height(), xPos, yPos, range);
 	}
@@ -87,21 +170,15 @@ public class MapHelpers {
 	}
 
 	public static int getAdjacentTiles(Tile[][] map, int x, int y, Symbol tile, boolean noDiagonals) {
+		int width = map.length;
+		int height = map[0].length;
 		int count = 0;
 
-		ArrayList<Point> neighbors = getNeighbors(map.length, map[0].length, x, y, 1);
-
-		for (Point p : neighbors) {
-			if (map[p.x][p.y].symbol == tile.symbol()) {
-
-				if (noDiagonals) {
-					/* diagonals */
-					if (x != p.x && y != p.y)
-						continue;
-				}
-
+		int directions = noDiagonals ? CARDINAL_DIRECTIONS : DIRECTIONS;
+		for (int n = 0; n < directions; n++) {
+			int neighbor = getNeighborIndex(width, height, x, y, n);
+			if (neighbor >= 0 && map[neighbor % width][neighbor / width].symbol == tile.symbol())
 				count++;
-			}
 		}
 
 		return count;
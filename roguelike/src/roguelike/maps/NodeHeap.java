@@ -0,0 +1,200 @@
+package roguelike.maps;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of node indices (x + y * width) with decrease-key support. Keys and heap positions are kept in flat
+ * arrays indexed by node, so a heap can be reused across searches without reallocating; {@link #clear()} is O(1).
+ *
+ * Nodes with equal keys are returned in the order they were last added or updated.
+ */
+class NodeHeap {
+	private final int[] heap;
+	private final int[] position;
+	private final int[] stamp;
+	private final double[] keys;
+	private final int[] order;
+
+	private int size;
+	private int generation;
+	private int sequence;
+
+	NodeHeap(int capacity) {
+		heap = new int[capacity];
+		position = new int[capacity];
+		stamp = new int[capacity];
+		keys = new double[capacity];
+		order = new int[capacity];
+
+		generation = 1;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Empties the heap. Node state from the previous use is invalidated by bumping the generation rather than clearing
+	 * the arrays.
+	 */
+	void clear() {
+		size = 0;
+		sequence = 0;
+
+		if (generation == Integer.MAX_VALUE) {
+			Arrays.fill(stamp, 0);
+			generation = 0;
+		}
+		generation++;
+	}
+
+	/**
+	 * @param node
+	 * @return True if the node is currently in the heap
+	 */
+	boolean contains(int node) {
+		return stamp[node] == generation && position[node] >= 0;
+	}
+
+	double key(int node) {
+		return keys[node];
+	}
+
+	/**
+	 * Adds a node to the heap. The node must not already be in the heap.
+	 *
+	 * @param node
+	 * @param key
+	 */
+	void add(int node, double key) {
+		stamp[node] = generation;
+		keys[node] = key;
+		order[node] = sequence++;
+
+		heap[size] = node;
+		position[node] = size;
+		size++;
+
+		siftUp(size - 1);
+	}
+
+	/**
+	 * Changes the key of a node that is already in the heap.
+	 *
+	 * @param node
+	 * @param key
+	 */
+	void update(int node, double key) {
+		double previous = keys[node];
+		keys[node] = key;
+		order[node] = sequence++;
+
+		if (key <= previous)
+			siftUp(position[node]);
+		else
+			siftDown(position[node]);
+	}
+
+	/**
+	 * Adds the node, or updates its key if it is already in the heap.
+	 *
+	 * @param node
+	 * @param key
+	 */
+	void addOrUpdate(int node, double key) {
+		if (contains(node))
+			update(node, key);
+		else
+			add(node, key);
+	}
+
+	/**
+	 * Removes a node from the heap, if it is in it.
+	 *
+	 * @param node
+	 */
+	void remove(int node) {
+		if (!contains(node))
+			return;
+
+		int slot = position[node];
+		position[node] = -1;
+
+		size--;
+		if (slot < size) {
+			int last = heap[size];
+			heap[slot] = last;
+			position[last] = slot;
+			siftDown(slot);
+			if (heap[slot] == last)
+				siftUp(slot);
+		}
+	}
+
+	/**
+	 * @return The node with the lowest key, without removing it
+	 */
+	int peek() {
+		return heap[0];
+	}
+
+	/**
+	 * Removes and returns the node with the lowest key.
+	 *
+	 * @return
+	 */
+	int poll() {
+		int first = heap[0];
+		position[first] = -1;
+
+		size--;
+		if (size > 0) {
+			heap[0] = heap[size];
+			position[heap[0]] = 0;
+			siftDown(0);
+		}
+		return first;
+	}
+
+	private boolean less(int a, int b) {
+		double ka = keys[a];
+		double kb = keys[b];
+		return ka < kb || (ka == kb && order[a] < order[b]);
+	}
+
+	private void siftUp(int slot) {
+		int node = heap[slot];
+		while (slot > 0) {
+			int parentSlot = (slot - 1) >>> 1;
+			int parent = heap[parentSlot];
+			if (!less(node, parent))
+				break;
+
+			heap[slot] = parent;
+			position[parent] = slot;
+			slot = parentSlot;
+		}
+		heap[slot] = node;
+		position[node] = slot;
+	}
+
+	private void siftDown(int slot) {
+		int node = heap[slot];
+		int half = size >>> 1;
+		while (slot < half) {
+			int child = (slot << 1) + 1;
+			int right = child + 1;
+			if (right < size && less(heap[right], heap[child]))
+				child = right;
+
+			if (!less(heap[child], node))
+				break;
+
+			heap[slot] = heap[child];
+			position[heap[slot]] = slot;
+			slot = child;
+		}
+		heap[slot] = node;
+		position[node] = slot;
+	}
+}
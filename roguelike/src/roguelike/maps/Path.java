@@ -1,27 +1,125 @@
 package roguelike.maps;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
+/**
+ * A sequence of tiles. Steps are packed into a single int each (x in the high 16 bits, y in the low 16 bits) and stored
+ * in an array with free space at both ends, so pathfinders can build a path backwards from the target with
+ * {@link #prependStep(int, int)} as cheaply as forwards with {@link #appendStep(int, int)}.
+ *
+ * Walk a path with its cursor: {@link #hasCurrentStep()}, {@link #getCurrentX()}, {@link #getCurrentY()} and
+ * {@link #nextStep()}. Nothing is allocated per step.
+ */
 public class Path {
-	/** The list of steps building up this path */
-	private ArrayList<Step> steps = new ArrayList<Step>();
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/** Packed steps; the path occupies steps[first] up to, not including, steps[last] */
+	private int[] steps;
+	private int first;
+	private int last;
 
 	int currentStep;
 
+	/* lookup table for contains(), built on demand and covering the path's bounding box */
+	private long[] occupied;
+	private int minX, minY, boxWidth, boxHeight;
+
 	/**
 	 * Create an empty path
 	 */
 	public Path() {
+		this(DEFAULT_CAPACITY);
+	}
 
+	/**
+	 * Create an empty path with room for a number of steps, added from either end, before it has to grow
+	 *
+	 * @param capacity
+	 */
+	public Path(int capacity) {
+		steps = new int[Math.max(capacity, 1) * 2];
+		first = last = steps.length / 2;
 	}
 
-	public Step getCurrentStep() {
-		if (currentStep < steps.size())
-			return getStep(currentStep);
+	/**
+	 * Builds the straight line between two points, including both ends, as used for projectiles.
+	 *
+	 * @param x1
+	 * @param y1
+	 * @param x2
+	 * @param y2
+	 * @return
+	 */
+	public static Path line(int x1, int y1, int x2, int y2) {
+		int ax = Math.abs(x2 - x1) << 1;
+		int ay = Math.abs(y2 - y1) << 1;
+		int sx = Integer.signum(x2 - x1);
+		int sy = Integer.signum(y2 - y1);
+
+		Path path = new Path(Math.max(ax, ay) / 2 + 1);
+		path.first = path.last = 0;
+
+		// the same stepping as SquidLib's Bresenham, so lines look the way they always have
+		int x = x1;
+		int y = y1;
+		if (ax >= ay) {
+			int error = ay - (ax >> 1);
+			while (true) {
+				path.appendStep(x, y);
+				if (x == x2)
+					break;
 
-		return null;
+				if (error >= 0) {
+					y += sy;
+					error -= ax;
+				}
+				x += sx;
+				error += ay;
+			}
+		} else {
+			int error = ax - (ay >> 1);
+			while (true) {
+				path.appendStep(x, y);
+				if (y == y2)
+					break;
+
+				if (error >= 0) {
+					x += sx;
+					error -= ay;
+				}
+				y += sy;
+				error += ax;
+			}
+		}
+		return path;
 	}
 
+	/**
+	 * @return True if the cursor is on a step, false once it has moved past the end of the path
+	 */
+	public boolean hasCurrentStep() {
+		return currentStep < getLength();
+	}
+
+	/**
+	 * @return The x coordinate of the step under the cursor
+	 */
+	public int getCurrentX() {
+		return getX(currentStep);
+	}
+
+	/**
+	 * @return The y coordinate of the step under the cursor
+	 */
+	public int getCurrentY() {
+		return getY(currentStep);
+	}
+
+	/**
+	 * Moves the cursor to the next step.
+	 *
+	 * @return The new cursor position
+	 */
 	public int nextStep() {
 		currentStep++;
 
@@ -29,76 +127,78 @@ public class Path {
 	}
 
 	/**
-	 * Get the length of the path, i.e. the number of steps
-	 * 
-	 * @return The number of steps in this path
+	 * @return The index of the step under the cursor
 	 */
-	public int getLength() {
-		return steps.size();
+	public int getCurrentIndex() {
+		return currentStep;
 	}
 
 	/**
-	 * Get the step at a given index in the path
-	 * 
-	 * @param index
-	 *            The index of the step to retrieve. Note this should be >= 0
-	 *            and < getLength();
-	 * @return The step information, the position on the map.
+	 * Get the length of the path, i.e. the number of steps
+	 *
+	 * @return The number of steps in this path
 	 */
-	public Step getStep(int index) {
-		return (Step) steps.get(index);
+	public int getLength() {
+		return last - first;
 	}
 
 	/**
 	 * Get the x coordinate for the step at the given index
-	 * 
+	 *
 	 * @param index
 	 *            The index of the step whose x coordinate should be retrieved
 	 * @return The x coordinate at the step
 	 */
 	public int getX(int index) {
-		return getStep(index).x;
+		return unpackX(steps[first + index]);
 	}
 
 	/**
 	 * Get the y coordinate for the step at the given index
-	 * 
+	 *
 	 * @param index
 	 *            The index of the step whose y coordinate should be retrieved
 	 * @return The y coordinate at the step
 	 */
 	public int getY(int index) {
-		return getStep(index).y;
+		return unpackY(steps[first + index]);
 	}
 
 	/**
 	 * Append a step to the path.
-	 * 
+	 *
 	 * @param x
 	 *            The x coordinate of the new step
 	 * @param y
 	 *            The y coordinate of the new step
 	 */
 	public void appendStep(int x, int y) {
-		steps.add(new Step(x, y));
+		if (last == steps.length)
+			grow();
+
+		steps[last++] = pack(x, y);
+		occupied = null;
 	}
 
 	/**
 	 * Prepend a step to the path.
-	 * 
+	 *
 	 * @param x
 	 *            The x coordinate of the new step
 	 * @param y
 	 *            The y coordinate of the new step
 	 */
 	public void prependStep(int x, int y) {
-		// steps.add(new Step(x, y));
-		steps.add(0, new Step(x, y));
+		if (first == 0)
+			grow();
+
+		steps[--first] = pack(x, y);
+		occupied = null;
 	}
 
 	/**
 	 * Check if this path contains the given step
-	 * 
+	 *
 	 * @param x
 	 *            The x coordinate of the step to check for
 	 * @param y
@@ -106,69 +206,135 @@ public class Path {
 	 * @return True if the path contains the given step
 	 */
 	public boolean contains(int x, int y) {
-		return steps.contains(new Step(x, y));
-	}
-
-	/**
-	 * A single step within the path
-	 * 
-	 * @author Kevin Glass
-	 */
-	public class Step {
-		/** The x coordinate at the given step */
-		private int x;
-		/** The y coordinate at the given step */
-		private int y;
-
-		/**
-		 * Create a new step
-		 * 
-		 * @param x
-		 *            The x coordinate of the new step
-		 * @param y
-		 *            The y coordinate of the new step
-		 */
-		public Step(int x, int y) {
-			this.x = x;
-			this.y = y;
+		if (occupied == null)
+			buildLookup();
+
+		int bx = x - minX;
+		int by = y - minY;
+		if (bx < 0 || by < 0 || bx >= boxWidth || by >= boxHeight)
+			return false;
+
+		int bit = bx + by * boxWidth;
+		return (occupied[bit >>> 6] & (1L << bit)) != 0;
+	}
+
+	/**
+	 * Drops every step after the first few.
+	 *
+	 * @param length
+	 *            The number of steps to keep
+	 */
+	public void truncate(int length) {
+		if (length < getLength()) {
+			last = first + Math.max(length, 0);
+			occupied = null;
+		}
+	}
+
+	/**
+	 * Cuts out detours: wherever a later step is next to an earlier one, the steps in between are removed so the path
+	 * goes straight there. Every step that remains was already on the path, so the result is walkable wherever the
+	 * original was. The cursor is moved back to the start.
+	 */
+	public void smooth() {
+		int length = getLength();
+		if (length < 3)
+			return;
+
+		if (occupied == null)
+			buildLookup();
+
+		/* the last index each tile of the bounding box appears at */
+		int[] lastIndex = new int[boxWidth * boxHeight];
+		Arrays.fill(lastIndex, -1);
+		for (int i = 0; i < length; i++)
+			lastIndex[(getX(i) - minX) + (getY(i) - minY) * boxWidth] = i;
+
+		int write = first;
+		int i = 0;
+		while (true) {
+			// if the path comes back to this same tile later, skip the loop
+			i = lastIndex[(getX(i) - minX) + (getY(i) - minY) * boxWidth];
+
+			int step = steps[first + i];
+			steps[write++] = step;
+			if (i == length - 1)
+				break;
+
+			/* jump to the furthest step reachable in one move from here */
+			int furthest = i + 1;
+			int x = unpackX(step) - minX;
+			int y = unpackY(step) - minY;
+			for (int dx = -1; dx <= 1; dx++) {
+				for (int dy = -1; dy <= 1; dy++) {
+					int bx = x + dx;
+					int by = y + dy;
+					if ((dx == 0 && dy == 0) || bx < 0 || by < 0 || bx >= boxWidth || by >= boxHeight)
+						continue;
+
+					furthest = Math.max(furthest, lastIndex[bx + by * boxWidth]);
+				}
+			}
+			i = furthest;
 		}
 
-		/**
-		 * Get the x coordinate of the new step
-		 * 
-		 * @return The x coodindate of the new step
-		 */
-		public int getX() {
-			return x;
+		last = write;
+		currentStep = 0;
+		occupied = null;
+	}
+
+	private void buildLookup() {
+		int length = getLength();
+		int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+		minX = Integer.MAX_VALUE;
+		minY = Integer.MAX_VALUE;
+		for (int i = 0; i < length; i++) {
+			minX = Math.min(minX, getX(i));
+			minY = Math.min(minY, getY(i));
+			maxX = Math.max(maxX, getX(i));
+			maxY = Math.max(maxY, getY(i));
 		}
 
-		/**
-		 * Get the y coordinate of the new step
-		 * 
-		 * @return The y coodindate of the new step
-		 */
-		public int getY() {
-			return y;
+		if (length == 0) {
+			minX = minY = 0;
+			boxWidth = boxHeight = 1;
+			occupied = new long[1];
+			return;
 		}
 
-		/**
-		 * @see Object#hashCode()
-		 */
-		public int hashCode() {
-			return x * y;
+		boxWidth = maxX - minX + 1;
+		boxHeight = maxY - minY + 1;
+		int bits = boxWidth * boxHeight;
+		occupied = new long[(bits + 63) >>> 6];
+		for (int i = 0; i < length; i++) {
+			int bit = (getX(i) - minX) + (getY(i) - minY) * boxWidth;
+			occupied[bit >>> 6] |= 1L << bit;
 		}
+	}
 
-		/**
-		 * @see Object#equals(Object)
-		 */
-		public boolean equals(Object other) {
-			if (other instanceof Step) {
-				Step o = (Step) other;
+	/**
+	 * Doubles the space for steps, keeping the path centered so both ends have room to grow.
+	 */
+	private void grow() {
+		int length = getLength();
+		int[] grown = new int[Math.max(steps.length * 2, DEFAULT_CAPACITY)];
+		int start = (grown.length - length) / 2;
+		System.arraycopy(steps, first, grown, start, length);
 
-				return (o.x == x) && (o.y == y);
-			}
+		steps = grown;
+		first = start;
+		last = start + length;
+	}
 
-			return false;
-		}
+	private static int pack(int x, int y) {
+		return (x << 16) | (y & 0xffff);
+	}
+
+	private static int unpackX(int step) {
+		return step >> 16;
+	}
+
+	private static int unpackY(int step) {
+		return (short) step;
 	}
-}
\ No newline at end of file
+}
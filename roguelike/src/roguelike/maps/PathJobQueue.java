@@ -0,0 +1,253 @@
+package roguelike.maps;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds requested paths for one map on a pool of worker threads shared by all maps, highest priority first and then
+ * in the order asked. Requests for the same goal made while a search for it is still queued (against the same
+ * snapshot of the map) join that search rather than queueing another; see {@link GoalSearch}.
+ *
+ * A search's result depends only on the snapshot it runs against, not on which thread runs it or when, so a game stays
+ * repeatable as long as paths are collected at fixed points, such as the requester's next turn.
+ */
+class PathJobQueue {
+	private static final AtomicInteger threadCount = new AtomicInteger();
+
+	/** One fewer worker than there are processors, leaving one for the game */
+	private static final ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+			runnable -> {
+				Thread thread = new Thread(runnable, "pathfinding-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	private final MapArea map;
+	private final PathfindingStats stats;
+	private final PathfindingService.Pool<GoalSearch> searches;
+
+	private final PriorityQueue<Job> queue = new PriorityQueue<Job>((a, b) -> a.priority != b.priority ? Integer.compare(b.priority, a.priority)
+			: Long.compare(a.sequence, b.sequence));
+	/** Queued jobs by goal, for requests to join */
+	private final HashMap<Integer, Job> queuedByGoal = new HashMap<Integer, Job>();
+	private long nextSequence;
+
+	PathJobQueue(MapArea map, PathfindingStats stats) {
+		this.map = map;
+		this.stats = stats;
+		this.searches = new PathfindingService.Pool<>(() -> new GoalSearch(map.width(), map.height()));
+	}
+
+	synchronized PathRequest submit(int sx, int sy, int tx, int ty, int maxSearchDistance, int priority) {
+		WalkabilitySnapshot snapshot = map.getWalkabilitySnapshot();
+		int goal = tx + ty * map.width();
+
+		Job job = queuedByGoal.get(goal);
+		if (job != null && job.snapshot == snapshot) {
+			stats.recordDeduplicated();
+			if (priority > job.priority) {
+				queue.remove(job);
+				job.priority = priority;
+				queue.add(job);
+			}
+		} else {
+			job = new Job(this, snapshot, goal, priority, nextSequence++);
+			queuedByGoal.put(goal, job);
+			queue.add(job);
+			workers.execute(this::runNext);
+		}
+
+		PathRequest request = new PathRequest(job, sx, sy, maxSearchDistance);
+		job.requests.add(request);
+		stats.recordQueued(queue.size());
+		return request;
+	}
+
+	/**
+	 * @return How many searches are waiting for a worker
+	 */
+	synchronized int size() {
+		return queue.size();
+	}
+
+	/**
+	 * Takes a job off the queue to run on this thread, unless a worker has already started it.
+	 *
+	 * @param job
+	 * @return True if the caller should run the job
+	 */
+	synchronized boolean claim(Job job) {
+		if (job.started)
+			return false;
+
+		queue.remove(job);
+		start(job);
+		return true;
+	}
+
+	/**
+	 * Drops a queued job once every request waiting on it has been canceled.
+	 */
+	synchronized void canceled(Job job) {
+		if (job.started)
+			return;
+
+		for (PathRequest request : job.requests) {
+			if (!request.canceled)
+				return;
+		}
+		queue.remove(job);
+		start(job);
+		job.finished.countDown();
+	}
+
+	/**
+	 * Checks a path found against an older snapshot of the map against the map as it is now.
+	 *
+	 * @param request
+	 * @param path
+	 * @return The path, or null if it crosses a tile that can no longer be walked over
+	 */
+	Path validate(PathRequest request, Path path) {
+		if (path == null || request.getVersion() == map.getWalkabilityVersion())
+			return path;
+
+		for (int i = 0; i < path.getLength(); i++) {
+			if (!map.getTileAt(path.getX(i), path.getY(i)).canPass()) {
+				stats.recordStale(false);
+				return null;
+			}
+		}
+		stats.recordStale(true);
+		return path;
+	}
+
+	private void runNext() {
+		Job job;
+		synchronized (this) {
+			job = queue.poll();
+			if (job == null)
+				return;
+
+			start(job);
+		}
+		job.run();
+	}
+
+	/** Once started, a job takes no more requests; a new one is queued for the same goal */
+	private void start(Job job) {
+		queuedByGoal.remove(job.goal, job);
+		job.started = true;
+	}
+
+	/**
+	 * One search towards a goal, and the requests waiting on it. Requests are only added while the job is queued.
+	 */
+	static class Job {
+		final PathJobQueue queue;
+		final WalkabilitySnapshot snapshot;
+		final int goal;
+		final long sequence;
+		final List<PathRequest> requests = new ArrayList<PathRequest>(1);
+		final CountDownLatch finished = new CountDownLatch(1);
+
+		int priority;
+		boolean started;
+
+		Job(PathJobQueue queue, WalkabilitySnapshot snapshot, int goal, int priority, long sequence) {
+			this.queue = queue;
+			this.snapshot = snapshot;
+			this.goal = goal;
+			this.priority = priority;
+			this.sequence = sequence;
+		}
+
+		boolean isDone() {
+			return finished.getCount() == 0;
+		}
+
+		/**
+		 * Waits for the job to finish, running it on this thread if no worker has picked it up yet. A failed search
+		 * isn't thrown from here, wherever it ran; it is left on the requests for {@link PathRequest#getPath()}.
+		 */
+		void await() {
+			if (queue.claim(this)) {
+				try {
+					run();
+				} catch (RuntimeException e) {
+					// already handed to each request
+				}
+				return;
+			}
+
+			boolean interrupted = false;
+			while (!isDone()) {
+				try {
+					finished.await();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+
+		/**
+		 * Runs the search. If it fails, the failure is handed to each request, to be thrown from
+		 * {@link PathRequest#getPath()}, and thrown on from here too; either way everyone waiting is released.
+		 */
+		void run() {
+			try {
+				search();
+			} catch (RuntimeException e) {
+				for (PathRequest request : requests)
+					request.failure = e;
+				throw e;
+			} finally {
+				finished.countDown();
+			}
+
+			long now = System.nanoTime();
+			for (PathRequest request : requests)
+				queue.stats.recordLatency(now - request.submitted);
+		}
+
+		private void search() {
+			long start = System.nanoTime();
+
+			int[] starts = new int[requests.size()];
+			int count = 0;
+			int maxDistance = 0;
+			for (PathRequest request : requests) {
+				if (request.canceled)
+					continue;
+
+				starts[count++] = request.sx + request.sy * snapshot.width();
+				maxDistance = Math.max(maxDistance, request.maxSearchDistance);
+			}
+
+			if (count > 0) {
+				GoalSearch search = queue.searches.borrow();
+				try {
+					search.search(snapshot, goal, starts, count, maxDistance);
+
+					boolean found = false;
+					for (PathRequest request : requests) {
+						if (!request.canceled)
+							request.result = search.pathFrom(request.sx, request.sy, request.maxSearchDistance);
+						found |= request.result != null;
+					}
+					queue.stats.record(found, search.getNodesExpanded(), System.nanoTime() - start);
+				} finally {
+					queue.searches.release(search);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package roguelike.maps;
+
+/**
+ * A path asked for with {@link PathfindingService#requestPath(int, int, int, int, int, int)}, being found on a worker
+ * thread. The usual pattern is to ask one turn and collect the path with {@link #getPath()} the next, by which time
+ * it is generally ready.
+ *
+ * The path is found on the map as it was when the request was made. If the map has changed since (a door opened or
+ * closed), the path is checked again when it is collected and dropped if it no longer holds.
+ */
+public class PathRequest {
+	/** For paths nothing is waiting on, such as wandering */
+	public static final int PRIORITY_LOW = 0;
+	public static final int PRIORITY_NORMAL = 5;
+	/** For paths towards or away from the player */
+	public static final int PRIORITY_HIGH = 10;
+
+	final PathJobQueue.Job job;
+	final int sx, sy;
+	final int maxSearchDistance;
+	final long submitted;
+
+	/** Set by the job before it completes */
+	Path result;
+	/** Set by the job instead, if the search failed */
+	RuntimeException failure;
+	volatile boolean canceled;
+
+	private boolean collected;
+	private Path path;
+
+	PathRequest(PathJobQueue.Job job, int sx, int sy, int maxSearchDistance) {
+		this.job = job;
+		this.sx = sx;
+		this.sy = sy;
+		this.maxSearchDistance = maxSearchDistance;
+		this.submitted = System.nanoTime();
+	}
+
+	/**
+	 * @return True once the path has been found, or found not to exist
+	 */
+	public boolean isDone() {
+		return job.isDone();
+	}
+
+	/**
+	 * Collects the path, waiting for it if it isn't ready yet (or finding it on this thread, if no worker has started
+	 * on it). Should be called from the game thread, since the path is checked against the map as it is now.
+	 *
+	 * This can hold up the game thread for as long as a whole search takes, if the path is collected in the same turn
+	 * it was asked for or the workers are behind. Check {@link #isDone()} first to avoid waiting.
+	 *
+	 * @return The path, including the start location as the first step, or null if there is none or it no longer holds
+	 * @throws IllegalStateException
+	 *             If the search failed, whether on a worker thread or on this one
+	 */
+	public Path getPath() {
+		if (collected)
+			return path;
+
+		job.await();
+		if (failure != null)
+			throw new IllegalStateException("Path search failed", failure);
+
+		collected = true;
+		path = job.queue.validate(this, result);
+		return path;
+	}
+
+	/**
+	 * Gives up on the path. If no one else is waiting on the same search, it is skipped.
+	 */
+	public void cancel() {
+		canceled = true;
+		job.queue.canceled(job);
+	}
+
+	/**
+	 * @return The map's walkability version the path is being found against
+	 */
+	public int getVersion() {
+		return job.snapshot.getVersion();
+	}
+}
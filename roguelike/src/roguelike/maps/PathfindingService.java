@@ -0,0 +1,307 @@
+package roguelike.maps;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import roguelike.actors.Actor;
+import roguelike.actors.Energy;
+import roguelike.actors.ParallelDecisions;
+import squidpony.squidgrid.util.DirectionIntercardinal;
+
+/**
+ * Shared path searching for a single MapArea. Behaviors borrow search state from a small pool instead of each holding
+ * a pathfinder (and its per-tile buffers) of their own, so creating or switching behaviors allocates nothing.
+ *
+ * Targets that can't be reached from the start (see {@link ReachabilityIndex}) are rejected without searching at all,
+ * going by whether the search that would run can go through closed doors.
+ *
+ * When the map has a {@link RoomGraph}, searches between different regions of it are planned hierarchically, which has
+ * no depth cutoff. Everything else uses a tile-by-tile A* search, or Jump Point Search on maps that turn it on and whose
+ * tiles all cost the same to cross.
+ *
+ * Searches may run concurrently; each one checks out its own scratch buffers for the duration of the call. Cooperative
+ * planning can't, since each plan depends on the ones made before it.
+ *
+ * Paths can also be requested ahead of time with {@link #requestPath(int, int, int, int, int, int)}, to be found on
+ * worker threads and collected later; see {@link PathRequest}.
+ */
+public class PathfindingService {
+	/** Scratch buffers kept around once returned; extra ones created under contention are discarded */
+	private static final int MAX_POOLED = 4;
+
+	private final MapArea map;
+	private final RoomGraph roomGraph;
+	private final Pool<AStarPathfinder> tilePathfinders;
+	private final Pool<JumpPointPathfinder> jumpPointPathfinders;
+	private final Pool<HierarchicalPathfinder> hierarchicalPathfinders;
+	private final Pool<CooperativePlanner> cooperativePlanners;
+	private final ReservationTable reservations;
+	private final PathfindingStats stats;
+	private final PathJobQueue jobs;
+
+	/** Jump Point Search only gives the same results as A* when every tile costs the same to walk over */
+	private boolean uniformCost;
+	private int uniformCostVersion = -1;
+
+	PathfindingService(MapArea map) {
+		this.map = map;
+		this.roomGraph = map.getRoomGraph();
+		this.tilePathfinders = new Pool<>(() -> new AStarPathfinder(map));
+		this.jumpPointPathfinders = new Pool<>(() -> new JumpPointPathfinder(map.width(), map.height()));
+		this.hierarchicalPathfinders = roomGraph != null ? new Pool<>(() -> new HierarchicalPathfinder(roomGraph)) : null;
+		this.cooperativePlanners = new Pool<>(() -> new CooperativePlanner(map.width(), map.height()));
+		this.reservations = new ReservationTable(map.width(), map.height());
+		this.stats = new PathfindingStats();
+		this.jobs = new PathJobQueue(map, stats);
+	}
+
+	/**
+	 * Finds a path between two points on the map.
+	 * 
+	 * @param sx
+	 *            The x coordinate of the start location
+	 * @param sy
+	 *            The y coordinate of the start location
+	 * @param tx
+	 *            The x coordinate of the target location
+	 * @param ty
+	 *            The y coordinate of the target location
+	 * @param maxSearchDistance
+	 *            The maximum depth to search before giving up
+	 * @return The path found, including the start location as the first step, or null if no path could be found
+	 */
+	public Path findPath(int sx, int sy, int tx, int ty, int maxSearchDistance) {
+		// the room graph routes through closed doors, A* and Jump Point Search don't
+		boolean hierarchical = roomGraph != null && roomGraph.getRegion(sx, sy) != roomGraph.getRegion(tx, ty);
+
+		// don't bother searching for a way into somewhere walled or shut off
+		ReachabilityIndex reachability = hierarchical ? map.reachabilityThroughDoors() : map.reachability();
+		if (!reachability.isReachable(sx, sy, tx, ty)) {
+			stats.recordRejected();
+			return null;
+		}
+
+		if (hierarchical)
+			return findHierarchicalPath(sx, sy, tx, ty);
+
+		if (map.isJumpPointSearch() && isUniformCost()) {
+			Path path = findJumpPointPath(sx, sy, tx, ty, maxSearchDistance);
+			if (path != null)
+				return path;
+			// it treats other actors as walls, where A* only makes them costly, so a corridor one stands in can still
+			// be walked through
+		}
+
+		AStarPathfinder pathfinder = tilePathfinders.borrow();
+		try {
+			long start = System.nanoTime();
+			Path path = pathfinder.findPath(map, sx, sy, tx, ty, maxSearchDistance);
+			if (path != null)
+				path.smooth(); // A* can wander, since only blocked tiles have a cost
+			stats.record(path != null, pathfinder.getNodesExpanded(), System.nanoTime() - start);
+
+			return path;
+		} finally {
+			tilePathfinders.release(pathfinder);
+		}
+	}
+
+	/**
+	 * Asks for a path to be found on a worker thread, against the map as it is now. Unlike
+	 * {@link #findPath(int, int, int, int, int)}, other actors aren't treated as obstacles, since they will have moved
+	 * by the time the path is collected.
+	 * 
+	 * @param sx
+	 * @param sy
+	 * @param tx
+	 * @param ty
+	 * @param maxSearchDistance
+	 *            The longest path, in steps, worth returning
+	 * @param priority
+	 *            Higher priorities are searched first, see {@link PathRequest#PRIORITY_NORMAL}
+	 * @return The request, to collect the path from
+	 */
+	public PathRequest requestPath(int sx, int sy, int tx, int ty, int maxSearchDistance, int priority) {
+		return jobs.submit(sx, sy, tx, ty, maxSearchDistance, priority);
+	}
+
+	/**
+	 * @return How many requested searches are waiting for a worker
+	 */
+	public int getQueuedRequests() {
+		return jobs.size();
+	}
+
+	private Path findJumpPointPath(int sx, int sy, int tx, int ty, int maxSearchDistance) {
+		JumpPointPathfinder pathfinder = jumpPointPathfinders.borrow();
+		try {
+			long start = System.nanoTime();
+			Path path = pathfinder.findPath(map, sx, sy, tx, ty, maxSearchDistance);
+			stats.record(path != null, pathfinder.getNodesExpanded(), System.nanoTime() - start);
+
+			return path;
+		} finally {
+			jumpPointPathfinders.release(pathfinder);
+		}
+	}
+
+	private Path findHierarchicalPath(int sx, int sy, int tx, int ty) {
+		HierarchicalPathfinder pathfinder = hierarchicalPathfinders.borrow();
+		try {
+			long start = System.nanoTime();
+			Path path = pathfinder.findPath(map, sx, sy, tx, ty);
+			stats.record(path != null, pathfinder.getNodesExpanded(), System.nanoTime() - start);
+
+			return path;
+		} finally {
+			hierarchicalPathfinders.release(pathfinder);
+		}
+	}
+
+	/**
+	 * Works out an actor's next step in a chase that goes on over many turns, repairing an earlier search towards the
+	 * same or a nearby target instead of starting over; see {@link IncrementalPathfinder}. Each actor keeps its own
+	 * search, across changes of behavior, so the step it takes depends only on its own chase and a game plays the same
+	 * however decisions are spread over threads.
+	 * 
+	 * @param actor
+	 *            The actor chasing
+	 * @param tx
+	 * @param ty
+	 * @param maxCost
+	 *            The costliest route worth following, counting one per step and extra for doors
+	 * @return The direction to walk, or null if the target can't be reached within maxCost or every way towards it is
+	 *         occupied
+	 */
+	public DirectionIntercardinal findNextStep(Actor actor, int tx, int ty, int maxCost) {
+		int sx = actor.getPosition().x;
+		int sy = actor.getPosition().y;
+
+		// an unreachable target would have the search flood the whole area before giving up; it opens doors on the way
+		if (!map.reachabilityThroughDoors().isReachable(sx, sy, tx, ty)) {
+			stats.recordRejected();
+			return null;
+		}
+
+		IncrementalPathfinder pathfinder = actor.getPathfinder();
+		if (pathfinder == null || pathfinder.getMap() != map) {
+			pathfinder = new IncrementalPathfinder(map);
+			actor.setPathfinder(pathfinder);
+		}
+
+		long start = System.nanoTime();
+		DirectionIntercardinal direction = pathfinder.getNextStep(sx, sy, tx, ty);
+		stats.record(direction != null, pathfinder.getNodesExpanded(), System.nanoTime() - start);
+
+		return direction != null && pathfinder.getPathCost() <= maxCost ? direction : null;
+	}
+
+	/**
+	 * Plans an actor's next step towards a goal together with the other actors using this method, so that their steps
+	 * don't collide, even when they move at different speeds. The actor's next few turns are reserved; see
+	 * {@link CooperativePlanner}.
+	 * 
+	 * @param actor
+	 *            The actor moving
+	 * @param tx
+	 *            The x coordinate of the goal
+	 * @param ty
+	 *            The y coordinate of the goal
+	 * @return The direction to move this turn, DirectionIntercardinal.NONE if the actor should wait for others to
+	 *         pass, or null if the goal can't be reached
+	 */
+	public DirectionIntercardinal planCooperativeStep(Actor actor, int tx, int ty) {
+		// each plan works around the reservations made before it
+		ParallelDecisions.requireSerial();
+
+		DijkstraMap distances = map.getChaseMap(tx, ty);
+		long tick = map.getTick();
+		reservations.advanceTo(tick);
+
+		CooperativePlanner planner = cooperativePlanners.borrow();
+		try {
+			long start = System.nanoTime();
+			DirectionIntercardinal direction = planner.planStep(map, reservations, distances, actor, tx, ty, tick,
+					Energy.ticksPerAction(actor.effectiveSpeed(map)));
+			stats.record(direction != null, planner.getNodesExpanded(), System.nanoTime() - start);
+
+			return direction;
+		} finally {
+			cooperativePlanners.release(planner);
+		}
+	}
+
+	/**
+	 * Returns the reservations made by cooperative planning. Time moves on as actors plan, going by the scheduler's tick.
+	 * 
+	 * @return
+	 */
+	public ReservationTable reservations() {
+		return reservations;
+	}
+
+	public PathfindingStats stats() {
+		return stats;
+	}
+
+	/**
+	 * @return Whether every passable tile changes movement speed by the same amount, worked out again whenever the
+	 *         map's walkability has changed
+	 */
+	private synchronized boolean isUniformCost() {
+		int version = map.getWalkabilityVersion();
+		if (version != uniformCostVersion) {
+			uniformCost = isUniformCost(map);
+			uniformCostVersion = version;
+		}
+		return uniformCost;
+	}
+
+	private static boolean isUniformCost(MapArea map) {
+		Integer speed = null;
+		for (int x = 0; x < map.width(); x++) {
+			for (int y = 0; y < map.height(); y++) {
+				Tile tile = map.getTileAt(x, y);
+				if (!tile.canPass())
+					continue;
+
+				if (speed == null)
+					speed = tile.speedModifier;
+				else if (speed.intValue() != tile.speedModifier)
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * A small pool of scratch objects; extra ones created under contention are dropped when returned.
+	 */
+	static class Pool<T> {
+		private final ConcurrentLinkedQueue<T> items = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger pooled = new AtomicInteger();
+		private final Supplier<T> factory;
+
+		Pool(Supplier<T> factory) {
+			this.factory = factory;
+		}
+
+		T borrow() {
+			T item = items.poll();
+			if (item == null)
+				return factory.get();
+
+			pooled.decrementAndGet();
+			return item;
+		}
+
+		void release(T item) {
+			if (pooled.incrementAndGet() <= MAX_POOLED) {
+				items.offer(item);
+			} else {
+				pooled.decrementAndGet();
+			}
+		}
+	}
+}
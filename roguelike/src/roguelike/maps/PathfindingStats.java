@@ -0,0 +1,189 @@
+package roguelike.maps;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import roguelike.util.Metrics;
+import roguelike.util.Metrics.Counter;
+import roguelike.util.Metrics.Phase;
+import roguelike.util.TimingHistogram;
+
+/**
+ * Counters for the path searches run against one map. Totals accumulate for the life of the map; the per-turn values
+ * cover the turn currently in progress and are rolled over by {@link #endTurn()}.
+ *
+ * All methods are safe to call from multiple threads.
+ */
+public class PathfindingStats {
+	private final AtomicLong searches = new AtomicLong();
+	private final AtomicLong failedSearches = new AtomicLong();
+	private final AtomicLong rejectedSearches = new AtomicLong();
+	private final AtomicLong nodesExpanded = new AtomicLong();
+	private final AtomicLong searchNanos = new AtomicLong();
+
+	private final AtomicLong turnSearches = new AtomicLong();
+	private final AtomicLong turnNodesExpanded = new AtomicLong();
+	private final AtomicLong turnSearchNanos = new AtomicLong();
+
+	/* requests made through PathfindingService.requestPath */
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong deduplicated = new AtomicLong();
+	private final AtomicLong revalidated = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicInteger maxQueueDepth = new AtomicInteger();
+	private final TimingHistogram latency = new TimingHistogram();
+
+	private volatile long lastTurnSearches;
+	private volatile long lastTurnNodesExpanded;
+	private volatile long lastTurnSearchNanos;
+
+	void record(boolean found, int expanded, long nanos) {
+		searches.incrementAndGet();
+		if (!found)
+			failedSearches.incrementAndGet();
+		nodesExpanded.addAndGet(expanded);
+		searchNanos.addAndGet(nanos);
+
+		turnSearches.incrementAndGet();
+		turnNodesExpanded.addAndGet(expanded);
+		turnSearchNanos.addAndGet(nanos);
+
+		Metrics.record(Phase.PATHFINDING, nanos);
+		Metrics.count(Counter.PATHS_SEARCHED);
+	}
+
+	/**
+	 * Counts a search that was skipped because the target could not be reached.
+	 */
+	void recordRejected() {
+		rejectedSearches.incrementAndGet();
+	}
+
+	/**
+	 * Counts a path request.
+	 *
+	 * @param queueDepth
+	 *            How many searches are queued now it has been made
+	 */
+	void recordQueued(int queueDepth) {
+		requests.incrementAndGet();
+		maxQueueDepth.accumulateAndGet(queueDepth, Math::max);
+	}
+
+	/**
+	 * Counts a path request that joined a search already queued for the same goal.
+	 */
+	void recordDeduplicated() {
+		deduplicated.incrementAndGet();
+		Metrics.count(Counter.PATHS_DEDUPLICATED);
+	}
+
+	/**
+	 * Counts a requested path that was found against a map that has since changed.
+	 *
+	 * @param valid
+	 *            Whether it still held, or had to be dropped
+	 */
+	void recordStale(boolean valid) {
+		if (valid) {
+			revalidated.incrementAndGet();
+		} else {
+			dropped.incrementAndGet();
+			Metrics.count(Counter.PATHS_DROPPED);
+		}
+	}
+
+	/**
+	 * Records the time from a path being requested to it being found.
+	 *
+	 * @param nanos
+	 */
+	void recordLatency(long nanos) {
+		synchronized (latency) {
+			latency.record(nanos);
+		}
+		Metrics.record(Phase.PATH_LATENCY, nanos);
+	}
+
+	/**
+	 * Closes out the current turn; its values become available through the getLastTurn* methods.
+	 */
+	public void endTurn() {
+		lastTurnSearches = turnSearches.getAndSet(0);
+		lastTurnNodesExpanded = turnNodesExpanded.getAndSet(0);
+		lastTurnSearchNanos = turnSearchNanos.getAndSet(0);
+	}
+
+	public long getSearches() {
+		return searches.get();
+	}
+
+	public long getFailedSearches() {
+		return failedSearches.get();
+	}
+
+	public long getRejectedSearches() {
+		return rejectedSearches.get();
+	}
+
+	public long getNodesExpanded() {
+		return nodesExpanded.get();
+	}
+
+	public long getSearchNanos() {
+		return searchNanos.get();
+	}
+
+	public long getRequests() {
+		return requests.get();
+	}
+
+	public long getDeduplicated() {
+		return deduplicated.get();
+	}
+
+	public long getRevalidated() {
+		return revalidated.get();
+	}
+
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * @return The most searches that have been waiting for a worker at once
+	 */
+	public int getMaxQueueDepth() {
+		return maxQueueDepth.get();
+	}
+
+	/**
+	 * @return A copy of the times from paths being requested to them being found
+	 */
+	public TimingHistogram getLatency() {
+		synchronized (latency) {
+			return new TimingHistogram(latency);
+		}
+	}
+
+	public long getLastTurnSearches() {
+		return lastTurnSearches;
+	}
+
+	public long getLastTurnNodesExpanded() {
+		return lastTurnNodesExpanded;
+	}
+
+	public long getLastTurnSearchNanos() {
+		return lastTurnSearchNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("searches=%d (failed %d, rejected %d), nodes=%d, time=%.2fms; last turn: searches=%d, nodes=%d, time=%.2fms",
+				getSearches(), getFailedSearches(), getRejectedSearches(), getNodesExpanded(), getSearchNanos() / 1e6,
+				lastTurnSearches, lastTurnNodesExpanded, lastTurnSearchNanos / 1e6)
+				+ String.format("; requests=%d (deduplicated %d, revalidated %d, dropped %d), max queued=%d, latency: %s", getRequests(),
+						getDeduplicated(), getRevalidated(), getDropped(), getMaxQueueDepth(), getLatency());
+	}
+}
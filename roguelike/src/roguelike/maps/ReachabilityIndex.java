@@ -0,0 +1,258 @@
+package roguelike.maps;
+
+import java.awt.Point;
+import java.util.Arrays;
+
+import squidpony.squidmath.RNG;
+
+/**
+ * Labels every passable tile of a map with the connected area ("component") it belongs to, so whether one tile can be
+ * reached from another is a single comparison.
+ *
+ * Each map keeps two: one where closed doors split the areas on either side, for the searches that can't go through
+ * them, and one where they count as passable (see {@link MapHelpers#isWalkable(Tile)}), for the searches that open
+ * doors on the way. Labels are kept up to date one tile at a time as tiles change: opening a door joins the areas
+ * around it, closing one relabels whatever might have been cut off.
+ */
+public class ReachabilityIndex {
+	public static final int NONE = -1;
+
+	/** How many random picks to try before falling back to scanning the whole area */
+	private static final int SAMPLE_ATTEMPTS = 20;
+
+	private final int width;
+	private final int height;
+	private final boolean throughDoors;
+
+	/** Component of each tile, or NONE for impassable tiles */
+	private final int[] labels;
+	/** Number of tiles with each label */
+	private int[] sizes;
+	private int nextLabel;
+	/** Labels whose components have been merged away or split up */
+	private int[] freeLabels;
+	private int freeCount;
+
+	private final int[] queue;
+
+	/**
+	 * @param map
+	 * @param throughDoors
+	 *            True if closed doors count as passable
+	 */
+	ReachabilityIndex(Tile[][] map, boolean throughDoors) {
+		this.width = map.length;
+		this.height = map[0].length;
+		this.throughDoors = throughDoors;
+
+		labels = new int[width * height];
+		sizes = new int[16];
+		freeLabels = new int[16];
+		queue = new int[width * height];
+
+		Arrays.fill(labels, NONE);
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				if (isPassable(map[x][y]) && labels[x + y * width] == NONE)
+					fill(map, x + y * width, newLabel());
+			}
+		}
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 * @return The component the tile belongs to, or NONE if it is impassable or out of bounds
+	 */
+	public int getComponent(int x, int y) {
+		if (!MapHelpers.isWithinBounds(width, height, x, y))
+			return NONE;
+
+		return labels[x + y * width];
+	}
+
+	/**
+	 * @param label
+	 * @return The number of tiles in the component
+	 */
+	public int getComponentSize(int label) {
+		return label >= 0 && label < nextLabel ? sizes[label] : 0;
+	}
+
+	/**
+	 * @return True if both tiles are passable and connected to each other
+	 */
+	public boolean isReachable(int sx, int sy, int tx, int ty) {
+		int component = getComponent(sx, sy);
+		return component != NONE && component == getComponent(tx, ty);
+	}
+
+	/**
+	 * Picks a random tile within a square around a point that can be reached from it.
+	 *
+	 * @param x
+	 * @param y
+	 * @param radius
+	 *            Half the width of the square to pick from
+	 * @param rng
+	 * @return A tile other than the starting one, or null if there is none in range
+	 */
+	public Point getRandomReachableTile(int x, int y, int radius, RNG rng) {
+		int component = getComponent(x, y);
+		if (component == NONE)
+			return null;
+
+		int left = Math.max(0, x - radius);
+		int top = Math.max(0, y - radius);
+		int right = Math.min(width - 1, x + radius);
+		int bottom = Math.min(height - 1, y + radius);
+
+		for (int i = 0; i < SAMPLE_ATTEMPTS; i++) {
+			int px = rng.between(left, right + 1);
+			int py = rng.between(top, bottom + 1);
+			if (labels[px + py * width] == component && (px != x || py != y))
+				return new Point(px, py);
+		}
+
+		/* the component is sparse in this area; pick uniformly among the tiles that qualify */
+		Point chosen = null;
+		int seen = 0;
+		for (int px = left; px <= right; px++) {
+			for (int py = top; py <= bottom; py++) {
+				if (labels[px + py * width] != component || (px == x && py == y))
+					continue;
+
+				seen++;
+				if (rng.nextInt(seen) == 0)
+					chosen = new Point(px, py);
+			}
+		}
+		return chosen;
+	}
+
+	/**
+	 * Brings the labels up to date after a tile's passability may have changed.
+	 *
+	 * @param map
+	 * @param x
+	 * @param y
+	 */
+	void tileChanged(Tile[][] map, int x, int y) {
+		int index = x + y * width;
+		boolean passable = isPassable(map[x][y]);
+		if (passable == (labels[index] != NONE))
+			return;
+
+		if (passable)
+			tileOpened(map, index);
+		else
+			tileClosed(map, index);
+	}
+
+	/**
+	 * A tile became passable: it joins its neighbors' components, merging them into the largest.
+	 */
+	private void tileOpened(Tile[][] map, int index) {
+		int largest = NONE;
+		int x = index % width;
+		int y = index / width;
+		for (int n = 0; n < MapHelpers.DIRECTIONS; n++) {
+			int neighbor = MapHelpers.getNeighborIndex(width, height, x, y, n);
+			int label = neighbor >= 0 ? labels[neighbor] : NONE;
+			if (label != NONE && (largest == NONE || sizes[label] > sizes[largest]))
+				largest = label;
+		}
+
+		if (largest == NONE) {
+			labels[index] = newLabel();
+			sizes[labels[index]] = 1;
+			return;
+		}
+
+		labels[index] = largest;
+		sizes[largest]++;
+
+		for (int n = 0; n < MapHelpers.DIRECTIONS; n++) {
+			int neighbor = MapHelpers.getNeighborIndex(width, height, x, y, n);
+			int label = neighbor >= 0 ? labels[neighbor] : NONE;
+			if (label != NONE && label != largest) {
+				fill(map, neighbor, largest);
+				releaseLabel(label);
+			}
+		}
+	}
+
+	/**
+	 * A tile became impassable: its neighbors may no longer be connected, so the area around each one is relabelled.
+	 * Neighbors still connected to each other end up sharing a label.
+	 */
+	private void tileClosed(Tile[][] map, int index) {
+		int previous = labels[index];
+		labels[index] = NONE;
+
+		int x = index % width;
+		int y = index / width;
+		for (int n = 0; n < MapHelpers.DIRECTIONS; n++) {
+			int neighbor = MapHelpers.getNeighborIndex(width, height, x, y, n);
+			if (neighbor >= 0 && labels[neighbor] == previous)
+				fill(map, neighbor, newLabel());
+		}
+
+		releaseLabel(previous);
+	}
+
+	/**
+	 * Flood fills passable tiles from start that don't already carry the label.
+	 */
+	private void fill(Tile[][] map, int start, int label) {
+		int head = 0;
+		int tail = 0;
+		labels[start] = label;
+		queue[tail++] = start;
+
+		while (head < tail) {
+			int current = queue[head++];
+			int cx = current % width;
+			int cy = current / width;
+			for (int n = 0; n < MapHelpers.DIRECTIONS; n++) {
+				int neighbor = MapHelpers.getNeighborIndex(width, height, cx, cy, n);
+				if (neighbor < 0)
+					continue;
+
+				int xp = cx + MapHelpers.neighborX(n);
+				int yp = cy + MapHelpers.neighborY(n);
+				if (labels[neighbor] != label && isPassable(map[xp][yp])) {
+					labels[neighbor] = label;
+					queue[tail++] = neighbor;
+				}
+			}
+		}
+		sizes[label] += tail;
+	}
+
+	private boolean isPassable(Tile tile) {
+		return throughDoors ? MapHelpers.isWalkable(tile) : tile.canPass();
+	}
+
+	private int newLabel() {
+		if (freeCount > 0)
+			return freeLabels[--freeCount];
+
+		if (nextLabel == sizes.length)
+			sizes = Arrays.copyOf(sizes, sizes.length * 2);
+
+		sizes[nextLabel] = 0;
+		return nextLabel++;
+	}
+
+	/**
+	 * Makes a label that no tile carries any more available for reuse.
+	 */
+	private void releaseLabel(int label) {
+		sizes[label] = 0;
+
+		if (freeCount == freeLabels.length)
+			freeLabels = Arrays.copyOf(freeLabels, freeLabels.length * 2);
+		freeLabels[freeCount++] = label;
+	}
+}
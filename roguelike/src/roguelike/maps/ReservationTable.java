@@ -0,0 +1,160 @@
+package roguelike.maps;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+import roguelike.actors.Actor;
+
+/**
+ * Records where actors plan to be over the next stretch of game time, so actors planning later can step around them
+ * instead of walking into each other. Time is counted in the scheduler's ticks (see {@link roguelike.actors.ActorScheduler}), so actors
+ * of different speeds share one clock: a fast actor's plan covers more tiles per round than a slow one's. A reservation
+ * is for a tile during a round of {@link #TICKS_PER_ROUND} ticks; reservations older than the current round simply
+ * expire.
+ *
+ * Each actor holds at most one plan: reserving a new one releases whatever it had reserved before.
+ */
+public class ReservationTable {
+	/** How many rounds ahead plans can reserve */
+	public static final int WINDOW = 8;
+
+	/** The length of a round; an actor of speed 10 acts once a round */
+	public static final int TICKS_PER_ROUND = 10;
+
+	/** The most slots a plan can hold: each round of the window, plus one more wherever a step ends within a round */
+	private static final int MAX_PLAN_SLOTS = WINDOW * 2;
+
+	private final int width;
+	private final int height;
+
+	/** Indexed by tile * WINDOW + round % WINDOW; an entry is only valid while rounds[slot] matches */
+	private final Actor[] owners;
+	private final int[] rounds;
+
+	/** The slots each actor currently holds */
+	private final IdentityHashMap<Actor, Plan> plans = new IdentityHashMap<>();
+	/** Plans released, kept to be reused */
+	private final ArrayDeque<Plan> freePlans = new ArrayDeque<>();
+
+	private int round;
+
+	private static class Plan {
+		final int[] slots = new int[MAX_PLAN_SLOTS];
+		int count;
+	}
+
+	ReservationTable(int width, int height) {
+		this.width = width;
+		this.height = height;
+
+		owners = new Actor[width * height * WINDOW];
+		rounds = new int[width * height * WINDOW];
+		Arrays.fill(rounds, -1);
+	}
+
+	/**
+	 * @return The current round
+	 */
+	public synchronized int getRound() {
+		return round;
+	}
+
+	/**
+	 * Moves time on to the round holding a tick; reservations for the rounds before it expire.
+	 *
+	 * @param tick
+	 *            The scheduler's current tick
+	 */
+	public synchronized void advanceTo(long tick) {
+		round = Math.max(round, toRound(tick));
+	}
+
+	/**
+	 * Checks whether another actor has reserved a tile at any time during a span of ticks.
+	 *
+	 * @param x
+	 * @param y
+	 * @param from
+	 *            The first tick of the span
+	 * @param until
+	 *            The tick after the last one of the span
+	 * @param actor
+	 *            The actor asking; its own reservations are ignored
+	 * @return True if a different, living actor has reserved the tile for a round overlapping the span within the window
+	 */
+	public synchronized boolean isReserved(int x, int y, long from, long until, Actor actor) {
+		if (!MapHelpers.isWithinBounds(width, height, x, y))
+			return false;
+
+		int first = Math.max(round, toRound(from));
+		int last = Math.min(round + WINDOW - 1, toRound(until - 1));
+		for (int r = first; r <= last; r++) {
+			int slot = slot(x + y * width, r);
+			Actor owner = owners[slot];
+			if (rounds[slot] == r && owner != null && owner != actor && owner.isAlive())
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Replaces an actor's reservations with a new plan, one step per turn of the actor's.
+	 *
+	 * @param actor
+	 * @param tiles
+	 *            The tile (x + y * width) the actor will be on after each of its turns, starting with the current one
+	 * @param offset
+	 *            The index in tiles of the entry for the current turn
+	 * @param count
+	 *            How many entries of tiles to use; anything past the window is ignored
+	 * @param tick
+	 *            The tick the current turn is taken on
+	 * @param ticksPerTurn
+	 *            How many ticks pass between the actor's turns
+	 */
+	public synchronized void reserve(Actor actor, int[] tiles, int offset, int count, long tick, int ticksPerTurn) {
+		release(actor);
+
+		Plan plan = freePlans.isEmpty() ? new Plan() : freePlans.pop();
+		int end = round + WINDOW - 1;
+		for (int i = 0; i < count; i++) {
+			long from = tick + (long) i * ticksPerTurn;
+			int first = Math.max(round, toRound(from));
+			int last = Math.min(end, toRound(from + ticksPerTurn - 1));
+			for (int r = first; r <= last && plan.count < MAX_PLAN_SLOTS; r++) {
+				int slot = slot(tiles[offset + i], r);
+				owners[slot] = actor;
+				rounds[slot] = r;
+				plan.slots[plan.count++] = slot;
+			}
+		}
+		plans.put(actor, plan);
+	}
+
+	/**
+	 * Drops all of an actor's reservations.
+	 *
+	 * @param actor
+	 */
+	public synchronized void release(Actor actor) {
+		Plan plan = plans.remove(actor);
+		if (plan == null)
+			return;
+
+		for (int i = 0; i < plan.count; i++) {
+			if (owners[plan.slots[i]] == actor)
+				owners[plan.slots[i]] = null;
+		}
+		plan.count = 0;
+		freePlans.push(plan);
+	}
+
+	private static int toRound(long tick) {
+		return (int) (tick / TICKS_PER_ROUND);
+	}
+
+	private static int slot(int tile, int round) {
+		return tile * WINDOW + Math.floorMod(round, WINDOW);
+	}
+}
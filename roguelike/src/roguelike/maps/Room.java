@@ -178,14 +178,12 @@ public class Room {
 	}
 
 	protected boolean isFloorAdjacentToWall(Tile[][] map, int x, int y) {
-		if (x > 0 && map[x - 1][y].isWall())
-			return true;
-		if (y > 0 && map[x][y - 1].isWall())
-			return true;
-		if (x < map.length - 1 && map[x + 1][y].isWall())
-			return true;
-		if (y < map.length - 1 && map[x][y + 1].isWall())
-			return true;
+		for (int n = 0; n < MapHelpers.CARDINAL_DIRECTIONS; n++) {
+			int xp = x + MapHelpers.neighborX(n);
+			int yp = y + MapHelpers.neighborY(n);
+			if (MapHelpers.isWithinBounds(map, xp, yp) && map[xp][yp].isWall())
+				return true;
+		}
 
 		return false;
 	}
@@ -0,0 +1,373 @@
+package roguelike.maps;
+
+import java.awt.Rectangle;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An abstraction of a map's layout used for hierarchical pathfinding. Every passable tile belongs to a region: one per
+ * room built by the map builder, plus one per connected stretch of corridor left over. Wherever two regions touch, a
+ * portal is placed in the middle of the shared border, giving a node on each side joined by a single step. Nodes in the
+ * same region are joined by edges whose costs (the walking distance between them inside the region) are computed once
+ * when the graph is built.
+ *
+ * Doors are treated as passable, since actors open them by walking into them, so the graph never needs rebuilding.
+ */
+public class RoomGraph implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final int width;
+	private final int height;
+
+	/** Region of each tile, or -1 for impassable tiles */
+	private final int[] regions;
+	private final int regionCount;
+
+	/** The tile each node sits on, and the region it belongs to */
+	private final int[] nodeTiles;
+	private final int[] nodeRegions;
+	/** The nodes within each region */
+	private final int[][] regionNodes;
+
+	/** Adjacency lists: edges[node] holds target nodes, edgeCosts[node] the matching costs */
+	private final int[][] edges;
+	private final int[][] edgeCosts;
+
+	private RoomGraph(int width, int height, int[] regions, int regionCount, int[] nodeTiles, int[] nodeRegions, int[][] regionNodes,
+			int[][] edges, int[][] edgeCosts) {
+		this.width = width;
+		this.height = height;
+		this.regions = regions;
+		this.regionCount = regionCount;
+		this.nodeTiles = nodeTiles;
+		this.nodeRegions = nodeRegions;
+		this.regionNodes = regionNodes;
+		this.edges = edges;
+		this.edgeCosts = edgeCosts;
+	}
+
+	/**
+	 * Builds the graph for a finished map.
+	 *
+	 * @param map
+	 *            The map's tiles
+	 * @param rooms
+	 *            The rooms the builder created; their interiors become regions
+	 * @return
+	 */
+	public static RoomGraph build(Tile[][] map, List<Room> rooms) {
+		int width = map.length;
+		int height = map[0].length;
+		int[] regions = new int[width * height];
+		Arrays.fill(regions, -1);
+
+		int regionCount = 0;
+		for (Room room : rooms) {
+			Rectangle area = room.area;
+			boolean any = false;
+			for (int x = area.x + 1; x < area.getMaxX() - 1; x++) {
+				for (int y = area.y + 1; y < area.getMaxY() - 1; y++) {
+					int index = x + y * width;
+					if (isPassable(map[x][y]) && regions[index] == -1) {
+						regions[index] = regionCount;
+						any = true;
+					}
+				}
+			}
+			if (any)
+				regionCount++;
+		}
+
+		/* whatever is left over (corridors) gets split into connected regions */
+		int[] queue = new int[width * height];
+		for (int start = 0; start < regions.length; start++) {
+			if (regions[start] != -1 || !isPassable(map[start % width][start / width]))
+				continue;
+
+			int head = 0;
+			int tail = 0;
+			regions[start] = regionCount;
+			queue[tail++] = start;
+			while (head < tail) {
+				int current = queue[head++];
+				int cx = current % width;
+				int cy = current / width;
+				for (int n = 0; n < MapHelpers.DIRECTIONS; n++) {
+					int neighbor = MapHelpers.getNeighborIndex(width, height, cx, cy, n);
+					if (neighbor < 0)
+						continue;
+
+					int xp = cx + MapHelpers.neighborX(n);
+					int yp = cy + MapHelpers.neighborY(n);
+					if (regions[neighbor] == -1 && isPassable(map[xp][yp])) {
+						regions[neighbor] = regionCount;
+						queue[tail++] = neighbor;
+					}
+				}
+			}
+			regionCount++;
+		}
+
+		return new Builder(width, height, regions, regionCount, queue).build();
+	}
+
+	private static boolean isPassable(Tile tile) {
+		return MapHelpers.isWalkable(tile);
+	}
+
+	public int width() {
+		return width;
+	}
+
+	public int height() {
+		return height;
+	}
+
+	public int getRegionCount() {
+		return regionCount;
+	}
+
+	public int getNodeCount() {
+		return nodeTiles.length;
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 * @return The region the tile belongs to, or -1 if it is out of bounds or impassable
+	 */
+	public int getRegion(int x, int y) {
+		if (!MapHelpers.isWithinBounds(width, height, x, y))
+			return -1;
+
+		return regions[x + y * width];
+	}
+
+	int getRegion(int index) {
+		return regions[index];
+	}
+
+	int getNodeTile(int node) {
+		return nodeTiles[node];
+	}
+
+	int getNodeRegion(int node) {
+		return nodeRegions[node];
+	}
+
+	int[] getRegionNodes(int region) {
+		return regionNodes[region];
+	}
+
+	int[] getEdges(int node) {
+		return edges[node];
+	}
+
+	int[] getEdgeCosts(int node) {
+		return edgeCosts[node];
+	}
+
+	/**
+	 * Collects portals and edge costs once the regions are known.
+	 */
+	private static class Builder {
+		private final int width;
+		private final int height;
+		private final int[] regions;
+		private final int regionCount;
+		private final int[] queue;
+		private final int[] distances;
+
+		private final HashMap<Integer, Integer> nodeByTile = new HashMap<>();
+		private final ArrayList<Integer> nodeTiles = new ArrayList<>();
+		private final ArrayList<ArrayList<int[]>> nodeEdges = new ArrayList<>();
+
+		Builder(int width, int height, int[] regions, int regionCount, int[] queue) {
+			this.width = width;
+			this.height = height;
+			this.regions = regions;
+			this.regionCount = regionCount;
+			this.queue = queue;
+			this.distances = new int[width * height];
+		}
+
+		RoomGraph build() {
+			addPortals();
+
+			int nodeCount = nodeTiles.size();
+			int[] tiles = new int[nodeCount];
+			int[] nodeRegions = new int[nodeCount];
+			ArrayList<ArrayList<Integer>> byRegion = new ArrayList<>();
+			for (int r = 0; r < regionCount; r++)
+				byRegion.add(new ArrayList<>());
+
+			for (int node = 0; node < nodeCount; node++) {
+				tiles[node] = nodeTiles.get(node);
+				nodeRegions[node] = regions[tiles[node]];
+				byRegion.get(nodeRegions[node]).add(node);
+			}
+
+			int[][] regionNodes = new int[regionCount][];
+			for (int r = 0; r < regionCount; r++)
+				regionNodes[r] = byRegion.get(r).stream().mapToInt(Integer::intValue).toArray();
+
+			/* intra-region edges: walking distance between every pair of nodes in a region */
+			for (int r = 0; r < regionCount; r++) {
+				for (int node : regionNodes[r]) {
+					distancesWithinRegion(tiles[node], r);
+					for (int other : regionNodes[r]) {
+						int distance = distances[tiles[other]];
+						if (other != node && distance >= 0)
+							nodeEdges.get(node).add(new int[] { other, distance });
+					}
+				}
+			}
+
+			int[][] edges = new int[nodeCount][];
+			int[][] costs = new int[nodeCount][];
+			for (int node = 0; node < nodeCount; node++) {
+				ArrayList<int[]> list = nodeEdges.get(node);
+				edges[node] = new int[list.size()];
+				costs[node] = new int[list.size()];
+				for (int i = 0; i < list.size(); i++) {
+					edges[node][i] = list.get(i)[0];
+					costs[node][i] = list.get(i)[1];
+				}
+			}
+
+			return new RoomGraph(width, height, regions, regionCount, tiles, nodeRegions, regionNodes, edges, costs);
+		}
+
+		/**
+		 * For each pair of touching regions, every connected run of border tiles gets one portal at its middle tile.
+		 */
+		private void addPortals() {
+			HashMap<Long, ArrayList<Integer>> borders = new HashMap<>();
+
+			for (int index = 0; index < regions.length; index++) {
+				int region = regions[index];
+				if (region == -1)
+					continue;
+
+				int x = index % width;
+				int y = index / width;
+				for (int n = 0; n < MapHelpers.DIRECTIONS; n++) {
+					int neighbor = MapHelpers.getNeighborIndex(width, height, x, y, n);
+					if (neighbor < 0)
+						continue;
+
+					int other = regions[neighbor];
+					if (other > region) {
+						long key = ((long) region << 32) | other;
+						ArrayList<Integer> border = borders.computeIfAbsent(key, k -> new ArrayList<>());
+						if (border.isEmpty() || border.get(border.size() - 1).intValue() != index)
+							border.add(index);
+					}
+				}
+			}
+
+			boolean[] inBorder = new boolean[regions.length];
+			boolean[] seen = new boolean[regions.length];
+			for (Map.Entry<Long, ArrayList<Integer>> entry : borders.entrySet()) {
+				int other = (int) (entry.getKey() & 0xffffffffL);
+				ArrayList<Integer> border = entry.getValue();
+
+				for (int index : border)
+					inBorder[index] = true;
+
+				for (int index : border) {
+					if (seen[index])
+						continue;
+
+					ArrayList<Integer> run = collectRun(index, inBorder, seen);
+					int tile = run.get(run.size() / 2);
+					int partner = findNeighborInRegion(tile, other);
+
+					int a = nodeFor(tile);
+					int b = nodeFor(partner);
+					nodeEdges.get(a).add(new int[] { b, 1 });
+					nodeEdges.get(b).add(new int[] { a, 1 });
+				}
+
+				for (int index : border) {
+					inBorder[index] = false;
+					seen[index] = false;
+				}
+			}
+		}
+
+		private ArrayList<Integer> collectRun(int start, boolean[] inBorder, boolean[] seen) {
+			ArrayList<Integer> run = new ArrayList<>();
+			seen[start] = true;
+			run.add(start);
+
+			for (int i = 0; i < run.size(); i++) {
+				int current = run.get(i);
+				int cx = current % width;
+				int cy = current / width;
+				for (int n = 0; n < MapHelpers.DIRECTIONS; n++) {
+					int neighbor = MapHelpers.getNeighborIndex(width, height, cx, cy, n);
+					if (neighbor < 0)
+						continue;
+					if (inBorder[neighbor] && !seen[neighbor]) {
+						seen[neighbor] = true;
+						run.add(neighbor);
+					}
+				}
+			}
+			return run;
+		}
+
+		private int findNeighborInRegion(int tile, int region) {
+			int x = tile % width;
+			int y = tile / width;
+			for (int n = 0; n < MapHelpers.DIRECTIONS; n++) {
+				int neighbor = MapHelpers.getNeighborIndex(width, height, x, y, n);
+				if (neighbor >= 0 && regions[neighbor] == region)
+					return neighbor;
+			}
+			throw new IllegalStateException("border tile " + x + "," + y + " has no neighbor in region " + region);
+		}
+
+		private int nodeFor(int tile) {
+			Integer node = nodeByTile.get(tile);
+			if (node == null) {
+				node = nodeTiles.size();
+				nodeByTile.put(tile, node);
+				nodeTiles.add(tile);
+				nodeEdges.add(new ArrayList<>());
+			}
+			return node;
+		}
+
+		/**
+		 * Breadth-first search from a tile, restricted to a region. Leaves the results in distances (-1 = unreachable).
+		 */
+		private void distancesWithinRegion(int start, int region) {
+			Arrays.fill(distances, -1);
+
+			int head = 0;
+			int tail = 0;
+			distances[start] = 0;
+			queue[tail++] = start;
+			while (head < tail) {
+				int current = queue[head++];
+				int cx = current % width;
+				int cy = current / width;
+				for (int n = 0; n < MapHelpers.DIRECTIONS; n++) {
+					int neighbor = MapHelpers.getNeighborIndex(width, height, cx, cy, n);
+					if (neighbor < 0)
+						continue;
+					if (regions[neighbor] == region && distances[neighbor] == -1) {
+						distances[neighbor] = distances[current] + 1;
+						queue[tail++] = neighbor;
+					}
+				}
+			}
+		}
+	}
+}
@@ -31,13 +31,14 @@ public class Stairs extends Tile {
 	public void use() {
 		MapArea oldMap = Game.current().getCurrentMapArea();
 
+		// take the actor off this map first: building the new one moves the player to its starting point
+		Actor actor = getActor();
+		oldMap.removeActor(actor);
+
 		MapArea newMap = new MapArea(Game.MAP_WIDTH, Game.MAP_HEIGHT, mapBuilder);
 
 		// TODO: put stairs going back up wherever the player gets created
 
-		Actor actor = getActor();
-		oldMap.removeActor(actor);
-
 		newMap.addActor(actor);
 
 		Game.current().setCurrentMapArea(newMap);
@@ -0,0 +1,176 @@
+package roguelike.maps;
+
+import java.util.Arrays;
+
+import squidpony.squidgrid.util.DirectionIntercardinal;
+import squidpony.squidgrid.util.RadiusStrategy;
+
+/**
+ * Light spreading out from a point through translucent tiles, worked out the same way as SquidLib's
+ * TranslucenceWrapperFOV over a ShadowFOV: shadowcasting first finds what the light can reach at all, then the light
+ * is pushed outwards tile by tile, losing strength to distance and to each tile's resistance on the way. Unlike
+ * SquidLib's, it reads a window of a larger grid in place and writes into a buffer the caller provides, and keeps its
+ * own scratch from one call to the next, so once it has seen the largest window it will be asked for it allocates
+ * nothing.
+ *
+ * Instances are not thread safe; {@link FieldBatch} keeps one per thread.
+ */
+class TranslucentFOV {
+	private enum RayType {
+		PRIMARY, SECONDARY
+	}
+
+	/* the call in progress */
+	private float[][] resistances;
+	private int left, top, width, height;
+	private int startX, startY;
+	private float force;
+	private float decay;
+	private float radius;
+	private RadiusStrategy radiusStrategy;
+	private float[] light;
+
+	/** What shadowcasting reached, by x + y * width; a tile the light can get to is above 0 */
+	private float[] shadow = new float[0];
+
+	/**
+	 * Works out the light reaching each tile of a window of the grid.
+	 *
+	 * @param resistances
+	 *            Light resistance of the whole grid, by [x][y]
+	 * @param left
+	 *            The window's first column in the grid
+	 * @param top
+	 *            The window's first row in the grid
+	 * @param width
+	 * @param height
+	 * @param startX
+	 *            Where the light comes from, within the window
+	 * @param startY
+	 * @param force
+	 *            The light's strength where it starts
+	 * @param decay
+	 *            The strength lost with each step of distance
+	 * @param radiusStrategy
+	 *            How distance is measured
+	 * @param light
+	 *            Where to put the result, by x + y * width within the window; overwritten
+	 */
+	void calculate(float[][] resistances, int left, int top, int width, int height, int startX, int startY, float force,
+			float decay, RadiusStrategy radiusStrategy, float[] light) {
+		this.resistances = resistances;
+		this.left = left;
+		this.top = top;
+		this.width = width;
+		this.height = height;
+		this.startX = startX;
+		this.startY = startY;
+		this.force = force;
+		this.decay = decay;
+		this.radius = force / decay;
+		this.radiusStrategy = radiusStrategy;
+		this.light = light;
+
+		if (shadow.length < width * height)
+			shadow = new float[width * height];
+		Arrays.fill(shadow, 0, width * height, 0);
+		Arrays.fill(light, 0, width * height, 0);
+
+		shadow[startX + startY * width] = force;
+		for (DirectionIntercardinal direction : DirectionIntercardinal.DIAGONALS) {
+			castShadow(1, 1, 0, 0, direction.deltaX, direction.deltaY, 0);
+			castShadow(1, 1, 0, direction.deltaX, 0, 0, direction.deltaY);
+		}
+
+		light[startX + startY * width] = force;
+		for (DirectionIntercardinal direction : DirectionIntercardinal.OUTWARDS)
+			pushLight(startX + direction.deltaX, startY + direction.deltaY, force + decay, direction, direction, RayType.PRIMARY);
+
+		this.resistances = null;
+		this.light = null;
+	}
+
+	private float resistance(int x, int y) {
+		return resistances[left + x][top + y];
+	}
+
+	/**
+	 * Recursive shadowcasting over one octant, as ShadowFOV does it.
+	 */
+	private void castShadow(int row, float start, float end, int xx, int xy, int yx, int yy) {
+		float newStart = 0;
+		if (start < end)
+			return;
+
+		boolean blocked = false;
+		for (int distance = row; distance <= radius && !blocked; distance++) {
+			int deltaY = -distance;
+			for (int deltaX = -distance; deltaX <= 0; deltaX++) {
+				int currentX = startX + deltaX * xx + deltaY * xy;
+				int currentY = startY + deltaX * yx + deltaY * yy;
+				float leftSlope = (deltaX - 0.5f) / (deltaY + 0.5f);
+				float rightSlope = (deltaX + 0.5f) / (deltaY - 0.5f);
+
+				if (!(currentX >= 0 && currentY >= 0 && currentX < width && currentY < height) || start < rightSlope)
+					continue;
+				else if (end > leftSlope)
+					break;
+
+				float reach = radiusStrategy.radius(deltaX, deltaY);
+				if (reach <= radius)
+					shadow[currentX + currentY * width] = 1 - decay * reach / force;
+
+				boolean opaque = resistance(currentX, currentY) >= 1;
+				if (blocked) {
+					if (opaque) {
+						newStart = rightSlope;
+					} else {
+						blocked = false;
+						start = newStart;
+					}
+				} else if (opaque && distance < radius) {
+					blocked = true;
+					castShadow(distance + 1, start, leftSlope, xx, xy, yx, yy);
+					newStart = rightSlope;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Carries light into a tile, and on from there if it is brighter than what already reached it, as
+	 * TranslucenceWrapperFOV does it.
+	 */
+	private void pushLight(int x, int y, float strength, DirectionIntercardinal direction, DirectionIntercardinal previous, RayType type) {
+		if (strength <= 0 || x < 0 || x >= width || y < 0 || y >= height || shadow[x + y * width] <= 0)
+			return;
+
+		int index = x + y * width;
+		if (light[index] >= strength)
+			return;
+
+		light[index] = strength;
+
+		if (type == RayType.PRIMARY) {
+			pushOn(x, y, strength, direction, direction, direction, RayType.PRIMARY);
+			pushOn(x, y, strength, direction.clockwise(), direction, direction.clockwise(), RayType.SECONDARY);
+			pushOn(x, y, strength, direction.counterClockwise(), direction, direction.counterClockwise(), RayType.SECONDARY);
+		} else {
+			pushOn(x, y, strength, previous, direction, previous, RayType.SECONDARY);
+			pushOn(x, y, strength, direction, direction, previous, RayType.SECONDARY);
+
+			DirectionIntercardinal turn = previous.clockwise().equals(direction) ? previous.clockwise() : previous.counterClockwise();
+			pushOn(x, y, strength, turn, direction, turn, RayType.SECONDARY);
+		}
+	}
+
+	/**
+	 * Pushes light one step from a tile, weakened by the tile's resistance and the distance covered.
+	 */
+	private void pushOn(int x, int y, float strength, DirectionIntercardinal step, DirectionIntercardinal direction,
+			DirectionIntercardinal previous, RayType type) {
+		float distance = radiusStrategy.radius(x, y, x + step.deltaX, y + step.deltaY);
+		float remaining = strength - resistance(x, y) - distance * decay;
+		pushLight(x + step.deltaX, y + step.deltaY, remaining, direction, previous, type);
+	}
+}
@@ -0,0 +1,145 @@
+package roguelike.maps;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import roguelike.Game;
+import roguelike.actors.Actor;
+import roguelike.actors.Player;
+import roguelike.util.Coordinate;
+import roguelike.util.Metrics;
+import roguelike.util.Metrics.Counter;
+import squidpony.squidgrid.los.BresenhamLOS;
+import squidpony.squidgrid.los.LOSSolver;
+import squidpony.squidgrid.util.BasicRadiusStrategy;
+
+/**
+ * Answers whether one actor can see another on a map, remembering each answer until something it depends on
+ * changes, so that the many NPCs asking every turn whether they can see the player don't each trace a line.
+ *
+ * Answers towards the player are kept per tile the asker stands on, and hold until the player moves or the map's
+ * light resistances change (see {@link MapArea#getOpacityVersion()}). Answers between other actors are kept by both
+ * positions and forgotten at the same time, or once too many have piled up. Every answer is the one the line of sight
+ * itself would give: lines aren't symmetric, so one field of view from the player couldn't stand in for them without
+ * changing who sees whom.
+ *
+ * Safe to ask from several threads at once, as {@link roguelike.actors.ParallelDecisions} does, as long as the map
+ * doesn't change meanwhile.
+ */
+public class VisibilityOracle {
+	/** The solver keeps the last line it traced, so each thread needs its own */
+	private static final ThreadLocal<LOSSolver> losSolver = ThreadLocal.withInitial(BresenhamLOS::new);
+
+	/* towardsPlayer entries pack the generation, the asker's vision radius and the answer */
+	private static final int RADIUS_BITS = 8;
+	private static final int MAX_RADIUS = (1 << RADIUS_BITS) - 1;
+	private static final int MAX_GENERATION = Integer.MAX_VALUE >>> (RADIUS_BITS + 1);
+
+	/** How many answers between other actors to keep while the player stands still */
+	private static final int MAX_PAIRS = 4096;
+
+	private final MapArea map;
+	private final int[] towardsPlayer;
+	private final ConcurrentHashMap<Long, Boolean> betweenActors = new ConcurrentHashMap<Long, Boolean>();
+
+	private volatile Viewpoint viewpoint;
+
+	VisibilityOracle(MapArea map) {
+		this.map = map;
+		this.towardsPlayer = new int[map.width() * map.height()];
+	}
+
+	/**
+	 * Determines whether an actor can see another, given how far it can see.
+	 *
+	 * @param actor
+	 * @param other
+	 * @return
+	 */
+	public boolean canSee(Actor actor, Actor other) {
+		Coordinate from = actor.getPosition();
+		Coordinate to = other.getPosition();
+		int radius = actor.getVisionRadius();
+
+		Viewpoint current = Player.isPlayer(other) ? viewpoint(to) : null;
+		if (radius > MAX_RADIUS || !map.isWithinBounds(from.x, from.y))
+			return trace(from, to, radius);
+
+		int index = from.x + from.y * map.width();
+		if (current != null) {
+			int entry = towardsPlayer[index];
+			if (entry >>> (RADIUS_BITS + 1) == current.generation && ((entry >>> 1) & MAX_RADIUS) == radius) {
+				Metrics.count(Counter.LOS_CACHED);
+				return (entry & 1) != 0;
+			}
+
+			boolean visible = trace(from, to, radius);
+			towardsPlayer[index] = current.generation << (RADIUS_BITS + 1) | radius << 1 | (visible ? 1 : 0);
+			return visible;
+		}
+
+		// keep the answers between other actors no longer than those towards the player
+		viewpoint(Game.current().getPlayer().getPosition());
+
+		long key = ((long) index << 32) | ((long) (to.x + to.y * map.width()) << RADIUS_BITS) | radius;
+		Boolean cached = betweenActors.get(key);
+		if (cached != null) {
+			Metrics.count(Counter.LOS_CACHED);
+			return cached;
+		}
+
+		if (betweenActors.size() >= MAX_PAIRS)
+			betweenActors.clear();
+
+		boolean visible = trace(from, to, radius);
+		betweenActors.put(key, visible);
+		return visible;
+	}
+
+	private boolean trace(Coordinate from, Coordinate to, int radius) {
+		Metrics.count(Counter.LOS_TRACED);
+		return losSolver.get().isReachable(map.getLightValues(), from.x, from.y, to.x, to.y, 1, 1f / radius, BasicRadiusStrategy.CIRCLE);
+	}
+
+	private Viewpoint viewpoint(Coordinate player) {
+		Viewpoint current = viewpoint;
+		if (current == null || !current.holds(player, map.getOpacityVersion()))
+			current = moveViewpoint(player);
+		return current;
+	}
+
+	private synchronized Viewpoint moveViewpoint(Coordinate player) {
+		Viewpoint current = viewpoint;
+		int opacityVersion = map.getOpacityVersion();
+		if (current != null && current.holds(player, opacityVersion))
+			return current;
+
+		int generation = current != null ? current.generation + 1 : 1;
+		if (generation > MAX_GENERATION) {
+			Arrays.fill(towardsPlayer, 0);
+			generation = 1;
+		}
+		betweenActors.clear();
+
+		viewpoint = new Viewpoint(player.x, player.y, opacityVersion, generation);
+		return viewpoint;
+	}
+
+	/** Where the player was and the map's opacity version when the cached answers were given */
+	private static class Viewpoint {
+		final int x, y;
+		final int opacityVersion;
+		final int generation;
+
+		Viewpoint(int x, int y, int opacityVersion, int generation) {
+			this.x = x;
+			this.y = y;
+			this.opacityVersion = opacityVersion;
+			this.generation = generation;
+		}
+
+		boolean holds(Coordinate player, int opacityVersion) {
+			return player.x == x && player.y == y && opacityVersion == this.opacityVersion;
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package roguelike.maps;
+
+/**
+ * Which of a map's tiles could be walked over at one point in time, labelled with the map's walkability version then.
+ * Never changes once built, so it can be searched on other threads while the map itself moves on; comparing
+ * {@link #getVersion()} with {@link MapArea#getWalkabilityVersion()} tells whether it still holds.
+ */
+public class WalkabilitySnapshot {
+	private final int width;
+	private final int height;
+	private final int version;
+	private final boolean[] passable;
+
+	WalkabilitySnapshot(Tile[][] map, int version) {
+		this.width = map.length;
+		this.height = map[0].length;
+		this.version = version;
+		this.passable = new boolean[width * height];
+
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++)
+				passable[x + y * width] = map[x][y].canPass();
+		}
+	}
+
+	public int width() {
+		return width;
+	}
+
+	public int height() {
+		return height;
+	}
+
+	/**
+	 * @return The map's walkability version when the snapshot was taken
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	public boolean isPassable(int x, int y) {
+		if (!MapHelpers.isWithinBounds(width, height, x, y))
+			return false;
+
+		return passable[x + y * width];
+	}
+
+	boolean isPassable(int index) {
+		return passable[index];
+	}
+}
@@ -11,8 +11,10 @@ import roguelike.GameLoader;
 import roguelike.TurnEvent;
 import roguelike.TurnResult;
 import roguelike.actors.Actor;
+import roguelike.actors.AiBudget;
 import roguelike.actors.AttackAttempt;
 import roguelike.actors.Player;
+import roguelike.maps.FieldOfView;
 import roguelike.maps.MapArea;
 import roguelike.maps.Tile;
 import roguelike.ui.DisplayManager;
@@ -23,15 +25,12 @@ import roguelike.ui.MessageDisplay;
 import roguelike.ui.StatsDisplay;
 import roguelike.ui.animations.AnimationManager;
 import roguelike.ui.windows.TerminalBase;
-import roguelike.util.ArrayUtils;
 import roguelike.util.Coordinate;
+import roguelike.util.Metrics;
+import roguelike.util.Metrics.Phase;
 import squidpony.squidcolor.SColor;
 import squidpony.squidcolor.SColorFactory;
-import squidpony.squidgrid.fov.FOVTranslator;
-import squidpony.squidgrid.fov.TranslucenceWrapperFOV;
-import squidpony.squidgrid.util.BasicRadiusStrategy;
 import squidpony.squidgrid.util.DirectionIntercardinal;
-import squidpony.squidgrid.util.RadiusStrategy;
 import squidpony.squidutility.Pair;
 
 public class MainScreen extends Screen {
@@ -40,8 +39,7 @@ public class MainScreen extends Screen {
     private final static int windowWidth = WIDTH - MainWindow.STAT_WIDTH;
     private final static int windowHeight = HEIGHT;
 
-    private final FOVTranslator fov = new FOVTranslator(new TranslucenceWrapperFOV());
-    private final RadiusStrategy radiusStrategy = BasicRadiusStrategy.CIRCLE;
+    private final FieldOfView fieldOfView = new FieldOfView();
 
     TerminalBase windowTerminal;
 
@@ -78,11 +76,13 @@ public class MainScreen extends Screen {
 
         LOG.debug("Window tile size: {} x {}", windowWidth, windowHeight);
 
-        /* used for FOV lighting */
-        SColorFactory.addPallet("light", SColorFactory.asGradient(SColor.WHITE, SColor.DARK_SLATE_GRAY));
-
         animationManager = new AnimationManager();
         displayManager = DisplayManager.instance();
+        game.setActionPerformedListener(displayManager::setDirty); // make sure we show the result of each action
+
+        // keep busy turns from stalling the frame, unless recording, as a budgeted game doesn't play back the same
+        if (!GameLoader.isRecording())
+            game.setAiBudget(new AiBudget(MainWindow.AI_BUDGET_MILLIS * 1000000L));
 
         int messageLines = 21;
         TerminalBase messageTerminal =
@@ -179,6 +179,7 @@ public class MainScreen extends Screen {
     }
 
     private void drawMap() {
+        long start = Metrics.start();
         MapArea currentMap = game.getCurrentMapArea();
         Coordinate centerPosition = game.getCenterScreenPosition();
 
@@ -212,6 +213,7 @@ public class MainScreen extends Screen {
                 }
             }
         }
+        Metrics.stop(Phase.MAP_DRAW, start);
     }
 
     /**
@@ -223,38 +225,7 @@ public class MainScreen extends Screen {
 
         Rectangle screenArea = currentMap.getVisibleAreaInTiles(windowWidth, windowHeight, centerPosition);
 
-        doFOV(currentMap, screenArea, centerPosition);
-    }
-
-    private void doFOV(MapArea currentMap, Rectangle screenArea, Coordinate player) {
-        float[][] lighting = new float[WIDTH][HEIGHT];
-
-        lighting = ArrayUtils.getSubArray(currentMap.getLightValues(), screenArea);
-
-        float lightForce = game.getPlayer().getVisionRadius();
-        float[][] incomingLight = fov.calculateFOV(lighting, player.x - screenArea.x, player.y - screenArea.y, 1f, 1 / lightForce, radiusStrategy);
-
-        for (int x = screenArea.x; x < screenArea.getMaxX(); x++) {
-            for (int y = screenArea.y; y < screenArea.getMaxY(); y++) {
-
-                int cX = x - screenArea.x;
-                int cY = y - screenArea.y;
-
-                Tile tile = currentMap.getTileAt(x, y);
-                tile.setVisible(fov.isLit(cX, cY));
-
-                if (incomingLight[cX][cY] > 0) {
-
-                    float bright = 1 - incomingLight[cX][cY];
-                    tile.setLightedColorValue(SColorFactory.fromPallet("light", bright));
-
-                }
-                else if (!tile.getLightedColorValue().equals(SColor.BLACK)) {
-
-                    tile.setLightedColorValue(SColor.BLACK);
-                }
-            }
-        }
+        fieldOfView.calculate(currentMap, screenArea, centerPosition, game.getPlayer().getVisionRadius());
     }
 
     private void drawEvents(TurnResult run) {
@@ -8,6 +8,8 @@ import javax.swing.JFrame;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import roguelike.CursorResult;
+import roguelike.DialogResult;
 import squidpony.squidgrid.gui.SGKeyListener;
 import squidpony.squidgrid.gui.SGKeyListener.CaptureType;
 import squidpony.squidgrid.util.DirectionIntercardinal;
@@ -22,6 +24,9 @@ public class InputManager {
     private static boolean inputEnabled = true;
     private static KeyMap activeKeyMap = new KeyMap(".");
     private static Stack<KeyMap> keyBindings = new Stack<KeyMap>();
+    private static InputSource inputSource;
+    private static InputRecorder inputRecorder;
+    private static boolean recordingPaused;
 
     private InputManager() {
     }
@@ -30,12 +35,77 @@ public class InputManager {
         frame.addKeyListener(keyListener);
     }
 
+    /**
+     * Takes commands from a source other than the keyboard, such as a script or a bot.
+     * 
+     * @param source
+     *            The source to read from, or null to go back to the keyboard
+     */
+    public static void setInputSource(InputSource source) {
+        inputSource = source;
+    }
+
+    /**
+     * Passes the player's input on to a recorder, until it is set back to null.
+     * 
+     * @param recorder
+     */
+    public static void setInputRecorder(InputRecorder recorder) {
+        inputRecorder = recorder;
+        recordingPaused = false;
+    }
+
     public static InputCommand nextCommand() {
-        return nextCommand(nextKey(), false);
+        if (inputSource != null)
+            return record(inputEnabled ? inputSource.nextCommand() : null);
+
+        return record(nextCommand(nextKey(), false));
     }
 
     public static InputCommand nextCommandPreserveKeyData() {
-        return nextCommand(nextKey(), true);
+        if (inputSource != null)
+            return record(inputEnabled ? inputSource.nextCommand() : null);
+
+        return record(nextCommand(nextKey(), true));
+    }
+
+    /**
+     * Called before showing a cursor. Commands read until it closes only move the cursor around, so they aren't
+     * recorded.
+     * 
+     * @return The result to use instead of showing the cursor, if the input source already knows it
+     */
+    public static CursorResult openCursor() {
+        CursorResult result = inputSource != null ? inputSource.nextCursorResult() : null;
+        if (result == null)
+            recordingPaused = true;
+
+        return result;
+    }
+
+    public static void cursorClosed(CursorResult result) {
+        recordingPaused = false;
+        if (inputRecorder != null)
+            inputRecorder.recordCursorResult(result);
+    }
+
+    /**
+     * Called before showing a dialog, see {@link #openCursor()}.
+     * 
+     * @return The result to use instead of showing the dialog, if the input source already knows it
+     */
+    public static <T> DialogResult<T> openDialog() {
+        DialogResult<T> result = inputSource != null ? inputSource.<T> nextDialogResult() : null;
+        if (result == null)
+            recordingPaused = true;
+
+        return result;
+    }
+
+    public static void dialogClosed(DialogResult<?> result) {
+        recordingPaused = false;
+        if (inputRecorder != null)
+            inputRecorder.recordDialogResult(result);
     }
 
     public static DirectionIntercardinal nextDirection() {
@@ -81,6 +151,13 @@ public class InputManager {
         return activeKeyMap;
     }
 
+    private static InputCommand record(InputCommand command) {
+        if (command != null && inputRecorder != null && !recordingPaused)
+            inputRecorder.recordCommand(command);
+
+        return command;
+    }
+
     private static InputCommand nextCommand(KeyEvent key, boolean getKeyData) {
         InputCommand cmd = activeKeyMap.getCommand(key);
         if (cmd == null && key != null && getKeyData) {
@@ -0,0 +1,18 @@
+package roguelike.ui;
+
+import roguelike.CursorResult;
+import roguelike.DialogResult;
+
+/**
+ * Is told about the player's input as the game reads it, so a game can be played back later. Commands read while a
+ * cursor or dialog is open aren't passed on one by one; only the result the cursor or dialog gave is. Install one
+ * with {@link InputManager#setInputRecorder(InputRecorder)}.
+ */
+public interface InputRecorder {
+
+	public void recordCommand(InputCommand command);
+
+	public void recordCursorResult(CursorResult result);
+
+	public void recordDialogResult(DialogResult<?> result);
+}
@@ -0,0 +1,32 @@
+package roguelike.ui;
+
+import roguelike.CursorResult;
+import roguelike.DialogResult;
+
+/**
+ * Somewhere player commands come from other than the keyboard, such as a script or a bot. Install one with
+ * {@link InputManager#setInputSource(InputSource)}.
+ */
+public interface InputSource {
+
+	/**
+	 * @return The next command, or null if there isn't one yet
+	 */
+	public InputCommand nextCommand();
+
+	/**
+	 * Sources that play back a recording answer cursors directly, since there may be no screen to show one on.
+	 * 
+	 * @return The result the next cursor should give, or null to show the cursor as usual
+	 */
+	public default CursorResult nextCursorResult() {
+		return null;
+	}
+
+	/**
+	 * @return The result the next dialog should give, or null to show the dialog as usual
+	 */
+	public default <T> DialogResult<T> nextDialogResult() {
+		return null;
+	}
+}
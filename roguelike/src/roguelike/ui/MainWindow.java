@@ -35,6 +35,9 @@ public class MainWindow {
 	final int FRAMES_PER_SECOND = 40;
 	final int SKIP_TICKS = 1000 / FRAMES_PER_SECOND;
 
+	/** How long NPCs may think each frame, leaving the rest of the frame for drawing */
+	public static final int AI_BUDGET_MILLIS = 10;
+
 	private JComponent displayPane;
 	private Screen currentScreen;
 	private DisplayManager displayManager;
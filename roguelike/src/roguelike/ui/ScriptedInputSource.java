@@ -0,0 +1,46 @@
+package roguelike.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plays back a fixed list of commands, starting over from the beginning once it runs out.
+ */
+public class ScriptedInputSource implements InputSource {
+
+	private final List<InputCommand> commands;
+	private int next;
+
+	public ScriptedInputSource(List<InputCommand> commands) {
+		if (commands == null || commands.isEmpty())
+			throw new IllegalArgumentException("commands cannot be empty");
+
+		this.commands = new ArrayList<InputCommand>(commands);
+	}
+
+	/**
+	 * Parses a comma separated list of command names, e.g. "UP,UP,LEFT,REST".
+	 * 
+	 * @param script
+	 * @return
+	 */
+	public static ScriptedInputSource parse(String script) {
+		List<InputCommand> commands = new ArrayList<InputCommand>();
+		for (String name : script.split(",")) {
+			if (!name.trim().isEmpty())
+				commands.add(InputCommand.valueOf(name.trim().toUpperCase()));
+		}
+		return new ScriptedInputSource(commands);
+	}
+
+	public List<InputCommand> getCommands() {
+		return commands;
+	}
+
+	@Override
+	public InputCommand nextCommand() {
+		InputCommand command = commands.get(next);
+		next = (next + 1) % commands.size();
+		return command;
+	}
+}
@@ -1,17 +1,16 @@
 package roguelike.ui.animations;
 
 import java.awt.Point;
-import java.util.Queue;
 
 import roguelike.actors.Actor;
+import roguelike.maps.Path;
 import roguelike.ui.windows.TerminalBase;
 import squidpony.squidcolor.SColor;
-import squidpony.squidmath.Bresenham;
 
 public class RangedAttackAnimation extends Animation {
 
 	private Actor target;
-	private Queue<Point> path;
+	private Path path;
 
 	private int rangedFrames = 8;
 
@@ -20,7 +19,7 @@ public class RangedAttackAnimation extends Animation {
 	public RangedAttackAnimation(Actor attacker, Actor target, String damage) {
 		this.target = target;
 
-		path = Bresenham.line2D(attacker.getPosition(), target.getPosition());
+		path = Path.line(attacker.getPosition().x, attacker.getPosition().y, target.getPosition().x, target.getPosition().y);
 
 		damageAnim = new AttackAnimation(attacker, target, damage);
 		this.totalFrames = damageAnim.totalFrames + rangedFrames;
@@ -38,13 +37,13 @@ public class RangedAttackAnimation extends Animation {
 		int y = offsetPos.y - target.getPosition().y;
 
 		if (this.currentFrame < rangedFrames) {
-			int numTiles = (int) Math.ceil(path.size() / (float) 8.0f);
+			int numTiles = (int) Math.ceil((path.getLength() - path.getCurrentIndex()) / (float) 8.0f);
 			for (int i = 0; i < numTiles; i++) {
 
-				Point p = path.poll();
-				if (p != null) {
+				if (path.hasCurrentStep()) {
 					// terminal.withColor(SColor.TRANSPARENT, SColor.RED).fill(p.x + x, p.y + y, 1, 1);
-					terminal.withColor(SColor.LIGHT_GRAY).put(p.x + x, p.y + y, '`');
+					terminal.withColor(SColor.LIGHT_GRAY).put(path.getCurrentX() + x, path.getCurrentY() + y, '`');
+					path.nextStep();
 				}
 			}
 		}
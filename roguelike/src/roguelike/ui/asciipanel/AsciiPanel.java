@@ -14,6 +14,9 @@ import javax.imageio.ImageIO;
 import javax.swing.JPanel;
 
 import roguelike.ui.MainWindow;
+import roguelike.util.Metrics;
+import roguelike.util.Metrics.Counter;
+import roguelike.util.Metrics.Phase;
 
 /**
  * This simulates a code page 437 ASCII terminal display.
@@ -322,6 +325,8 @@ public class AsciiPanel extends JPanel {
 			offscreenGraphics = offscreenBuffer.getGraphics();
 		}
 
+		long start = Metrics.start();
+		int repainted = 0;
 		for (int x = 0; x < widthInCharacters; x++) {
 			for (int y = 0; y < heightInCharacters; y++) {
 				if (oldBackgroundColors[x][y] == backgroundColors[x][y]
@@ -339,10 +344,13 @@ public class AsciiPanel extends JPanel {
 				oldBackgroundColors[x][y] = backgroundColors[x][y];
 				oldForegroundColors[x][y] = foregroundColors[x][y];
 				oldChars[x][y] = chars[x][y];
+				repainted++;
 			}
 		}
 
 		g.drawImage(offscreenBuffer, 0, 0, this);
+		Metrics.stop(Phase.PAINT, start);
+		Metrics.count(Counter.CELLS_REPAINTED, repainted);
 	}
 
 	private void loadGlyphs() {
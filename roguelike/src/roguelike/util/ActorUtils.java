@@ -1,37 +1,19 @@
 package roguelike.util;
 
-import java.awt.Point;
-
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import roguelike.actors.Actor;
 import roguelike.maps.MapArea;
-import squidpony.squidgrid.los.BresenhamLOS;
-import squidpony.squidgrid.los.LOSSolver;
-import squidpony.squidgrid.util.BasicRadiusStrategy;
 
 public class ActorUtils {
     private static final Logger LOG = LogManager.getLogger(ActorUtils.class);
 
-    private static LOSSolver losSolver = new BresenhamLOS();
-
     private ActorUtils() {
     }
 
     public static boolean canSee(Actor actor, Actor other, MapArea mapArea) {
-        Point position = actor.getPosition();
-
-        int startx = position.x;
-        int starty = position.y;
-
-        int targetx = other.getPosition().x;
-        int targety = other.getPosition().y;
-
-        float force = 1;
-        float decay = 1f / actor.getVisionRadius();
-
-        boolean visible = losSolver.isReachable(mapArea.getLightValues(), startx, starty, targetx, targety, force, decay, BasicRadiusStrategy.CIRCLE);
+        boolean visible = mapArea.visibility().canSee(actor, other);
 
         LOG.debug("{} can see {} = {}", actor.getName(), other.getName(), visible);
 
@@ -0,0 +1,242 @@
+package roguelike.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.ObjectName;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Times the phases of a turn and counts the work done in them, so it can be seen where a turn's time goes. Each phase
+ * keeps a {@link TimingHistogram}; the totals can be read over JMX (roguelike:type=Metrics) and are logged
+ * periodically.
+ *
+ * Off unless the roguelike.metrics system property is true or it is turned on over JMX. While off, timing a phase
+ * costs one field read and nothing is recorded:
+ *
+ * <pre>
+ * long start = Metrics.start();
+ * ...
+ * Metrics.stop(Phase.FOV, start);
+ * </pre>
+ *
+ * The roguelike.metrics.logSeconds property sets how often the totals are logged (30 seconds by default, 0 for never).
+ * Safe to use from multiple threads.
+ */
+public final class Metrics {
+	private static final Logger LOG = LogManager.getLogger(Metrics.class);
+
+	public enum Phase {
+		/** Behaviors choosing an action */
+		AI_DECISION,
+		/** Behaviors choosing the behavior that follows them */
+		AI_TRANSITION,
+		/** Actions being performed */
+		ACTION,
+		/** Path searches */
+		PATHFINDING,
+		/** Requested paths, from being asked for to being found */
+		PATH_LATENCY,
+		/** Field of view calculation */
+		FOV,
+		/** Bringing the light up to date: re-lighting the sources that changed and summing the squares they cover */
+		LIGHTING,
+		/** Drawing the map into the terminal */
+		MAP_DRAW,
+		/** Painting changed cells to the screen */
+		PAINT
+	}
+
+	public enum Counter {
+		ACTORS_PROCESSED,
+		ACTIONS_PERFORMED,
+		PATHS_SEARCHED,
+		/** Path requests that joined a search for the same goal, and requested paths the map changed under */
+		PATHS_DEDUPLICATED,
+		PATHS_DROPPED,
+		CELLS_REPAINTED,
+		/** NPC turns in each {@link roguelike.actors.SimulationLod} tier */
+		FULL_TURNS,
+		COARSE_TURNS,
+		DORMANT_TURNS,
+		/** NPC turns that followed a plan or waited because the {@link roguelike.actors.AiBudget} was spent */
+		AI_FALLBACKS,
+		AI_DEFERRED,
+		/** Field of view requests answered from the last calculation, since nothing affecting it had changed */
+		FOV_REUSED,
+		/** Line of sight checks traced, and answered from {@link roguelike.maps.VisibilityOracle}'s cache */
+		LOS_TRACED,
+		LOS_CACHED,
+		/** Light sources whose light was worked out again, see {@link roguelike.maps.LightingEngine} */
+		LIGHTS_LIT
+	}
+
+	private static final TimingHistogram[] phases = new TimingHistogram[Phase.values().length];
+	private static final LongAdder[] counters = new LongAdder[Counter.values().length];
+
+	private static volatile boolean enabled = Boolean.getBoolean("roguelike.metrics");
+	private static final long logIntervalNanos = Long.getLong("roguelike.metrics.logSeconds", 30) * 1000000000L;
+	private static volatile long nextLog = System.nanoTime() + logIntervalNanos;
+
+	static {
+		for (int i = 0; i < phases.length; i++)
+			phases[i] = new TimingHistogram();
+		for (int i = 0; i < counters.length; i++)
+			counters[i] = new LongAdder();
+
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName("roguelike:type=Metrics"));
+		}
+		catch (Exception e) {
+			LOG.warn("Couldn't publish metrics over JMX: {}", e.toString());
+		}
+	}
+
+	private Metrics() {
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(boolean enabled) {
+		Metrics.enabled = enabled;
+	}
+
+	/**
+	 * @return The time to pass to {@link #stop(Phase, long)}, or 0 if metrics are off
+	 */
+	public static long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Records the time since the given start in the phase's histogram.
+	 *
+	 * @param phase
+	 * @param start
+	 *            From {@link #start()}
+	 */
+	public static void stop(Phase phase, long start) {
+		if (start != 0)
+			record(phase, System.nanoTime() - start);
+	}
+
+	/**
+	 * Records a time measured some other way.
+	 *
+	 * @param phase
+	 * @param nanos
+	 */
+	public static void record(Phase phase, long nanos) {
+		if (!enabled)
+			return;
+
+		TimingHistogram histogram = phases[phase.ordinal()];
+		synchronized (histogram) {
+			histogram.record(nanos);
+		}
+	}
+
+	public static void count(Counter counter) {
+		if (enabled)
+			counters[counter.ordinal()].increment();
+	}
+
+	public static void count(Counter counter, long amount) {
+		if (enabled)
+			counters[counter.ordinal()].add(amount);
+	}
+
+	public static long getCount(Counter counter) {
+		return counters[counter.ordinal()].sum();
+	}
+
+	/**
+	 * @return A copy of the phase's histogram
+	 */
+	public static TimingHistogram getPhase(Phase phase) {
+		TimingHistogram histogram = phases[phase.ordinal()];
+		synchronized (histogram) {
+			return new TimingHistogram(histogram);
+		}
+	}
+
+	public static void reset() {
+		for (TimingHistogram histogram : phases) {
+			synchronized (histogram) {
+				histogram.clear();
+			}
+		}
+		for (LongAdder counter : counters)
+			counter.reset();
+	}
+
+	/**
+	 * Logs the totals if metrics are on and it has been long enough since they were last logged. Meant to be called
+	 * once a turn.
+	 */
+	public static void logIfDue() {
+		if (!enabled || logIntervalNanos <= 0 || System.nanoTime() - nextLog < 0)
+			return;
+
+		nextLog = System.nanoTime() + logIntervalNanos;
+		LOG.info("Metrics:\n{}", report());
+	}
+
+	/**
+	 * @return One line per phase that has been timed and per counter
+	 */
+	public static String report() {
+		StringBuilder builder = new StringBuilder();
+		for (Phase phase : Phase.values()) {
+			TimingHistogram histogram = getPhase(phase);
+			if (histogram.getCount() > 0)
+				builder.append(String.format("%-18s %s, total=%.1fms%n", phase, histogram, histogram.getTotalNanos() / 1e6));
+		}
+		for (Counter counter : Counter.values())
+			builder.append(String.format("%-18s %d%n", counter, getCount(counter)));
+
+		return builder.toString();
+	}
+
+	private static class Bean implements MetricsMXBean {
+
+		@Override
+		public boolean isEnabled() {
+			return Metrics.isEnabled();
+		}
+
+		@Override
+		public void setEnabled(boolean enabled) {
+			Metrics.setEnabled(enabled);
+		}
+
+		@Override
+		public Map<String, String> getPhases() {
+			Map<String, String> summaries = new LinkedHashMap<String, String>();
+			for (Phase phase : Phase.values())
+				summaries.put(phase.name(), getPhase(phase).toString());
+
+			return summaries;
+		}
+
+		@Override
+		public Map<String, Long> getCounters() {
+			Map<String, Long> values = new LinkedHashMap<String, Long>();
+			for (Counter counter : Counter.values())
+				values.put(counter.name(), getCount(counter));
+
+			return values;
+		}
+
+		@Override
+		public void reset() {
+			Metrics.reset();
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package roguelike.util;
+
+import java.util.Map;
+
+/**
+ * The management interface {@link Metrics} is published under, as roguelike:type=Metrics.
+ */
+public interface MetricsMXBean {
+
+	public boolean isEnabled();
+
+	public void setEnabled(boolean enabled);
+
+	/**
+	 * @return A summary of each phase's timings: sample count, mean and percentiles
+	 */
+	public Map<String, String> getPhases();
+
+	public Map<String, Long> getCounters();
+
+	public void reset();
+}
@@ -0,0 +1,105 @@
+package roguelike.util;
+
+import java.util.Arrays;
+
+/**
+ * Counts durations in buckets that double in width (under 1us, 1-2us, 2-4us, ... up to about a minute), which is
+ * enough to see the shape of a latency distribution and its tail without storing every sample.
+ */
+public class TimingHistogram {
+	private static final int BUCKETS = 27;
+
+	private final long[] counts = new long[BUCKETS];
+	private long count;
+	private long totalNanos;
+	private long maxNanos;
+
+	public TimingHistogram() {
+	}
+
+	/**
+	 * Copies another histogram's samples.
+	 * 
+	 * @param other
+	 */
+	public TimingHistogram(TimingHistogram other) {
+		System.arraycopy(other.counts, 0, counts, 0, BUCKETS);
+		count = other.count;
+		totalNanos = other.totalNanos;
+		maxNanos = other.maxNanos;
+	}
+
+	public void record(long nanos) {
+		long micros = Math.max(0, nanos / 1000);
+		int bucket = micros == 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+
+		counts[bucket]++;
+		count++;
+		totalNanos += nanos;
+		maxNanos = Math.max(maxNanos, nanos);
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	public long getMaxNanos() {
+		return maxNanos;
+	}
+
+	public double getMeanNanos() {
+		return count > 0 ? (double) totalNanos / count : 0;
+	}
+
+	/**
+	 * @param percentile
+	 *            From 0 to 100
+	 * @return The upper bound, in nanoseconds, of the bucket holding the given percentile
+	 */
+	public long getPercentileNanos(double percentile) {
+		long target = (long) Math.ceil(count * percentile / 100);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= Math.max(target, 1))
+				return Math.min(upperBoundNanos(i), maxNanos);
+		}
+		return maxNanos;
+	}
+
+	public void clear() {
+		Arrays.fill(counts, 0);
+		count = 0;
+		totalNanos = 0;
+		maxNanos = 0;
+	}
+
+	/**
+	 * @return One line per non-empty bucket: its range and how many samples fell in it
+	 */
+	public String toHistogramString() {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < BUCKETS; i++) {
+			if (counts[i] == 0)
+				continue;
+
+			long low = i == 0 ? 0 : 1L << (i - 1);
+			builder.append(String.format("%10dus - %10dus: %d%n", low, upperBoundNanos(i) / 1000, counts[i]));
+		}
+		return builder.toString();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("n=%d, mean=%.1fus, p50=%dus, p90=%dus, p99=%dus, max=%dus", count, getMeanNanos() / 1000,
+				getPercentileNanos(50) / 1000, getPercentileNanos(90) / 1000, getPercentileNanos(99) / 1000, maxNanos / 1000);
+	}
+
+	private static long upperBoundNanos(int bucket) {
+		return (1L << bucket) * 1000;
+	}
+}